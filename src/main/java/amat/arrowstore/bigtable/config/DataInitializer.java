@@ -1,6 +1,7 @@
 package amat.arrowstore.bigtable.config;
 
 import amat.arrowstore.bigtable.model.ColumnDefinition;
+import amat.arrowstore.bigtable.service.ColumnBatch;
 import amat.arrowstore.bigtable.service.DataGeneratorService;
 import amat.arrowstore.bigtable.service.TableService;
 import io.opentelemetry.api.OpenTelemetry;
@@ -14,8 +15,8 @@ import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 @Component
 public class DataInitializer implements ApplicationRunner {
@@ -73,11 +74,15 @@ public class DataInitializer implements ApplicationRunner {
                     .setAttribute("rowCount", rowCount)
                     .setAttribute("columnCount", schema.size())
                     .startSpan();
-            List<Map<String, Object>> data;
+            // Generated column by column in the chunks they are loaded in
+            int chunkSize = 10000;
+            List<ColumnBatch> chunks = new ArrayList<>();
             try {
                 long dataGenStart = System.currentTimeMillis();
                 logger.info("Generating {} rows of sample data...", rowCount);
-                data = dataGeneratorService.generateData(rowCount, schema);
+                for (int startIndex = 0; startIndex < rowCount; startIndex += chunkSize) {
+                    chunks.add(dataGeneratorService.generateColumns(startIndex, Math.min(chunkSize, rowCount - startIndex), schema));
+                }
                 logger.info("Generated {} rows in {} ms", rowCount, (System.currentTimeMillis() - dataGenStart));
             } finally {
                 dataGenSpan.end();
@@ -99,33 +104,31 @@ public class DataInitializer implements ApplicationRunner {
             // Then populate data in chunks
             Span populateSpan = getTracer().spanBuilder("dataInitializer.populateData")
                     .setAttribute("implementation", tableService.getImplementationType())
-                    .setAttribute("totalRows", data.size())
+                    .setAttribute("totalRows", rowCount)
                     .startSpan();
             try {
                 long populateStart = System.currentTimeMillis();
-                logger.info("Populating {} rows into {} implementation in 50K chunks...", 
-                           data.size(), tableService.getImplementationType());
+                logger.info("Populating {} rows into {} implementation in {}-row chunks...", 
+                           rowCount, tableService.getImplementationType(), chunkSize);
                 
-                int chunkSize = 10000;
-                int totalChunks = (int) Math.ceil((double) data.size() / chunkSize);
+                int totalChunks = chunks.size();
                 
                 for (int chunk = 0; chunk < totalChunks; chunk++) {
+                    ColumnBatch chunkData = chunks.get(chunk);
                     int startIndex = chunk * chunkSize;
-                    int endIndex = Math.min(startIndex + chunkSize, data.size());
-                    
-                    List<Map<String, Object>> chunkData = data.subList(startIndex, endIndex);
+                    int endIndex = startIndex + chunkData.getRowCount();
                     long chunkStart = System.currentTimeMillis();
                     
-                    tableService.populateData(DEFAULT_SESSION_ID, chunkData);
+                    tableService.appendColumns(DEFAULT_SESSION_ID, chunkData);
                     
                     long chunkTime = System.currentTimeMillis() - chunkStart;
                     logger.info("Populated chunk {}/{}: rows {}-{} ({} rows) in {} ms", 
                                chunk + 1, totalChunks, startIndex, endIndex - 1, 
-                               chunkData.size(), chunkTime);
+                               chunkData.getRowCount(), chunkTime);
                 }
                 
                 long totalPopulateTime = System.currentTimeMillis() - populateStart;
-                logger.info("Populated all {} rows in {} ms", data.size(), totalPopulateTime);
+                logger.info("Populated all {} rows in {} ms", rowCount, totalPopulateTime);
             } finally {
                 populateSpan.end();
             }
@@ -135,13 +138,13 @@ public class DataInitializer implements ApplicationRunner {
             long smallSessionStart = System.currentTimeMillis();
             
             // Generate 1000 rows of data using the same schema
-            List<Map<String, Object>> smallData = dataGeneratorService.generateData(1000, schema);
+            ColumnBatch smallData = dataGeneratorService.generateColumns(0, 1000, schema);
             
             // Create schema for small session
             tableService.createSchema(SMALL_SESSION_ID, schema);
             
             // Populate small session data
-            tableService.populateData(SMALL_SESSION_ID, smallData);
+            tableService.appendColumns(SMALL_SESSION_ID, smallData);
             
             long smallSessionTime = System.currentTimeMillis() - smallSessionStart;
             logger.info("Small session created with 1000 rows in {} ms", smallSessionTime);
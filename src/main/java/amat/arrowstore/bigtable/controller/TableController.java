@@ -1,11 +1,19 @@
 package amat.arrowstore.bigtable.controller;
 
 import amat.arrowstore.bigtable.model.*;
+import amat.arrowstore.bigtable.service.ArrowQueryResult;
 import amat.arrowstore.bigtable.service.TableService;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -18,6 +26,9 @@ public class TableController {
     @Autowired
     private TableService tableService;
     
+    @Autowired
+    private ObjectMapper objectMapper;
+    
     @PostMapping("/{sessionId}/data")
     public ResponseEntity<Map<String, String>> uploadData(
             @PathVariable String sessionId,
@@ -42,13 +53,67 @@ public class TableController {
         ));
     }
     
-    @PostMapping("/{sessionId}/query")
-    public ResponseEntity<TableQueryResponse> queryData(
+    @PostMapping(value = "/{sessionId}/data/arrow", consumes = ArrowQueryResult.MEDIA_TYPE)
+    public ResponseEntity<Map<String, String>> uploadArrowData(
+            @PathVariable String sessionId,
+            HttpServletRequest request) {
+        
+        try {
+            int rowCount = tableService.loadArrowStream(sessionId, request.getInputStream());
+            return ResponseEntity.ok(Map.of(
+                "message", "Data uploaded successfully",
+                "implementation", tableService.getImplementationType(),
+                "rowCount", String.valueOf(rowCount)
+            ));
+        } catch (IllegalArgumentException | IOException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "error", "Invalid Arrow stream",
+                "message", String.valueOf(e.getMessage())
+            ));
+        }
+    }
+    
+    @PostMapping(value = "/{sessionId}/query", produces = MediaType.APPLICATION_JSON_VALUE)
+    public void queryData(
+            @PathVariable String sessionId,
+            @Valid @RequestBody TableQueryRequest request,
+            HttpServletResponse response) throws IOException {
+        
+        ArrowQueryResult result = tableService.queryArrow(request);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        if (result == null) {
+            // Unknown session: the empty TableQueryResponse
+            objectMapper.writeValue(response.getOutputStream(), tableService.query(request));
+            return;
+        }
+        
+        // Rows are written from the vectors as they are read, without a TableQueryResponse
+        try (result; JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream(), JsonEncoding.UTF8)) {
+            result.writeJson(generator);
+        }
+    }
+    
+    @PostMapping(value = "/{sessionId}/query/arrow", produces = ArrowQueryResult.MEDIA_TYPE)
+    @CrossOrigin(origins = "*", exposedHeaders = {"X-Total-Rows", "X-Total-Pages", "X-Query-Time-Ms"})
+    public void queryDataArrow(
             @PathVariable String sessionId,
-            @Valid @RequestBody TableQueryRequest request) {
+            @Valid @RequestBody TableQueryRequest request,
+            HttpServletResponse response) throws IOException {
         
-        TableQueryResponse response = tableService.query(request);
-        return ResponseEntity.ok(response);
+        ArrowQueryResult result = tableService.queryArrow(request);
+        if (result == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, "No data found for session: " + sessionId);
+            return;
+        }
+        
+        // Paging metadata travels in headers so the body is a plain Arrow IPC stream
+        try (result) {
+            response.setContentType(ArrowQueryResult.MEDIA_TYPE);
+            response.setHeader("X-Total-Rows", String.valueOf(result.getTotalRows()));
+            response.setHeader("X-Total-Pages", String.valueOf(result.getTotalPages()));
+            response.setHeader("X-Query-Time-Ms", String.valueOf(result.getQueryTimeMs()));
+            result.writeTo(response.getOutputStream());
+        }
     }
     
     @GetMapping("/{sessionId}/schema")
@@ -155,6 +220,28 @@ public class TableController {
         }
     }
     
+    @PostMapping("/{sessionId}/records/update")
+    public ResponseEntity<Map<String, Object>> updateFieldValues(
+            @PathVariable String sessionId,
+            @RequestBody List<FieldUpdate> updates) {
+        
+        try {
+            List<Integer> failed = tableService.updateFieldValues(sessionId, updates);
+            
+            return ResponseEntity.ok(Map.of(
+                "message", "Fields updated",
+                "updatedCount", updates.size() - failed.size(),
+                "failedIndexes", failed,
+                "implementation", tableService.getImplementationType()
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(Map.of(
+                "error", "Update failed",
+                "message", e.getMessage()
+            ));
+        }
+    }
+    
     @PostMapping("/{sessionId}/delete")
     public ResponseEntity<Map<String, Object>> deleteByQuery(
             @PathVariable String sessionId,
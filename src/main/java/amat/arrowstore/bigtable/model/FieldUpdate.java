@@ -0,0 +1,24 @@
+package amat.arrowstore.bigtable.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class FieldUpdate {
+    private final String recordId;
+    private final String field;
+    private final Object value;
+
+    @JsonCreator
+    public FieldUpdate(
+            @JsonProperty("recordId") String recordId,
+            @JsonProperty("field") String field,
+            @JsonProperty("value") Object value) {
+        this.recordId = recordId;
+        this.field = field;
+        this.value = value;
+    }
+
+    public String getRecordId() { return recordId; }
+    public String getField() { return field; }
+    public Object getValue() { return value; }
+}
\ No newline at end of file
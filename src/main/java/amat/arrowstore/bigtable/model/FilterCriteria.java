@@ -9,21 +9,36 @@ public class FilterCriteria {
     private final FilterOperation operation;
     private final List<Object> values;
     private final LogicalOperator logicalOperator;
+    private final List<FilterCriteria> filters;
 
+    public FilterCriteria(
+            String column,
+            FilterOperation operation,
+            List<Object> values,
+            LogicalOperator logicalOperator) {
+        this(column, operation, values, logicalOperator, null);
+    }
+
+    // logicalOperator joins this filter to the ones before it, AND binding tighter than OR;
+    // a filter with nested filters is a parenthesized group and has no column of its own
     @JsonCreator
     public FilterCriteria(
             @JsonProperty("column") String column,
             @JsonProperty("operation") FilterOperation operation,
             @JsonProperty("values") List<Object> values,
-            @JsonProperty("logicalOperator") LogicalOperator logicalOperator) {
+            @JsonProperty("logicalOperator") LogicalOperator logicalOperator,
+            @JsonProperty("filters") List<FilterCriteria> filters) {
         this.column = column;
         this.operation = operation;
         this.values = values;
         this.logicalOperator = logicalOperator != null ? logicalOperator : LogicalOperator.AND;
+        this.filters = filters;
     }
 
     public String getColumn() { return column; }
     public FilterOperation getOperation() { return operation; }
     public List<Object> getValues() { return values; }
     public LogicalOperator getLogicalOperator() { return logicalOperator; }
+    public List<FilterCriteria> getFilters() { return filters; }
+    public boolean isGroup() { return filters != null; }
 }
\ No newline at end of file
@@ -17,6 +17,17 @@ public class TableQueryRequest {
     private final int page;
     @Min(1)
     private final int pageSize;
+    private final List<String> columns;
+
+    public TableQueryRequest(
+            String sessionId,
+            List<FilterCriteria> filters,
+            List<SortSpecification> sorts,
+            String searchTerm,
+            Integer page,
+            Integer pageSize) {
+        this(sessionId, filters, sorts, searchTerm, page, pageSize, null);
+    }
 
     @JsonCreator
     public TableQueryRequest(
@@ -25,13 +36,15 @@ public class TableQueryRequest {
             @JsonProperty("sorts") List<SortSpecification> sorts,
             @JsonProperty("searchTerm") String searchTerm,
             @JsonProperty("page") Integer page,
-            @JsonProperty("pageSize") Integer pageSize) {
+            @JsonProperty("pageSize") Integer pageSize,
+            @JsonProperty("columns") List<String> columns) {
         this.sessionId = sessionId;
         this.filters = filters != null ? filters : new ArrayList<>();
         this.sorts = sorts != null ? sorts : new ArrayList<>();
         this.searchTerm = searchTerm;
         this.page = page != null ? page : 0;
         this.pageSize = pageSize != null ? pageSize : 100;
+        this.columns = columns;
     }
 
     public String getSessionId() { return sessionId; }
@@ -40,4 +53,6 @@ public class TableQueryRequest {
     public String getSearchTerm() { return searchTerm; }
     public int getPage() { return page; }
     public int getPageSize() { return pageSize; }
+    // Columns to return, in order; null or empty returns every column
+    public List<String> getColumns() { return columns; }
 }
\ No newline at end of file
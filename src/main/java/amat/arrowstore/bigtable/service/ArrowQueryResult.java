@@ -0,0 +1,177 @@
+package amat.arrowstore.bigtable.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.vector.*;
+import org.apache.arrow.vector.ipc.ArrowStreamWriter;
+import org.apache.arrow.vector.ipc.message.ArrowRecordBatch;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.Schema;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * A query page selected from a session table, written either as an Arrow IPC stream or as
+ * the JSON query response. Both writers read a copy of the page taken while the table's
+ * read lock was held: the IPC writer streams it in record batches of bounded size, sliced
+ * from the copy, the JSON writer emits each cell as a generator token, so no per-row maps
+ * are built. Close the result once it has been written to release the copy.
+ */
+public final class ArrowQueryResult implements AutoCloseable {
+
+    public static final String MEDIA_TYPE = "application/vnd.apache.arrow.stream";
+
+    private final VectorSchemaRoot page;
+    private final long totalRows;
+    private final int totalPages;
+    private final int currentPage;
+    private final int pageSize;
+    private final long queryTimeMs;
+    private final BufferAllocator allocator;
+    private final int batchSize;
+
+    ArrowQueryResult(VectorSchemaRoot page, long totalRows, int totalPages, int currentPage, int pageSize,
+                     long queryTimeMs, BufferAllocator allocator, int batchSize) {
+        this.page = page;
+        this.totalRows = totalRows;
+        this.totalPages = totalPages;
+        this.currentPage = currentPage;
+        this.pageSize = pageSize;
+        this.queryTimeMs = queryTimeMs;
+        this.allocator = allocator;
+        this.batchSize = batchSize;
+    }
+
+    public long getTotalRows() { return totalRows; }
+    public int getTotalPages() { return totalPages; }
+    public int getReturnedRows() { return page.getRowCount(); }
+    public long getQueryTimeMs() { return queryTimeMs; }
+
+    /**
+     * Copies the page rows of the projected columns, in result order and with dictionary codes
+     * decoded, into a root owned by the caller. Must run under the table's read lock.
+     */
+    static VectorSchemaRoot copyPage(List<ChunkedColumn> columns, int[] rows, BufferAllocator allocator) {
+        List<Field> fields = columns.stream().map(ChunkedColumn::getField).collect(Collectors.toList());
+        VectorSchemaRoot page = VectorSchemaRoot.create(new Schema(fields), allocator);
+        try {
+            for (int colIndex = 0; colIndex < columns.size(); colIndex++) {
+                ChunkedColumn source = columns.get(colIndex);
+                FieldVector targetVector = page.getVector(colIndex);
+                targetVector.setInitialCapacity(rows.length);
+                targetVector.allocateNew();
+                for (int i = 0; i < rows.length; i++) {
+                    source.copyValue(rows[i], targetVector, i);
+                }
+            }
+            page.setRowCount(rows.length);
+            return page;
+        } catch (RuntimeException e) {
+            page.close();
+            throw e;
+        }
+    }
+
+    /** Writes the schema of the projected columns, the page rows in result order, and the end-of-stream marker. */
+    public void writeTo(OutputStream out) throws IOException {
+        int rowCount = page.getRowCount();
+        WritableByteChannel channel = Channels.newChannel(out);
+        if (rowCount <= batchSize) {
+            try (ArrowStreamWriter writer = new ArrowStreamWriter(page, null, channel)) {
+                writer.start();
+                if (rowCount > 0) {
+                    writer.writeBatch();
+                }
+                writer.end();
+            }
+            return;
+        }
+
+        // Each record batch is a slice of the page, loaded into the writer's root without copying cells
+        try (VectorSchemaRoot batch = VectorSchemaRoot.create(page.getSchema(), allocator);
+             ArrowStreamWriter writer = new ArrowStreamWriter(batch, null, channel)) {
+            VectorLoader loader = new VectorLoader(batch);
+            writer.start();
+            for (int from = 0; from < rowCount; from += batchSize) {
+                try (VectorSchemaRoot slice = page.slice(from, Math.min(batchSize, rowCount - from));
+                     ArrowRecordBatch recordBatch = new VectorUnloader(slice).getRecordBatch()) {
+                    loader.load(recordBatch);
+                }
+                writer.writeBatch();
+            }
+            writer.end();
+        }
+    }
+
+    /**
+     * Writes the page with the fields of the JSON query response. Column names are encoded
+     * once, and string cells are written from their UTF-8 bytes without decoding them.
+     */
+    public void writeJson(JsonGenerator generator) throws IOException {
+        List<FieldVector> vectors = page.getFieldVectors();
+        SerializedString[] names = new SerializedString[vectors.size()];
+        for (int colIndex = 0; colIndex < names.length; colIndex++) {
+            names[colIndex] = new SerializedString(vectors.get(colIndex).getName());
+        }
+        byte[] scratch = new byte[256];
+
+        generator.writeStartObject();
+        generator.writeFieldName("data");
+        generator.writeStartArray();
+        for (int row = 0; row < page.getRowCount(); row++) {
+            generator.writeStartObject();
+            for (int colIndex = 0; colIndex < names.length; colIndex++) {
+                generator.writeFieldName(names[colIndex]);
+                scratch = writeValue(generator, vectors.get(colIndex), row, scratch);
+            }
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+        generator.writeNumberField("totalElements", totalRows);
+        generator.writeNumberField("totalPages", totalPages);
+        generator.writeNumberField("currentPage", currentPage);
+        generator.writeNumberField("pageSize", pageSize);
+        generator.writeNumberField("queryTimeMs", queryTimeMs);
+        generator.writeStringField("implementation", "Arrow");
+        generator.writeEndObject();
+    }
+
+    // Writes one cell; returns the scratch buffer, grown when a string did not fit
+    private static byte[] writeValue(JsonGenerator generator, FieldVector vector, int row, byte[] scratch) throws IOException {
+        if (vector.isNull(row)) {
+            generator.writeNull();
+        } else if (vector instanceof IntVector) {
+            generator.writeNumber(vector.getDataBuffer().getInt((long) row * IntVector.TYPE_WIDTH));
+        } else if (vector instanceof Float8Vector) {
+            generator.writeNumber(vector.getDataBuffer().getDouble((long) row * Float8Vector.TYPE_WIDTH));
+        } else if (vector instanceof BitVector) {
+            generator.writeBoolean(BitVectorHelper.get(vector.getDataBuffer(), row) == 1);
+        } else if (vector instanceof VarCharVector) {
+            ArrowBuf offsets = vector.getOffsetBuffer();
+            int start = offsets.getInt((long) row * BaseVariableWidthVector.OFFSET_WIDTH);
+            int length = offsets.getInt((long) (row + 1) * BaseVariableWidthVector.OFFSET_WIDTH) - start;
+            if (scratch.length < length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            vector.getDataBuffer().getBytes(start, scratch, 0, length);
+            generator.writeUTF8String(scratch, 0, length);
+        } else if (vector instanceof VarBinaryVector) {
+            generator.writeBinary(((VarBinaryVector) vector).get(row));
+        } else {
+            generator.writeObject(VectorValues.extract(vector, row));
+        }
+        return scratch;
+    }
+
+    @Override
+    public void close() {
+        page.close();
+    }
+}
@@ -4,18 +4,33 @@ import amat.arrowstore.bigtable.model.*;
 import io.opentelemetry.api.OpenTelemetry;
 import io.opentelemetry.api.trace.Span;
 import io.opentelemetry.api.trace.Tracer;
+import org.apache.arrow.memory.ArrowBuf;
 import org.apache.arrow.memory.RootAllocator;
 import org.apache.arrow.vector.*;
 import org.apache.arrow.vector.ipc.ArrowFileWriter;
+import org.apache.arrow.vector.ipc.ArrowStreamReader;
+import org.apache.arrow.vector.ipc.message.ArrowRecordBatch;
+import org.apache.arrow.vector.types.FloatingPointPrecision;
+import org.apache.arrow.vector.types.pojo.ArrowType;
 import org.apache.arrow.vector.types.pojo.Field;
 import org.apache.arrow.vector.types.pojo.FieldType;
 import org.apache.arrow.vector.types.pojo.Schema;
+import org.apache.arrow.vector.util.VectorAppender;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.function.IntConsumer;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @Service
 public class ArrowTableService implements TableService {
@@ -24,14 +39,52 @@ public class ArrowTableService implements TableService {
     private OpenTelemetry openTelemetry;
     
     private Tracer tracer;
+    private ForkJoinPool queryPool;
+    private ExecutorService compactor;
     private final RootAllocator allocator = new RootAllocator(Long.MAX_VALUE);
-    private final Map<String, VectorSchemaRoot> sessionTables = new ConcurrentHashMap<>();
+    private final Map<String, ChunkedTable> sessionTables = new ConcurrentHashMap<>();
     private final Map<String, List<ColumnDefinition>> sessionSchemas = new ConcurrentHashMap<>();
     private final Map<String, Map<String, Object>> performanceMetrics = new ConcurrentHashMap<>();
     private final Map<String, List<Long>> queryTimes = new ConcurrentHashMap<>();
     private final Map<String, Integer> sessionRowCounts = new ConcurrentHashMap<>();
+    private final Map<String, SelectionVectorPool> selectionPools = new ConcurrentHashMap<>();
+    private final Map<String, SortPermutationCache> sortCaches = new ConcurrentHashMap<>();
+    private final Map<String, QueryResultCache> resultCaches = new ConcurrentHashMap<>();
+    private final Map<String, TrigramIndex> searchIndexes = new ConcurrentHashMap<>();
+    private final Map<String, ColumnIndexes> sessionColumnIndexes = new ConcurrentHashMap<>();
+    private final Map<String, CapacityPlanner> capacityPlanners = new ConcurrentHashMap<>();
+    private final Map<String, Tombstones> sessionTombstones = new ConcurrentHashMap<>();
+    private final Map<String, PrimaryKeyIndex> primaryKeyIndexes = new ConcurrentHashMap<>();
+    private final Map<String, Integer> sessionCompactions = new ConcurrentHashMap<>();
+    private final Set<String> pendingCompactions = ConcurrentHashMap.newKeySet();
     
-    private static final int CHUNK_SIZE = 10000; // 50K rows per chunk
+    @Value("${bigtable.query.sort-cache-max-mb:64}")
+    private long sortCacheMaxMb = 64;
+    @Value("${bigtable.query.result-cache-max-mb:64}")
+    private long resultCacheMaxMb = 64;
+    @Value("${bigtable.search.trigram-index:true}")
+    private boolean trigramIndexEnabled = true;
+    @Value("${bigtable.storage.dictionary-max-cardinality:1024}")
+    private int dictionaryMaxCardinality = 1024;
+    @Value("${bigtable.storage.compaction-threshold:0.2}")
+    private double compactionThreshold = 0.2;
+    @Value("${bigtable.query.zone-maps:true}")
+    private boolean zoneMapsEnabled = true;
+    @Value("${bigtable.query.sorted-indexes:false}")
+    private boolean sortedIndexesEnabled = false;
+    @Value("${bigtable.query.bitmap-index-max-cardinality:64}")
+    private int bitmapIndexMaxCardinality = 64;
+    @Value("${bigtable.query.parallelism:0}")
+    private int queryParallelism = 0;
+    @Value("${bigtable.query.parallel-min-rows:50000}")
+    private int parallelMinRows = 50000;
+    
+    private static final int CHUNK_SIZE = 10000; // Rows per record batch of a session table
+    private static final int TOP_K_MAX_ROWS = 10000; // Largest (page + 1) * pageSize served by a partial sort
+    private static final int TOP_K_MIN_RATIO = 4; // Partial sort only when it keeps at most 1/4 of the matches
+    private static final int PARALLEL_EXTRACT_MIN_ROWS = 1000; // Smaller pages are extracted on the request thread
+    private static final String ID_COLUMN = "id"; // Records are addressed by their value in this column
+    private static final ThreadLocal<FilterScratch> FILTER_SCRATCH = ThreadLocal.withInitial(FilterScratch::new);
     
     private Tracer getTracer() {
         if (tracer == null) {
@@ -40,6 +93,39 @@ public class ArrowTableService implements TableService {
         return tracer;
     }
     
+    private synchronized ForkJoinPool getQueryPool() {
+        if (queryPool == null) {
+            int threads = queryParallelism > 0 ? queryParallelism : Runtime.getRuntime().availableProcessors();
+            queryPool = new ForkJoinPool(threads, pool -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("arrow-query-" + thread.getPoolIndex());
+                return thread;
+            }, null, false);
+        }
+        return queryPool;
+    }
+    
+    private synchronized ExecutorService getCompactor() {
+        if (compactor == null) {
+            compactor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "arrow-compactor");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return compactor;
+    }
+    
+    // Small sessions stay on the request thread, where task overhead would outweigh the gain
+    private boolean runsInParallel(int rowCount) {
+        return rowCount >= parallelMinRows && getQueryPool().getParallelism() > 1;
+    }
+    
+    // Runs task(0) .. task(taskCount - 1) on the query pool and waits for all of them
+    private void forEachTask(int taskCount, IntConsumer task) {
+        getQueryPool().submit(() -> IntStream.range(0, taskCount).parallel().forEach(task)).join();
+    }
+    
     @Override
     public void createSchema(String sessionId, List<ColumnDefinition> schema) {
         Span span = getTracer().spanBuilder("arrow.createSchema")
@@ -53,34 +139,32 @@ public class ArrowTableService implements TableService {
             sessionSchemas.put(sessionId, schema);
             sessionRowCounts.put(sessionId, 0);
             
-            Schema arrowSchema = createArrowSchema(schema);
-            VectorSchemaRoot root = VectorSchemaRoot.create(arrowSchema, allocator);
-            
-            // Allocate initial chunk capacity
-            for (FieldVector vector : root.getFieldVectors()) {
-                if (vector instanceof BaseVariableWidthVector) {
-                    // Find the corresponding column definition to get the width
-                    String fieldName = vector.getField().getName();
-                    ColumnDefinition colDef = schema.stream()
-                        .filter(col -> col.getName().equals(fieldName))
-                        .findFirst()
-                        .orElse(null);
-                    
-                    int width = (colDef != null && colDef.hasWidth()) ? colDef.getWidth() : 80;
-                    ((BaseVariableWidthVector) vector).allocateNew(CHUNK_SIZE * width, CHUNK_SIZE);
-                } else {
-                    vector.allocateNew();
-                    vector.setValueCount(CHUNK_SIZE);
-                }
-            }
+            ChunkedTable table = new ChunkedTable(createArrowSchema(schema), allocator, CHUNK_SIZE);
             
-            root.setRowCount(0); // Schema created but no data yet
-            sessionTables.put(sessionId, root);
+            // Allocate the first batch; schema created but no data yet
+            CapacityPlanner planner = new CapacityPlanner(schema);
+            capacityPlanners.put(sessionId, planner);
+            allocateBatch(table.tail(), planner);
+            sessionTables.put(sessionId, table);
         } finally {
             span.end();
         }
     }
     
+    // Allocates an empty batch for CHUNK_SIZE rows, sizing variable-width data from the width hints
+    private void allocateBatch(VectorSchemaRoot batch, CapacityPlanner planner) {
+        for (int colIndex = 0; colIndex < batch.getFieldVectors().size(); colIndex++) {
+            FieldVector vector = batch.getVector(colIndex);
+            if (vector instanceof BaseVariableWidthVector) {
+                ((BaseVariableWidthVector) vector).allocateNew((long) CHUNK_SIZE * planner.widthHint(colIndex), CHUNK_SIZE);
+            } else {
+                vector.setInitialCapacity(CHUNK_SIZE);
+                vector.allocateNew();
+            }
+        }
+        batch.setRowCount(0);
+    }
+    
     @Override
     public void populateData(String sessionId, List<Map<String, Object>> data) {
         Span span = getTracer().spanBuilder("arrow.populateData")
@@ -89,11 +173,30 @@ public class ArrowTableService implements TableService {
                 .setAttribute("implementation", "Arrow")
                 .startSpan();
         
+        try {
+            List<ColumnDefinition> schema = sessionSchemas.get(sessionId);
+            if (schema == null) {
+                throw new RuntimeException("Schema must be created before populating data for session: " + sessionId);
+            }
+            appendColumns(sessionId, ColumnBatch.fromRows(schema, data));
+        } finally {
+            span.end();
+        }
+    }
+    
+    @Override
+    public void appendColumns(String sessionId, ColumnBatch batch) {
+        Span span = getTracer().spanBuilder("arrow.appendColumns")
+                .setAttribute("sessionId", sessionId)
+                .setAttribute("rowCount", batch.getRowCount())
+                .setAttribute("implementation", "Arrow")
+                .startSpan();
+        
         try {
             long startTime = System.currentTimeMillis();
             
-            VectorSchemaRoot root = sessionTables.get(sessionId);
-            if (root == null) {
+            ChunkedTable table = sessionTables.get(sessionId);
+            if (table == null) {
                 throw new RuntimeException("Schema must be created before populating data for session: " + sessionId);
             }
             
@@ -102,70 +205,54 @@ public class ArrowTableService implements TableService {
                 throw new RuntimeException("Schema definition not found for session: " + sessionId);
             }
             
-            if (data.isEmpty()) {
+            if (batch.getRowCount() == 0) {
                 return;
             }
             
-            int currentRowCount = sessionRowCounts.getOrDefault(sessionId, 0);
-            int newRowCount = currentRowCount + data.size();
-            
-            // Check if we need to grow vectors
-            Span growSpan = getTracer().spanBuilder("arrow.growVectors").startSpan();
-            try {
-                for (FieldVector vector : root.getFieldVectors()) {
-                    while (newRowCount > vector.getValueCapacity()) {
-                        // Calculate new capacity in chunks
-                        int newCapacity = ((newRowCount / CHUNK_SIZE) + 1) * CHUNK_SIZE;
-                        
-                        // Use Arrow's reallocation method which preserves data
-                        if (vector instanceof BaseVariableWidthVector) {
-                            BaseVariableWidthVector varVector = (BaseVariableWidthVector) vector;
-                            // Use reAlloc() which preserves existing data and grows capacity
-                            varVector.reAlloc();
-                        } else {
-                            vector.reAlloc();
-                            if (vector.getValueCapacity() < newCapacity) {
-                                vector.setValueCount(newCapacity);
-                                System.out.println(newCapacity);
-                            }
-                        }
-                    }
-                }
-            } finally {
-                growSpan.end();
+            for (ColumnDefinition colDef : schema) {
+                checkColumnKind(colDef, batch.column(colDef.getName()));
             }
             
-            // Append new data starting from currentRowCount
-            Span appendSpan = getTracer().spanBuilder("arrow.appendData")
-                    .setAttribute("startRowIndex", currentRowCount)
-                    .setAttribute("vectorOperations", data.size() * schema.size())
-                    .startSpan();
+            // Appends, deletes and the compaction of a session exclude each other and its queries
+            int currentRowCount;
+            int newRowCount;
+            table.lock().writeLock().lock();
             try {
-                for (int dataRowIndex = 0; dataRowIndex < data.size(); dataRowIndex++) {
-                    Map<String, Object> row = data.get(dataRowIndex);
-                    int vectorRowIndex = currentRowCount + dataRowIndex;
-                    
-                    for (int colIndex = 0; colIndex < schema.size(); colIndex++) {
-                        ColumnDefinition colDef = schema.get(colIndex);
-                        String columnName = colDef.getName();
-                        Object value = row.get(columnName);
-                        
-                        FieldVector vector = root.getVector(colIndex);
-                        setVectorValue(vector, vectorRowIndex, value, colDef.getType());
+                if (sessionTables.get(sessionId) != table) {
+                    throw new RuntimeException("Schema must be created before populating data for session: " + sessionId);
+                }
+                currentRowCount = sessionRowCounts.getOrDefault(sessionId, 0);
+                newRowCount = currentRowCount + batch.getRowCount();
+                
+                // Fill the tail batch up to CHUNK_SIZE rows, then seal it and start the next one;
+                // sealed batches are never copied again
+                CapacityPlanner planner = capacityPlanners.computeIfAbsent(sessionId, k -> new CapacityPlanner(schema));
+                int[][] codes = encodeAppendedValues(table, schema, batch);
+                for (int offset = 0; offset < batch.getRowCount(); ) {
+                    VectorSchemaRoot tail = table.tail();
+                    if (tail.getRowCount() >= CHUNK_SIZE) {
+                        tail = table.startBatch();
+                        allocateBatch(tail, planner);
                     }
+                    int tailRowCount = tail.getRowCount();
+                    int count = Math.min(batch.getRowCount() - offset, CHUNK_SIZE - tailRowCount);
+                    appendToBatch(tail, schema, batch, offset, count, planner, codes);
+                    table.setTailRowCount(tailRowCount + count);
+                    offset += count;
                 }
+                
+                // Update row counts
+                sessionRowCounts.put(sessionId, newRowCount);
+                onRowsAppended(sessionId, table, schema, currentRowCount, newRowCount);
             } finally {
-                appendSpan.end();
+                table.lock().writeLock().unlock();
             }
             
-            // Update row counts
-            sessionRowCounts.put(sessionId, newRowCount);
-            root.setRowCount(newRowCount);
-            
             long loadTime = System.currentTimeMillis() - startTime;
             span.setAttribute("populateTimeMs", loadTime);
             span.setAttribute("currentRowCount", currentRowCount);
             span.setAttribute("newRowCount", newRowCount);
+            span.setAttribute("batchCount", table.batchCount());
             
             // Update performance metrics with cumulative data
             performanceMetrics.put(sessionId, Map.of(
@@ -178,23 +265,322 @@ public class ArrowTableService implements TableService {
         }
     }
     
+    // Appends rows [offset, offset + count) of the column batch behind the rows of a table batch;
+    // encoded columns take their rows from codes
+    private void appendToBatch(VectorSchemaRoot target, List<ColumnDefinition> schema, ColumnBatch batch,
+                               int offset, int count, CapacityPlanner planner, int[][] codes) {
+        int start = target.getRowCount();
+        
+        // Grow the vectors up front so that no fill task reallocates a buffer
+        Span growSpan = getTracer().spanBuilder("arrow.growVectors").startSpan();
+        try {
+            long copiedBefore = planner.copiedBytes();
+            for (int colIndex = 0; colIndex < schema.size(); colIndex++) {
+                ColumnBatch.Column column = batch.column(schema.get(colIndex).getName());
+                FieldVector vector = target.getVector(colIndex);
+                long appendBytes = column != null && vector instanceof BaseVariableWidthVector
+                    ? column.byteLength(offset, offset + count) : 0;
+                planner.reserve(vector, start, start + count, appendBytes);
+            }
+            growSpan.setAttribute("copiedBytes", planner.copiedBytes() - copiedBefore);
+        } finally {
+            growSpan.end();
+        }
+        
+        // Each vector is filled by one task
+        long cellCount = (long) count * schema.size();
+        boolean parallel = schema.size() > 1 && cellCount >= parallelMinRows && getQueryPool().getParallelism() > 1;
+        Span appendSpan = getTracer().spanBuilder("arrow.appendData")
+                .setAttribute("startRowIndex", start)
+                .setAttribute("vectorOperations", cellCount)
+                .setAttribute("parallel", parallel)
+                .startSpan();
+        try {
+            IntConsumer fillColumn = colIndex -> {
+                ColumnDefinition colDef = schema.get(colIndex);
+                appendColumn(target.getVector(colIndex), colDef, batch.column(colDef.getName()), codes[colIndex],
+                             offset, start, count);
+            };
+            if (parallel) {
+                forEachTask(schema.size(), fillColumn);
+            } else {
+                for (int colIndex = 0; colIndex < schema.size(); colIndex++) {
+                    fillColumn.accept(colIndex);
+                }
+            }
+        } finally {
+            appendSpan.end();
+        }
+    }
+    
+    // Writes batch rows [offset, offset + count) into rows [start, start + count) of a vector with enough value capacity
+    private void appendColumn(FieldVector vector, ColumnDefinition colDef, ColumnBatch.Column column, int[] codes,
+                              int offset, int start, int count) {
+        if (column == null) {
+            for (int i = 0; i < count; i++) {
+                vector.setNull(start + i);
+            }
+            return;
+        }
+        if (codes != null) {
+            IntVector codeVector = (IntVector) vector;
+            for (int i = 0; i < count; i++) {
+                if (column.isNull(offset + i)) {
+                    codeVector.setNull(start + i);
+                } else {
+                    codeVector.set(start + i, codes[offset + i]);
+                }
+            }
+            return;
+        }
+        
+        switch (colDef.getType()) {
+            case INTEGER: {
+                IntVector intVector = (IntVector) vector;
+                for (int i = 0; i < count; i++) {
+                    if (column.isNull(offset + i)) {
+                        intVector.setNull(start + i);
+                    } else {
+                        intVector.set(start + i, column.ints[offset + i]);
+                    }
+                }
+                break;
+            }
+            case DOUBLE: {
+                Float8Vector doubleVector = (Float8Vector) vector;
+                for (int i = 0; i < count; i++) {
+                    if (column.isNull(offset + i)) {
+                        doubleVector.setNull(start + i);
+                    } else {
+                        doubleVector.set(start + i, column.doubles[offset + i]);
+                    }
+                }
+                break;
+            }
+            case BOOLEAN: {
+                BitVector bitVector = (BitVector) vector;
+                for (int i = 0; i < count; i++) {
+                    if (column.isNull(offset + i)) {
+                        bitVector.setNull(start + i);
+                    } else {
+                        bitVector.set(start + i, column.booleans.get(offset + i) ? 1 : 0);
+                    }
+                }
+                break;
+            }
+            default:
+                appendVariableWidth((BaseVariableWidthVector) vector, column, offset, start, count);
+        }
+    }
+    
+    // Rejects a batch column whose arrays do not match the column type, before anything is written
+    private static void checkColumnKind(ColumnDefinition colDef, ColumnBatch.Column column) {
+        if (column == null) {
+            return;
+        }
+        boolean matches;
+        switch (colDef.getType()) {
+            case INTEGER:
+                matches = column.kind == ColumnBatch.Kind.INTS;
+                break;
+            case DOUBLE:
+                matches = column.kind == ColumnBatch.Kind.DOUBLES;
+                break;
+            case BOOLEAN:
+                matches = column.kind == ColumnBatch.Kind.BOOLEANS;
+                break;
+            default:
+                matches = column.kind == ColumnBatch.Kind.OFFSETS || column.kind == ColumnBatch.Kind.ARRAYS;
+        }
+        if (!matches) {
+            throw new IllegalArgumentException("Column '" + colDef.getName() + "' of type " + colDef.getType()
+                + " cannot be appended from " + column.kind);
+        }
+    }
+    
+    // Copies the values' bytes behind the last row and writes their offsets and validity directly;
+    // the buffers were sized by the capacity planner
+    private void appendVariableWidth(BaseVariableWidthVector vector, ColumnBatch.Column column,
+                                     int offset, int start, int count) {
+        ArrowBuf offsets = vector.getOffsetBuffer();
+        long base = offsets.getInt((long) start * BaseVariableWidthVector.OFFSET_WIDTH);
+        ArrowBuf data = vector.getDataBuffer();
+        ArrowBuf validity = vector.getValidityBuffer();
+        if (column.kind == ColumnBatch.Kind.OFFSETS) {
+            int first = column.offsets[offset];
+            data.setBytes(base, column.data, first, column.offsets[offset + count] - first);
+            for (int i = 0; i < count; i++) {
+                offsets.setInt((long) (start + i + 1) * BaseVariableWidthVector.OFFSET_WIDTH,
+                               (int) (base + column.offsets[offset + i + 1] - first));
+            }
+        } else {
+            long end = base;
+            for (int i = 0; i < count; i++) {
+                byte[] value = column.arrays[offset + i];
+                if (value != null) {
+                    data.setBytes(end, value);
+                    end += value.length;
+                }
+                offsets.setInt((long) (start + i + 1) * BaseVariableWidthVector.OFFSET_WIDTH, (int) end);
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            if (column.isNull(offset + i)) {
+                BitVectorHelper.unsetBit(validity, start + i);
+            } else {
+                BitVectorHelper.setBit(validity, start + i);
+            }
+        }
+        vector.setLastSet(start + count - 1);
+    }
+    
+    // Brings the per-session caches and indexes up to date with rows [oldRowCount, newRowCount)
+    private void onRowsAppended(String sessionId, ChunkedTable table, List<ColumnDefinition> schema,
+                                int oldRowCount, int newRowCount) {
+        invalidateQueryResults(sessionId);
+        encodeDictionaryColumns(table, schema, oldRowCount, newRowCount);
+        updateZoneMaps(sessionId, table, schema, oldRowCount, newRowCount);
+        updateSortedIndexes(sessionId, table, schema, oldRowCount, newRowCount);
+        updateBitmapIndexes(sessionId, table, schema, oldRowCount, newRowCount);
+        patchSortPermutationsForAppend(sessionId, table, oldRowCount, newRowCount);
+        indexSearchableRows(sessionId, table, schema, oldRowCount, newRowCount);
+        indexPrimaryKeys(sessionId, table, oldRowCount, newRowCount);
+    }
+    
     @Override
-    public TableQueryResponse query(TableQueryRequest request) {
-        Span span = getTracer().spanBuilder("arrow.query")
-                .setAttribute("sessionId", request.getSessionId())
-                .setAttribute("page", request.getPage())
-                .setAttribute("pageSize", request.getPageSize())
-                .setAttribute("hasSearch", request.getSearchTerm() != null && !request.getSearchTerm().trim().isEmpty())
-                .setAttribute("filterCount", request.getFilters() != null ? request.getFilters().size() : 0)
-                .setAttribute("sortCount", request.getSorts() != null ? request.getSorts().size() : 0)
+    public int loadArrowStream(String sessionId, InputStream in) throws IOException {
+        Span span = getTracer().spanBuilder("arrow.loadArrowStream")
+                .setAttribute("sessionId", sessionId)
                 .setAttribute("implementation", "Arrow")
                 .startSpan();
         
+        try (ArrowStreamReader reader = new ArrowStreamReader(in, allocator)) {
+            long startTime = System.currentTimeMillis();
+            VectorSchemaRoot batch = reader.getVectorSchemaRoot();
+            List<ColumnDefinition> schema = new ArrayList<>();
+            for (Field field : batch.getSchema().getFields()) {
+                schema.add(toColumnDefinition(field));
+            }
+            
+            // The table is filled before the session is touched, so a bad stream leaves it intact
+            ChunkedTable table = new ChunkedTable(createArrowSchema(schema), allocator, CHUNK_SIZE);
+            int rowCount = 0;
+            int batchCount = 0;
+            try {
+                while (reader.loadNextBatch()) {
+                    if (batch.getRowCount() == 0) {
+                        continue;
+                    }
+                    // Incoming batches are cut to CHUNK_SIZE rows; a slice starting a batch hands its
+                    // buffers over to the table, one continuing the tail is appended to it
+                    for (int offset = 0; offset < batch.getRowCount(); ) {
+                        VectorSchemaRoot tail = table.tail();
+                        if (tail.getRowCount() >= CHUNK_SIZE) {
+                            tail = table.startBatch();
+                        }
+                        int tailRowCount = tail.getRowCount();
+                        int count = Math.min(batch.getRowCount() - offset, CHUNK_SIZE - tailRowCount);
+                        VectorSchemaRoot slice = slice(batch, table.getSchema(), offset, count);
+                        if (tailRowCount == 0) {
+                            table.replaceTail(slice);
+                        } else {
+                            for (int colIndex = 0; colIndex < schema.size(); colIndex++) {
+                                slice.getVector(colIndex).accept(new VectorAppender(tail.getVector(colIndex)), null);
+                            }
+                            slice.close();
+                            table.setTailRowCount(tailRowCount + count);
+                        }
+                        offset += count;
+                    }
+                    rowCount += batch.getRowCount();
+                    batchCount++;
+                }
+            } catch (IOException | RuntimeException e) {
+                table.close();
+                throw e;
+            }
+            
+            // The stream replaces the session, like a JSON upload with its schema; queries that
+            // find the new table wait on its lock until the indexes are built
+            clearSession(sessionId);
+            table.lock().writeLock().lock();
+            try {
+                sessionSchemas.put(sessionId, schema);
+                sessionRowCounts.put(sessionId, rowCount);
+                sessionTables.put(sessionId, table);
+                onRowsAppended(sessionId, table, schema, 0, rowCount);
+            } finally {
+                table.lock().writeLock().unlock();
+            }
+            
+            long loadTime = System.currentTimeMillis() - startTime;
+            span.setAttribute("populateTimeMs", loadTime);
+            span.setAttribute("batchCount", batchCount);
+            span.setAttribute("newRowCount", rowCount);
+            performanceMetrics.put(sessionId, Map.of(
+                "loadTimeMs", loadTime,
+                "rowCount", rowCount,
+                "implementation", "Arrow"
+            ));
+            return rowCount;
+        } finally {
+            span.end();
+        }
+    }
+    
+    // Rows [from, from + count) of a batch as a new batch of the schema, taking over their buffers
+    private VectorSchemaRoot slice(VectorSchemaRoot batch, Schema schema, int from, int count) {
+        List<FieldVector> vectors = new ArrayList<>(schema.getFields().size());
+        for (int colIndex = 0; colIndex < schema.getFields().size(); colIndex++) {
+            FieldVector target = schema.getFields().get(colIndex).createVector(allocator);
+            batch.getVector(colIndex).makeTransferPair(target).splitAndTransfer(from, count);
+            vectors.add(target);
+        }
+        return new VectorSchemaRoot(schema.getFields(), vectors, count);
+    }
+    
+    // Column definition of an uploaded field; flags and width may be given as field metadata
+    private ColumnDefinition toColumnDefinition(Field field) {
+        ArrowType type = field.getType();
+        DataType dataType;
+        if (field.getDictionary() != null) {
+            throw new IllegalArgumentException("Dictionary-encoded columns are not supported: " + field.getName());
+        } else if (type instanceof ArrowType.Int && ((ArrowType.Int) type).getBitWidth() == 32 && ((ArrowType.Int) type).getIsSigned()) {
+            dataType = DataType.INTEGER;
+        } else if (type instanceof ArrowType.FloatingPoint
+                && ((ArrowType.FloatingPoint) type).getPrecision() == FloatingPointPrecision.DOUBLE) {
+            dataType = DataType.DOUBLE;
+        } else if (type instanceof ArrowType.Bool) {
+            dataType = DataType.BOOLEAN;
+        } else if (type instanceof ArrowType.Utf8) {
+            dataType = DataType.STRING;
+        } else if (type instanceof ArrowType.Binary) {
+            dataType = DataType.BINARY;
+        } else {
+            throw new IllegalArgumentException("Unsupported Arrow type " + type + " for column: " + field.getName());
+        }
+        
+        Map<String, String> metadata = field.getMetadata() != null ? field.getMetadata() : Map.of();
+        String width = metadata.get("width");
+        return new ColumnDefinition(
+            field.getName(),
+            dataType,
+            Boolean.parseBoolean(metadata.getOrDefault("sortable", "true")),
+            Boolean.parseBoolean(metadata.getOrDefault("filterable", "true")),
+            Boolean.parseBoolean(metadata.getOrDefault("searchable", String.valueOf(dataType == DataType.STRING))),
+            width != null ? Integer.valueOf(width) : null
+        );
+    }
+    
+    @Override
+    public TableQueryResponse query(TableQueryRequest request) {
+        Span span = startQuerySpan("arrow.query", request);
+        
         try {
             long startTime = System.currentTimeMillis();
             
-            VectorSchemaRoot root = sessionTables.get(request.getSessionId());
-            if (root == null) {
+            ChunkedTable table = sessionTables.get(request.getSessionId());
+            if (table == null) {
                 span.setAttribute("dataFound", false);
                 return new TableQueryResponse(
                     Collections.emptyList(), 0L, 0, 0, 0, 0L, "Arrow"
@@ -202,51 +588,39 @@ public class ArrowTableService implements TableService {
             }
             
             span.setAttribute("dataFound", true);
-            span.setAttribute("vectorRowCount", root.getRowCount());
+            span.setAttribute("vectorRowCount", table.getRowCount());
+            span.setAttribute("batchCount", table.batchCount());
+            span.setAttribute("parallel", runsInParallel(table.getRowCount()));
             
-            // Generate row indices that match filters/search (Arrow-native filtering)
-            Span filterSpan = getTracer().spanBuilder("arrow.generateMatchingIndices").startSpan();
-            List<Integer> matchingIndices;
+            PageRows page;
+            List<Map<String, Object>> pageData;
+            table.lock().readLock().lock();
             try {
-                matchingIndices = generateMatchingIndices(root, request);
-            } finally {
-                filterSpan.end();
-            }
-            
-            // Apply sorting if provided (sort indices, not data)
-            if (request.getSorts() != null && !request.getSorts().isEmpty()) {
-                Span sortSpan = getTracer().spanBuilder("arrow.sortIndices")
-                        .setAttribute("sortCount", request.getSorts().size())
-                        .startSpan();
+                // Cleared or replaced while waiting for the lock: its batches may be closed
+                if (sessionTables.get(request.getSessionId()) != table) {
+                    span.setAttribute("dataFound", false);
+                    return new TableQueryResponse(
+                        Collections.emptyList(), 0L, 0, 0, 0, 0L, "Arrow"
+                    );
+                }
+                page = selectPage(table, request, span);
+                
+                // Extract only the data for the paginated indices
+                Span extractSpan = getTracer().spanBuilder("arrow.extractPageData").startSpan();
                 try {
-                    matchingIndices = sortIndices(root, matchingIndices, request.getSorts());
+                    pageData = extractDataForIndices(table, projectColumns(table, request.getColumns()),
+                        page.rows, 0, page.rows.length);
                 } finally {
-                    sortSpan.end();
+                    extractSpan.end();
                 }
-            }
-            
-            // Apply pagination to indices
-            Span paginationSpan = getTracer().spanBuilder("arrow.applyPagination").startSpan();
-            int totalRows = matchingIndices.size();
-            int totalPages = (int) Math.ceil((double) totalRows / request.getPageSize());
-            int startIndex = request.getPage() * request.getPageSize();
-            int endIndex = Math.min(startIndex + request.getPageSize(), totalRows);
-            
-            List<Integer> pageIndices = matchingIndices.subList(startIndex, endIndex);
-            paginationSpan.end();
-            
-            // Extract only the data for the paginated indices
-            Span extractSpan = getTracer().spanBuilder("arrow.extractPageData").startSpan();
-            List<Map<String, Object>> pageData;
-            try {
-                pageData = extractDataForIndices(root, pageIndices);
             } finally {
-                extractSpan.end();
+                table.lock().readLock().unlock();
             }
+            int totalPages = (int) Math.ceil((double) page.totalRows / request.getPageSize());
             
             long queryTime = System.currentTimeMillis() - startTime;
             span.setAttribute("queryTimeMs", queryTime);
-            span.setAttribute("totalRows", totalRows);
+            span.setAttribute("totalRows", page.totalRows);
             span.setAttribute("returnedRows", pageData.size());
             
             // Track query time for statistics
@@ -254,7 +628,7 @@ public class ArrowTableService implements TableService {
             
             return new TableQueryResponse(
                 pageData,
-                (long) totalRows,
+                (long) page.totalRows,
                 totalPages,
                 request.getPage(),
                 request.getPageSize(),
@@ -266,6 +640,137 @@ public class ArrowTableService implements TableService {
         }
     }
     
+    @Override
+    public ArrowQueryResult queryArrow(TableQueryRequest request) {
+        Span span = startQuerySpan("arrow.queryArrow", request);
+        
+        try {
+            long startTime = System.currentTimeMillis();
+            
+            ChunkedTable table = sessionTables.get(request.getSessionId());
+            if (table == null) {
+                span.setAttribute("dataFound", false);
+                return null;
+            }
+            
+            span.setAttribute("dataFound", true);
+            span.setAttribute("vectorRowCount", table.getRowCount());
+            
+            // The page is copied out under the lock; compaction and updates may replace the batches once it is released
+            PageRows page;
+            VectorSchemaRoot pageRoot;
+            table.lock().readLock().lock();
+            try {
+                if (sessionTables.get(request.getSessionId()) != table) {
+                    span.setAttribute("dataFound", false);
+                    return null;
+                }
+                page = selectPage(table, request, span);
+                pageRoot = ArrowQueryResult.copyPage(projectColumns(table, request.getColumns()), page.rows, allocator);
+            } finally {
+                table.lock().readLock().unlock();
+            }
+            int totalPages = (int) Math.ceil((double) page.totalRows / request.getPageSize());
+            
+            long queryTime = System.currentTimeMillis() - startTime;
+            span.setAttribute("queryTimeMs", queryTime);
+            span.setAttribute("totalRows", page.totalRows);
+            span.setAttribute("returnedRows", page.rows.length);
+            queryTimes.computeIfAbsent(request.getSessionId(), k -> new ArrayList<>()).add(queryTime);
+            
+            return new ArrowQueryResult(pageRoot, page.totalRows, totalPages, request.getPage(),
+                request.getPageSize(), queryTime, allocator, CHUNK_SIZE);
+        } finally {
+            span.end();
+        }
+    }
+    
+    private Span startQuerySpan(String name, TableQueryRequest request) {
+        return getTracer().spanBuilder(name)
+                .setAttribute("sessionId", request.getSessionId())
+                .setAttribute("page", request.getPage())
+                .setAttribute("pageSize", request.getPageSize())
+                .setAttribute("hasSearch", request.getSearchTerm() != null && !request.getSearchTerm().trim().isEmpty())
+                .setAttribute("filterCount", request.getFilters() != null ? request.getFilters().size() : 0)
+                .setAttribute("sortCount", request.getSorts() != null ? request.getSorts().size() : 0)
+                .setAttribute("implementation", "Arrow")
+                .startSpan();
+    }
+    
+    // Row indices of the requested page, in result order, and the total number of matches
+    private static final class PageRows {
+        final int[] rows;
+        final int totalRows;
+        
+        PageRows(int[] rows, int totalRows) {
+            this.rows = rows;
+            this.totalRows = totalRows;
+        }
+    }
+    
+    private PageRows selectPage(ChunkedTable table, TableQueryRequest request, Span span) {
+        SelectionVectorPool pool = getSelectionPool(request.getSessionId());
+        QueryResultCache resultCache = getResultCache(request.getSessionId());
+        long dataVersion = resultCache.version();
+        List<SortSpecification> activeSorts = resolveSorts(table, request.getSorts());
+        String resultKey = QueryResultCache.key(request.getFilters(), request.getSearchTerm(), activeSorts);
+        long sortLimit = (long) (request.getPage() + 1) * request.getPageSize();
+        
+        SelectionVector matchingIndices = null;
+        try {
+            int[] resultRows;
+            int totalRows;
+            QueryResultCache.Entry cached = resultCache.get(resultKey);
+            span.setAttribute("resultCacheHit", cached != null);
+            if (cached != null && cached.ordered >= Math.min(sortLimit, cached.rows.length)) {
+                // Same filters, search and sort on unchanged data: only the page is extracted
+                resultRows = cached.rows;
+                totalRows = cached.rows.length;
+            } else {
+                if (cached != null) {
+                    // Matches are known but not sorted deep enough for this page
+                    matchingIndices = pool.acquire(cached.rows.length);
+                    matchingIndices.setSize(cached.rows.length);
+                    System.arraycopy(cached.rows, 0, matchingIndices.rows(), 0, cached.rows.length);
+                } else {
+                    // Generate row indices that match filters/search (Arrow-native filtering)
+                    Span filterSpan = getTracer().spanBuilder("arrow.generateMatchingIndices").startSpan();
+                    try {
+                        matchingIndices = generateMatchingIndices(table, request, pool);
+                    } finally {
+                        filterSpan.end();
+                    }
+                }
+                
+                // Apply sorting if provided (sort indices, not data)
+                int ordered = matchingIndices.size();
+                if (!activeSorts.isEmpty()) {
+                    Span sortSpan = getTracer().spanBuilder("arrow.sortIndices")
+                            .setAttribute("sortCount", activeSorts.size())
+                            .startSpan();
+                    try {
+                        ordered = sortIndices(request.getSessionId(), table, matchingIndices, activeSorts, sortLimit, pool);
+                    } finally {
+                        sortSpan.end();
+                    }
+                }
+                resultCache.put(resultKey, dataVersion, matchingIndices.toArray(), ordered);
+                resultRows = matchingIndices.rows();
+                totalRows = matchingIndices.size();
+            }
+            
+            // Apply pagination to indices
+            Span paginationSpan = getTracer().spanBuilder("arrow.applyPagination").startSpan();
+            int startIndex = (int) Math.min((long) request.getPage() * request.getPageSize(), totalRows);
+            int endIndex = (int) Math.min((long) startIndex + request.getPageSize(), totalRows);
+            paginationSpan.end();
+            
+            return new PageRows(Arrays.copyOfRange(resultRows, startIndex, endIndex), totalRows);
+        } finally {
+            pool.release(matchingIndices);
+        }
+    }
+    
     @Override
     public List<ColumnDefinition> getSchema(String sessionId) {
         return sessionSchemas.getOrDefault(sessionId, new ArrayList<>());
@@ -273,12 +778,30 @@ public class ArrowTableService implements TableService {
     
     @Override
     public void clearSession(String sessionId) {
-        VectorSchemaRoot root = sessionTables.remove(sessionId);
-        if (root != null) {
-            root.close();
+        ChunkedTable table = sessionTables.remove(sessionId);
+        if (table != null) {
+            // Running queries and a running compaction finish before the batches are closed
+            table.lock().writeLock().lock();
+            try {
+                table.close();
+            } finally {
+                table.lock().writeLock().unlock();
+            }
         }
         sessionSchemas.remove(sessionId);
         sessionRowCounts.remove(sessionId);
+        selectionPools.remove(sessionId);
+        sortCaches.remove(sessionId);
+        resultCaches.remove(sessionId);
+        searchIndexes.remove(sessionId);
+        capacityPlanners.remove(sessionId);
+        sessionTombstones.remove(sessionId);
+        sessionCompactions.remove(sessionId);
+        primaryKeyIndexes.remove(sessionId);
+        ColumnIndexes columnIndexes = sessionColumnIndexes.remove(sessionId);
+        if (columnIndexes != null) {
+            columnIndexes.close();
+        }
         performanceMetrics.remove(sessionId);
         queryTimes.remove(sessionId);
     }
@@ -326,6 +849,48 @@ public class ArrowTableService implements TableService {
         metrics.put("arrowLimitMB", arrowLimit == Long.MAX_VALUE ? -1 : Math.round(arrowLimit / (1024.0 * 1024.0) * 100.0) / 100.0);
         metrics.put("totalMemoryUsedMB", Math.round((usedMemory + arrowAllocated) / (1024.0 * 1024.0) * 100.0) / 100.0);
         
+        SortPermutationCache sortCache = sortCaches.get(sessionId);
+        metrics.put("sortCacheMB", sortCache == null ? 0.0 : Math.round(sortCache.bytes() / (1024.0 * 1024.0) * 100.0) / 100.0);
+        QueryResultCache resultCache = resultCaches.get(sessionId);
+        metrics.put("resultCacheMB", resultCache == null ? 0.0 : Math.round(resultCache.bytes() / (1024.0 * 1024.0) * 100.0) / 100.0);
+        TrigramIndex searchIndex = searchIndexes.get(sessionId);
+        metrics.put("searchIndexMB", searchIndex == null ? 0.0 : Math.round(searchIndex.bytes() / (1024.0 * 1024.0) * 100.0) / 100.0);
+        ChunkedTable table = sessionTables.get(sessionId);
+        int dictionaryColumns = 0;
+        long dictionaryBytes = 0;
+        for (int colIndex = 0; table != null && colIndex < table.getSchema().getFields().size(); colIndex++) {
+            DictionaryColumn dictionary = table.dictionary(colIndex);
+            if (dictionary != null) {
+                dictionaryColumns++;
+                dictionaryBytes += dictionary.bytes();
+            }
+        }
+        metrics.put("dictionaryColumns", dictionaryColumns);
+        metrics.put("dictionaryMB", Math.round(dictionaryBytes / (1024.0 * 1024.0) * 100.0) / 100.0);
+        ColumnIndexes columnIndexes = getColumnIndexes(sessionId);
+        long zoneMapBytes = columnIndexes.zoneMaps().values().stream().mapToLong(ZoneMap::bytes).sum();
+        metrics.put("zoneMapColumns", columnIndexes.zoneMaps().size());
+        metrics.put("zoneMapKB", Math.round(zoneMapBytes / 1024.0 * 100.0) / 100.0);
+        long sortedIndexBytes = columnIndexes.sortedIndexes().values().stream().mapToLong(SortedIndex::bytes).sum();
+        long sortedIndexBuildNanos = columnIndexes.sortedIndexes().values().stream().mapToLong(SortedIndex::buildNanos).sum();
+        metrics.put("sortedIndexColumns", columnIndexes.sortedIndexes().size());
+        metrics.put("sortedIndexMB", Math.round(sortedIndexBytes / (1024.0 * 1024.0) * 100.0) / 100.0);
+        metrics.put("sortedIndexBuildMs", Math.round(sortedIndexBuildNanos / 1e6 * 100.0) / 100.0);
+        long bitmapIndexBytes = columnIndexes.bitmapIndexes().values().stream().mapToLong(BitmapIndex::bytes).sum();
+        long bitmapIndexBuildNanos = columnIndexes.bitmapIndexes().values().stream().mapToLong(BitmapIndex::buildNanos).sum();
+        metrics.put("bitmapIndexColumns", columnIndexes.bitmapIndexes().size());
+        metrics.put("bitmapIndexMB", Math.round(bitmapIndexBytes / (1024.0 * 1024.0) * 100.0) / 100.0);
+        metrics.put("bitmapIndexBuildMs", Math.round(bitmapIndexBuildNanos / 1e6 * 100.0) / 100.0);
+        CapacityPlanner planner = capacityPlanners.get(sessionId);
+        metrics.put("ingestReallocations", planner == null ? 0 : planner.reallocations());
+        metrics.put("ingestCopiedMB", planner == null ? 0.0 : Math.round(planner.copiedBytes() / (1024.0 * 1024.0) * 100.0) / 100.0);
+        metrics.put("batchCount", table == null ? 0 : table.batchCount());
+        Tombstones tombstones = sessionTombstones.get(sessionId);
+        metrics.put("deletedRows", tombstones == null ? 0 : tombstones.count());
+        metrics.put("compactions", sessionCompactions.getOrDefault(sessionId, 0));
+        PrimaryKeyIndex keyIndex = primaryKeyIndexes.get(sessionId);
+        metrics.put("primaryKeyIndexMB", keyIndex == null ? 0.0 : Math.round(keyIndex.bytes() / (1024.0 * 1024.0) * 100.0) / 100.0);
+        
         return metrics;
     }
     
@@ -340,31 +905,79 @@ public class ArrowTableService implements TableService {
     
     @Override
     public void exportTableToFile(String sessionId, String filePath) {
-        VectorSchemaRoot root = sessionTables.get(sessionId);
-        if (root == null) {
+        ChunkedTable table = sessionTables.get(sessionId);
+        if (table == null) {
             throw new RuntimeException("No data found for session: " + sessionId);
         }
         
+        table.lock().readLock().lock();
         try {
-            // Export the entire table directly using ArrowFileWriter
+            if (sessionTables.get(sessionId) != table) {
+                throw new RuntimeException("No data found for session: " + sessionId);
+            }
+            // Write each batch of the table as one record batch of the file, without copying its buffers;
+            // only batches holding deleted rows are copied, to leave those rows out, and only
+            // dictionary-encoded columns are decoded
+            Tombstones tombstones = sessionTombstones.get(sessionId);
+            int[] batchStarts = table.batchStarts();
+            List<ColumnDefinition> schema = sessionSchemas.get(sessionId);
             try (java.io.FileOutputStream fos = new java.io.FileOutputStream(filePath);
-                 ArrowFileWriter writer = new ArrowFileWriter(root, null, fos.getChannel())) {
+                 VectorSchemaRoot fileRoot = VectorSchemaRoot.create(table.getSchema(), allocator);
+                 ArrowFileWriter writer = new ArrowFileWriter(fileRoot, null, fos.getChannel())) {
                 
+                VectorLoader loader = new VectorLoader(fileRoot);
                 writer.start();
-                writer.writeBatch();
+                List<VectorSchemaRoot> batches = table.batches();
+                for (int batch = 0; batch < batches.size(); batch++) {
+                    int[] liveRows = tombstones == null ? null : tombstones.liveRows(batchStarts[batch], batchStarts[batch + 1]);
+                    if (liveRows != null && liveRows.length == 0) {
+                        continue;
+                    }
+                    try (VectorSchemaRoot live = liveRows == null ? null : copyBatchRows(batches.get(batch), liveRows, schema);
+                         ArrowRecordBatch recordBatch = unloadDecoded(table, live == null ? batches.get(batch) : live)) {
+                        loader.load(recordBatch);
+                    }
+                    writer.writeBatch();
+                }
                 writer.end();
             }
         } catch (Exception e) {
             throw new RuntimeException("Failed to export table: " + e.getMessage(), e);
+        } finally {
+            table.lock().readLock().unlock();
         }
     }
     
-    private Schema createArrowSchema(List<ColumnDefinition> schema) {
-        List<Field> fields = schema.stream()
-            .map(this::createArrowField)
-            .collect(Collectors.toList());
-        return new Schema(fields);
-    }
+    // Unloads a batch of the table with its encoded columns decoded to the strings of the table schema
+    private static ArrowRecordBatch unloadDecoded(ChunkedTable table, VectorSchemaRoot batch) {
+        List<Field> fields = table.getSchema().getFields();
+        List<FieldVector> vectors = new ArrayList<>(batch.getFieldVectors());
+        List<FieldVector> decoded = new ArrayList<>();
+        try {
+            for (int colIndex = 0; colIndex < fields.size(); colIndex++) {
+                DictionaryColumn dictionary = table.dictionary(colIndex);
+                if (dictionary != null) {
+                    FieldVector vector = dictionary.decode((IntVector) vectors.get(colIndex), fields.get(colIndex));
+                    decoded.add(vector);
+                    vectors.set(colIndex, vector);
+                }
+            }
+            if (decoded.isEmpty()) {
+                return new VectorUnloader(batch).getRecordBatch();
+            }
+            // The record batch retains the buffers it refers to, so the decoded vectors can be closed
+            return new VectorUnloader(new VectorSchemaRoot(fields, vectors, batch.getRowCount())).getRecordBatch();
+        } finally {
+            decoded.forEach(FieldVector::close);
+        }
+    }
+    
+    private Schema createArrowSchema(List<ColumnDefinition> schema) {
+        List<Field> fields = schema.stream()
+            .map(this::createArrowField)
+            .collect(Collectors.toList());
+        return new Schema(fields);
+    }
     
     private Field createArrowField(ColumnDefinition colDef) {
         org.apache.arrow.vector.types.pojo.ArrowType arrowType;
@@ -389,352 +1002,866 @@ public class ArrowTableService implements TableService {
         return new Field(colDef.getName(), new FieldType(true, arrowType, null), null);
     }
     
-    private void setVectorValue(FieldVector vector, int index, Object value, DataType dataType) {
-        if (value == null) {
-            vector.setNull(index);
+    private SelectionVectorPool getSelectionPool(String sessionId) {
+        return selectionPools.computeIfAbsent(sessionId, k -> new SelectionVectorPool());
+    }
+    
+    private SortPermutationCache getSortCache(String sessionId) {
+        return sortCaches.computeIfAbsent(sessionId, k -> new SortPermutationCache(sortCacheMaxMb * 1024 * 1024));
+    }
+    
+    private QueryResultCache getResultCache(String sessionId) {
+        return resultCaches.computeIfAbsent(sessionId, k -> new QueryResultCache(resultCacheMaxMb * 1024 * 1024));
+    }
+    
+    private void invalidateQueryResults(String sessionId) {
+        QueryResultCache resultCache = resultCaches.get(sessionId);
+        if (resultCache != null) {
+            resultCache.invalidate();
+        }
+    }
+    
+    private ColumnIndexes getColumnIndexes(String sessionId) {
+        return sessionColumnIndexes.getOrDefault(sessionId, ColumnIndexes.NONE);
+    }
+    
+    // Stores low-cardinality STRING columns dictionary-encoded from the first load on; appends
+    // then write codes directly (see encodeAppendedValues)
+    private void encodeDictionaryColumns(ChunkedTable table, List<ColumnDefinition> schema,
+                                         int oldRowCount, int newRowCount) {
+        if (dictionaryMaxCardinality <= 0 || oldRowCount != 0) {
             return;
         }
         
-        switch (dataType) {
-            case INTEGER:
-                ((IntVector) vector).set(index, Integer.parseInt(value.toString()));
-                break;
-            case DOUBLE:
-                ((Float8Vector) vector).set(index, Double.parseDouble(value.toString()));
-                break;
-            case BOOLEAN:
-                ((BitVector) vector).set(index, Boolean.parseBoolean(value.toString()) ? 1 : 0);
-                break;
-            case BINARY:
-                ((VarBinaryVector) vector).set(index, (byte[]) value);
-                break;
-            default:
-                ((VarCharVector) vector).set(index, value.toString().getBytes());
+        Span encodeSpan = getTracer().spanBuilder("arrow.encodeDictionaryColumns")
+                .setAttribute("rowCount", newRowCount - oldRowCount)
+                .startSpan();
+        try {
+            int encodedColumns = 0;
+            for (int colIndex = 0; colIndex < schema.size(); colIndex++) {
+                if (schema.get(colIndex).getType() != DataType.STRING || table.dictionary(colIndex) != null) {
+                    continue;
+                }
+                DictionaryColumn dictionary = DictionaryColumn.create(table.column(colIndex), colIndex,
+                    dictionaryMaxCardinality, allocator);
+                if (dictionary != null) {
+                    table.encodeColumn(colIndex, dictionary);
+                    encodedColumns++;
+                }
+            }
+            encodeSpan.setAttribute("encodedColumns", encodedColumns);
+        } finally {
+            encodeSpan.end();
+        }
+    }
+    
+    // Codes of the appended values of every dictionary-encoded column, null for the others; a
+    // column outgrowing the cardinality limit is decoded and then appended as strings
+    private int[][] encodeAppendedValues(ChunkedTable table, List<ColumnDefinition> schema, ColumnBatch batch) {
+        int[][] codes = new int[schema.size()][];
+        for (int colIndex = 0; colIndex < schema.size(); colIndex++) {
+            DictionaryColumn dictionary = table.dictionary(colIndex);
+            ColumnBatch.Column column = batch.column(schema.get(colIndex).getName());
+            if (dictionary != null && column != null) {
+                codes[colIndex] = dictionary.encode(column, 0, batch.getRowCount());
+                if (codes[colIndex] == null) {
+                    table.decodeColumn(colIndex);
+                }
+            }
         }
+        return codes;
     }
     
-    private List<Integer> generateMatchingIndices(VectorSchemaRoot root, TableQueryRequest request) {
-        int rowCount = root.getRowCount();
-        List<Integer> matchingIndices = new ArrayList<>();
+    // Keeps per-batch min/max statistics of INTEGER, DOUBLE and BOOLEAN columns for batch skipping
+    private void updateZoneMaps(String sessionId, ChunkedTable table, List<ColumnDefinition> schema,
+                                int oldRowCount, int newRowCount) {
+        if (!zoneMapsEnabled) {
+            return;
+        }
+        Map<String, ZoneMap> zoneMaps = sessionColumnIndexes.computeIfAbsent(sessionId, k -> new ColumnIndexes()).zoneMaps();
+        for (ColumnDefinition colDef : schema) {
+            ChunkedColumn column = table.column(colDef.getName());
+            if (column == null) {
+                continue;
+            }
+            ZoneMap zoneMap = zoneMaps.get(colDef.getName());
+            if (zoneMap != null) {
+                zoneMap.append(column, oldRowCount, newRowCount);
+            } else if (oldRowCount == 0) {
+                zoneMap = ZoneMap.create(column);
+                if (zoneMap != null) {
+                    zoneMaps.put(colDef.getName(), zoneMap);
+                }
+            }
+        }
+    }
+    
+    // Indexes filterable numeric columns on the first load and merges every appended batch into the order
+    private void updateSortedIndexes(String sessionId, ChunkedTable table, List<ColumnDefinition> schema,
+                                     int oldRowCount, int newRowCount) {
+        if (!sortedIndexesEnabled) {
+            return;
+        }
+        Map<String, SortedIndex> sortedIndexes = sessionColumnIndexes.computeIfAbsent(sessionId, k -> new ColumnIndexes()).sortedIndexes();
+        SelectionVectorPool pool = getSelectionPool(sessionId);
+        for (ColumnDefinition colDef : schema) {
+            if (!colDef.isFilterable() || (colDef.getType() != DataType.INTEGER && colDef.getType() != DataType.DOUBLE)) {
+                continue;
+            }
+            ChunkedColumn column = table.column(colDef.getName());
+            if (column == null) {
+                continue;
+            }
+            SortedIndex sortedIndex = sortedIndexes.get(colDef.getName());
+            if (sortedIndex != null) {
+                sortedIndex.addRows(column, oldRowCount, newRowCount, pool);
+            } else if (oldRowCount == 0) {
+                sortedIndex = SortedIndex.build(column, pool);
+                if (sortedIndex != null) {
+                    sortedIndexes.put(colDef.getName(), sortedIndex);
+                }
+            }
+        }
+    }
+    
+    // Keeps a bitmap per distinct value of filterable BOOLEAN and low-cardinality INTEGER columns
+    private void updateBitmapIndexes(String sessionId, ChunkedTable table, List<ColumnDefinition> schema,
+                                     int oldRowCount, int newRowCount) {
+        if (bitmapIndexMaxCardinality <= 0) {
+            return;
+        }
+        Map<String, BitmapIndex> bitmapIndexes = sessionColumnIndexes.computeIfAbsent(sessionId, k -> new ColumnIndexes()).bitmapIndexes();
+        for (ColumnDefinition colDef : schema) {
+            if (!colDef.isFilterable() || (colDef.getType() != DataType.BOOLEAN && colDef.getType() != DataType.INTEGER)) {
+                continue;
+            }
+            ChunkedColumn column = table.column(colDef.getName());
+            if (column == null) {
+                continue;
+            }
+            BitmapIndex bitmapIndex = bitmapIndexes.get(colDef.getName());
+            if (bitmapIndex != null) {
+                if (!bitmapIndex.addRows(column, oldRowCount, newRowCount)) {
+                    // Too many distinct values for bitmaps to pay off; filters scan the column again
+                    bitmapIndexes.remove(colDef.getName());
+                }
+            } else if (oldRowCount == 0) {
+                bitmapIndex = BitmapIndex.build(column, bitmapIndexMaxCardinality);
+                if (bitmapIndex != null) {
+                    bitmapIndexes.put(colDef.getName(), bitmapIndex);
+                }
+            }
+        }
+    }
+    
+    // Builds the trigram index on the first load and extends it with every appended batch
+    private void indexSearchableRows(String sessionId, ChunkedTable table, List<ColumnDefinition> schema,
+                                     int oldRowCount, int newRowCount) {
+        if (!trigramIndexEnabled) {
+            return;
+        }
+        TrigramIndex searchIndex = searchIndexes.get(sessionId);
+        if (searchIndex == null && oldRowCount == 0) {
+            searchIndex = TrigramIndex.create(table, schema);
+            if (searchIndex != null) {
+                searchIndexes.put(sessionId, searchIndex);
+            }
+        }
+        if (searchIndex == null) {
+            return;
+        }
         
-        for (int rowIndex = 0; rowIndex < rowCount; rowIndex++) {
-            boolean matches = true;
-            
-            // Apply search filter
-            if (request.getSearchTerm() != null && !request.getSearchTerm().trim().isEmpty()) {
-                matches = matchesSearchTerm(root, rowIndex, request.getSearchTerm(), request.getSessionId());
+        Span indexSpan = getTracer().spanBuilder("arrow.indexSearchableRows")
+                .setAttribute("rowCount", newRowCount - oldRowCount)
+                .startSpan();
+        try {
+            searchIndex.addRows(table, oldRowCount, newRowCount);
+        } finally {
+            indexSpan.end();
+        }
+    }
+    
+    // Adds the ids of rows [oldRowCount, newRowCount) to the primary key index, building it on the first load
+    private void indexPrimaryKeys(String sessionId, ChunkedTable table, int oldRowCount, int newRowCount) {
+        ChunkedColumn ids = table.column(ID_COLUMN);
+        if (ids == null) {
+            return;
+        }
+        PrimaryKeyIndex keyIndex = primaryKeyIndexes.get(sessionId);
+        if (keyIndex != null) {
+            keyIndex.addRows(ids, oldRowCount, newRowCount, null);
+            return;
+        }
+        keyIndex = PrimaryKeyIndex.build(ids, sessionTombstones.get(sessionId));
+        if (keyIndex != null) {
+            primaryKeyIndexes.put(sessionId, keyIndex);
+        }
+    }
+    
+    private SelectionVector generateMatchingIndices(ChunkedTable table, TableQueryRequest request, SelectionVectorPool pool) {
+        int[] batchStarts = table.batchStarts();
+        int batchCount = batchStarts.length - 1;
+        int rowCount = batchStarts[batchCount];
+        SelectionVector matchingIndices = pool.acquire(rowCount);
+        boolean hasSearch = request.getSearchTerm() != null && !request.getSearchTerm().trim().isEmpty();
+        
+        // A lone id = value filter is a point lookup in the primary key index
+        PrimaryKeyIndex keyIndex = primaryKeyIndexes.get(request.getSessionId());
+        if (!hasSearch && keyIndex != null && !keyIndex.hasDuplicates() && isIdLookup(request.getFilters())) {
+            int row = keyIndex.get(((Number) request.getFilters().get(0).getValues().get(0)).intValue());
+            if (row >= 0) {
+                matchingIndices.add(row);
             }
-            
-            // Apply filters
-            if (matches && request.getFilters() != null && !request.getFilters().isEmpty()) {
-                matches = matchesAllFilters(root, rowIndex, request.getFilters());
+            return matchingIndices;
+        }
+        
+        // Narrow the search to rows holding every trigram of the term, when indexed
+        TrigramIndex searchIndex = hasSearch ? searchIndexes.get(request.getSessionId()) : null;
+        RowBitmap searchCandidates = searchIndex != null ? searchIndex.candidates(request.getSearchTerm(), rowCount) : null;
+        List<SearchColumn> searchColumns = hasSearch
+            ? searchableColumns(table, request.getSessionId(), new Utf8Matcher(request.getSearchTerm()))
+            : null;
+        
+        // Resolve every filter to a typed column predicate once, then evaluate batch by batch
+        CompiledFilter filter = CompiledFilter.compile(table, request.getFilters(), getColumnIndexes(request.getSessionId()));
+        Tombstones deleted = sessionTombstones.get(request.getSessionId());
+        Tombstones tombstones = deleted == null || deleted.isEmpty() ? null : deleted;
+        
+        if (!runsInParallel(rowCount) || batchCount < 2) {
+            RowBitmap selection = new RowBitmap(Math.min(rowCount, CHUNK_SIZE));
+            CompiledFilter.Scratch scratch = new CompiledFilter.Scratch();
+            for (int batch = 0; batch < batchCount; batch++) {
+                if (batchStarts[batch] < batchStarts[batch + 1]) {
+                    filterChunk(filter, tombstones, searchCandidates, searchColumns, hasSearch,
+                        batchStarts[batch], batchStarts[batch + 1], selection, scratch, matchingIndices);
+                }
             }
+            return matchingIndices;
+        }
+        
+        // Batches are filtered concurrently into their own pooled vectors, then concatenated in row order
+        SelectionVector[] chunkMatches = new SelectionVector[batchCount];
+        try {
+            forEachTask(batchCount, batch -> {
+                int chunkStart = batchStarts[batch];
+                int chunkEnd = batchStarts[batch + 1];
+                SelectionVector matches = pool.acquireBatchVector(chunkEnd - chunkStart);
+                chunkMatches[batch] = matches;
+                if (chunkStart < chunkEnd) {
+                    FilterScratch scratch = FILTER_SCRATCH.get();
+                    filterChunk(filter, tombstones, searchCandidates, searchColumns, hasSearch, chunkStart, chunkEnd,
+                        scratch.selection, scratch.buffers, matches);
+                }
+            });
             
-            if (matches) {
-                matchingIndices.add(rowIndex);
+            int total = 0;
+            for (SelectionVector matches : chunkMatches) {
+                total += matches.size();
+            }
+            matchingIndices.setSize(total);
+            int offset = 0;
+            for (SelectionVector matches : chunkMatches) {
+                System.arraycopy(matches.rows(), 0, matchingIndices.rows(), offset, matches.size());
+                offset += matches.size();
+            }
+            return matchingIndices;
+        } finally {
+            for (SelectionVector matches : chunkMatches) {
+                pool.releaseBatchVector(matches);
+            }
+        }
+    }
+    
+    // Selection bitmap and filter buffers of a query pool worker, reused for every batch it filters
+    private static final class FilterScratch {
+        final RowBitmap selection = new RowBitmap(CHUNK_SIZE);
+        final CompiledFilter.Scratch buffers = new CompiledFilter.Scratch();
+    }
+    
+    private static boolean isIdLookup(List<FilterCriteria> filters) {
+        if (filters == null || filters.size() != 1) {
+            return false;
+        }
+        FilterCriteria filter = filters.get(0);
+        return ID_COLUMN.equals(filter.getColumn()) && filter.getOperation() == FilterOperation.EQUALS
+            && filter.getValues() != null && !filter.getValues().isEmpty()
+            && filter.getValues().get(0) instanceof Number;
+    }
+    
+    // Appends the live rows of one batch, [chunkStart, chunkEnd), passing the filters and the search term, in row order
+    private void filterChunk(CompiledFilter filter, Tombstones tombstones, RowBitmap searchCandidates,
+                             List<SearchColumn> searchColumns, boolean hasSearch, int chunkStart, int chunkEnd,
+                             RowBitmap selection, CompiledFilter.Scratch scratch, SelectionVector matches) {
+        if (!filter.evaluate(chunkStart, chunkEnd, selection, scratch)) {
+            return; // Zone maps ruled the whole chunk out
+        }
+        if (tombstones != null) {
+            tombstones.clearDeleted(selection, chunkStart);
+        }
+        
+        if (!hasSearch) {
+            matches.addSetBits(selection, chunkStart);
+            return;
+        }
+        
+        for (int bit = selection.nextSetBit(0); bit >= 0; bit = selection.nextSetBit(bit + 1)) {
+            int rowIndex = chunkStart + bit;
+            if (searchCandidates != null && !searchCandidates.get(rowIndex)) {
+                continue;
+            }
+            // Search only runs on rows that survived the filters
+            if (matchesSearchTerm(searchColumns, rowIndex)) {
+                matches.add(rowIndex);
             }
         }
+    }
+    
+    // A searchable column and, when dictionary-encoded, the codes whose values contain the term
+    private static final class SearchColumn {
+        final ChunkedColumn column;
+        final Utf8Matcher matcher;
+        final DictionaryColumn dictionary;
+        final long[] dictionaryMatches;
         
-        return matchingIndices;
+        SearchColumn(ChunkedColumn column, Utf8Matcher matcher) {
+            this.column = column;
+            this.matcher = matcher;
+            this.dictionary = column.dictionary();
+            this.dictionaryMatches = dictionary != null ? dictionary.contains(matcher) : null;
+        }
     }
     
-    private boolean matchesSearchTerm(VectorSchemaRoot root, int rowIndex, String searchTerm, String sessionId) {
-        String lowerSearchTerm = searchTerm.toLowerCase();
+    // Searchable columns present in the table, or null when the session has no schema
+    private List<SearchColumn> searchableColumns(ChunkedTable table, String sessionId, Utf8Matcher matcher) {
         List<ColumnDefinition> schema = sessionSchemas.get(sessionId);
-        
         if (schema == null) {
-            return true;
+            return null;
         }
-        
-        // Cache searchable vectors to avoid repeated lookups
+        List<SearchColumn> columns = new ArrayList<>();
         for (ColumnDefinition colDef : schema) {
             if (colDef.isSearchable()) {
-                FieldVector vector = root.getVector(colDef.getName());
-                if (vector != null && !vector.isNull(rowIndex)) {
-                    // Direct vector access without object creation for strings
-                    if (vector instanceof VarCharVector) {
-                        String value = new String(((VarCharVector) vector).get(rowIndex));
-                        if (value.toLowerCase().contains(lowerSearchTerm)) {
-                            return true;
-                        }
-                    } else {
-                        Object value = extractVectorValue(vector, rowIndex);
-                        if (value != null && value.toString().toLowerCase().contains(lowerSearchTerm)) {
-                            return true;
-                        }
-                    }
+                ChunkedColumn column = table.column(colDef.getName());
+                if (column != null) {
+                    // Encoded columns scan their dictionary once instead of every row
+                    columns.add(new SearchColumn(column, matcher));
                 }
             }
         }
-        
-        return false;
+        return columns;
     }
     
-    private boolean matchesAllFilters(VectorSchemaRoot root, int rowIndex, List<FilterCriteria> filters) {
-        for (FilterCriteria filter : filters) {
-            if (!matchesFilter(root, rowIndex, filter)) {
-                return false;
+    private boolean matchesSearchTerm(List<SearchColumn> searchColumns, int rowIndex) {
+        if (searchColumns == null) {
+            return true;
+        }
+        
+        for (SearchColumn column : searchColumns) {
+            int batch = column.column.batchOf(rowIndex);
+            FieldVector vector = column.column.vector(batch);
+            int index = rowIndex - column.column.start(batch);
+            if (!vector.isNull(index)) {
+                if (column.dictionary != null) {
+                    int code = vector.getDataBuffer().getInt((long) index * IntVector.TYPE_WIDTH);
+                    if ((column.dictionaryMatches[code >>> 6] & (1L << code)) != 0) {
+                        return true;
+                    }
+                } else if (vector instanceof VarCharVector) {
+                    // Match on the UTF-8 bytes in the Arrow buffers without creating Strings
+                    if (column.matcher.contains((VarCharVector) vector, index)) {
+                        return true;
+                    }
+                } else {
+                    Object value = VectorValues.extract(vector, index);
+                    if (value != null && column.matcher.contains(value.toString())) {
+                        return true;
+                    }
+                }
             }
         }
-        return true;
+        
+        return false;
     }
     
-    private boolean matchesFilter(VectorSchemaRoot root, int rowIndex, FilterCriteria filter) {
-        FieldVector vector = root.getVector(filter.getColumn());
-        if (vector == null) {
-            return true;
+    /**
+     * Orders the selection so that at least its first {@code limit} entries are in sort
+     * order, keeping the same set of rows, and returns how many leading entries are ordered.
+     * Repeated sorts are answered from a cached permutation of the whole table; otherwise
+     * early pages only need a bounded top-K selection rather than a full sort.
+     */
+    private int sortIndices(String sessionId, ChunkedTable table, SelectionVector indices,
+                            List<SortSpecification> activeSorts, long limit, SelectionVectorPool pool) {
+        List<SortKey> sortKeys = createSortKeys(sessionId, table, activeSorts);
+        
+        int rowCount = table.getRowCount();
+        int size = indices.size();
+        SortPermutationCache sortCache = getSortCache(sessionId);
+        String cacheKey = SortPermutationCache.key(activeSorts);
+        
+        int[] permutation = sortCache.get(cacheKey, rowCount);
+        SortedIndex sortedIndex = activeSorts.size() == 1
+            ? getColumnIndexes(sessionId).sortedIndex(activeSorts.get(0).getColumn())
+            : null;
+        if (permutation == null && sortedIndex != null && sortedIndex.rowCount() == rowCount) {
+            // A sorted index already holds the column order; only the nulls are placed around it
+            permutation = sortedIndex.permutation(table.column(activeSorts.get(0).getColumn()),
+                activeSorts.get(0).getDirection() == SortDirection.DESC);
+            sortCache.put(cacheKey, activeSorts, permutation);
+        }
+        if (permutation == null && sortCache.recordMiss(cacheKey) > 1) {
+            // The same sort was requested before: sort the whole table once and keep it
+            permutation = buildPermutation(rowCount, sortKeys, pool);
+            sortCache.put(cacheKey, activeSorts, permutation);
+        }
+        if (permutation != null) {
+            return selectFromPermutation(permutation, indices, limit);
         }
         
-        if (vector.isNull(rowIndex)) {
-            return filter.getOperation() == FilterOperation.IS_NULL;
-        }
-        
-        List<Object> filterValues = filter.getValues();
-        
-        if (filterValues == null || filterValues.isEmpty()) {
-            return filter.getOperation() == FilterOperation.IS_NOT_NULL;
-        }
-        
-        Object filterValue = filterValues.get(0);
-        
-        // Optimize for common vector types to avoid object allocation
-        switch (filter.getOperation()) {
-            case EQUALS:
-                return compareVectorValue(vector, rowIndex, filterValue) == 0;
-            case NOT_EQUALS:
-                return compareVectorValue(vector, rowIndex, filterValue) != 0;
-            case GREATER_THAN:
-                return compareVectorValue(vector, rowIndex, filterValue) > 0;
-            case GREATER_THAN_OR_EQUAL:
-                return compareVectorValue(vector, rowIndex, filterValue) >= 0;
-            case LESS_THAN:
-                return compareVectorValue(vector, rowIndex, filterValue) < 0;
-            case LESS_THAN_OR_EQUAL:
-                return compareVectorValue(vector, rowIndex, filterValue) <= 0;
-            case IS_NULL:
-                return false; // Already checked null above
-            case IS_NOT_NULL:
-                return true; // Already checked null above
-            case CONTAINS:
-            case STARTS_WITH:
-            case ENDS_WITH:
-                // For string operations, extract value
-                Object value = extractVectorValue(vector, rowIndex);
-                if (value == null) return false;
-                String strValue = value.toString().toLowerCase();
-                String filterStr = filterValue.toString().toLowerCase();
-                switch (filter.getOperation()) {
-                    case CONTAINS: return strValue.contains(filterStr);
-                    case STARTS_WITH: return strValue.startsWith(filterStr);
-                    case ENDS_WITH: return strValue.endsWith(filterStr);
-                }
-                return false;
-            case IN:
-                Object value2 = extractVectorValue(vector, rowIndex);
-                return filterValues.stream().anyMatch(fv -> Objects.equals(value2, fv) || 
-                    (value2 != null && value2.toString().equals(fv.toString())));
-            case NOT_IN:
-                Object value3 = extractVectorValue(vector, rowIndex);
-                return filterValues.stream().noneMatch(fv -> Objects.equals(value3, fv) || 
-                    (value3 != null && value3.toString().equals(fv.toString())));
-            default:
-                return true;
-        }
-    }
-    
-    private int compareVectorValue(FieldVector vector, int index, Object filterValue) {
-        // Direct comparison without object allocation for primitive types
-        if (vector instanceof IntVector && filterValue instanceof Number) {
-            int vectorValue = ((IntVector) vector).get(index);
-            int filterInt = ((Number) filterValue).intValue();
-            return Integer.compare(vectorValue, filterInt);
-        } else if (vector instanceof Float8Vector && filterValue instanceof Number) {
-            double vectorValue = ((Float8Vector) vector).get(index);
-            double filterDouble = ((Number) filterValue).doubleValue();
-            return Double.compare(vectorValue, filterDouble);
-        } else if (vector instanceof BitVector && filterValue instanceof Boolean) {
-            boolean vectorValue = ((BitVector) vector).get(index) == 1;
-            boolean filterBool = (Boolean) filterValue;
-            return Boolean.compare(vectorValue, filterBool);
-        } else {
-            // Fall back to object comparison
-            Object value = extractVectorValue(vector, index);
-            return compareValues(value, filterValue);
+        if (limit <= TOP_K_MAX_ROWS && limit * TOP_K_MIN_RATIO <= size) {
+            IndexSorter.topK(indices.rows(), size, (int) limit, sortKeys, pool);
+            return (int) limit;
+        }
+        
+        // Typed radix passes over the int[] indices, one per sort column
+        sortRows(indices.rows(), size, sortKeys, pool);
+        if (size == rowCount) {
+            // An unfiltered full sort is the table permutation itself
+            sortCache.put(cacheKey, activeSorts, indices.toArray());
         }
+        return size;
     }
     
-    private List<Integer> sortIndices(VectorSchemaRoot root, List<Integer> indices, List<SortSpecification> sorts) {
-        List<SortSpecification> sortedSorts = sorts.stream()
+    private List<SortSpecification> resolveSorts(ChunkedTable table, List<SortSpecification> sorts) {
+        return sorts.stream()
+            .filter(sort -> table.columnIndex(sort.getColumn()) >= 0)
             .sorted(Comparator.comparingInt(SortSpecification::getPriority))
             .collect(Collectors.toList());
-            
-        return indices.stream()
-            .sorted((idx1, idx2) -> {
-                for (SortSpecification sort : sortedSorts) {
-                    FieldVector vector = root.getVector(sort.getColumn());
-                    if (vector == null) continue;
-                    
-                    int comparison;
-                    
-                    // Handle null values efficiently
-                    boolean isNull1 = vector.isNull(idx1);
-                    boolean isNull2 = vector.isNull(idx2);
-                    
-                    if (isNull1 && isNull2) {
-                        comparison = 0;
-                    } else if (isNull1) {
-                        comparison = -1;
-                    } else if (isNull2) {
-                        comparison = 1;
-                    } else {
-                        // Direct comparison for primitive types to avoid object allocation
-                        if (vector instanceof IntVector) {
-                            int val1 = ((IntVector) vector).get(idx1);
-                            int val2 = ((IntVector) vector).get(idx2);
-                            comparison = Integer.compare(val1, val2);
-                        } else if (vector instanceof Float8Vector) {
-                            double val1 = ((Float8Vector) vector).get(idx1);
-                            double val2 = ((Float8Vector) vector).get(idx2);
-                            comparison = Double.compare(val1, val2);
-                        } else if (vector instanceof BitVector) {
-                            boolean val1 = ((BitVector) vector).get(idx1) == 1;
-                            boolean val2 = ((BitVector) vector).get(idx2) == 1;
-                            comparison = Boolean.compare(val1, val2);
-                        } else if (vector instanceof VarCharVector) {
-                            String val1 = new String(((VarCharVector) vector).get(idx1));
-                            String val2 = new String(((VarCharVector) vector).get(idx2));
-                            comparison = val1.compareTo(val2);
-                        } else {
-                            // Fall back to object comparison
-                            Object value1 = extractVectorValue(vector, idx1);
-                            Object value2 = extractVectorValue(vector, idx2);
-                            comparison = compareValues(value1, value2);
-                        }
-                    }
-                    
-                    if (comparison != 0) {
-                        return sort.getDirection() == SortDirection.DESC ? -comparison : comparison;
-                    }
-                }
-                return 0;
-            })
-            .collect(Collectors.toList());
     }
     
-    private List<Map<String, Object>> extractDataForIndices(VectorSchemaRoot root, List<Integer> indices) {
-        List<Map<String, Object>> results = new ArrayList<>();
+    private List<SortKey> createSortKeys(String sessionId, ChunkedTable table, List<SortSpecification> sorts) {
+        List<SortKey> sortKeys = new ArrayList<>();
+        for (SortSpecification sort : sorts) {
+            sortKeys.add(SortKey.of(table.column(sort.getColumn()), sort.getDirection()));
+        }
+        return sortKeys;
+    }
+    
+    private int[] buildPermutation(int rowCount, List<SortKey> sortKeys, SelectionVectorPool pool) {
+        int[] permutation = new int[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            permutation[i] = i;
+        }
+        sortRows(permutation, rowCount, sortKeys, pool);
+        return permutation;
+    }
+    
+    // Large selections are sorted in segments on the query pool and merged
+    private void sortRows(int[] rows, int size, List<SortKey> sortKeys, SelectionVectorPool pool) {
+        if (runsInParallel(size)) {
+            ForkJoinPool executor = getQueryPool();
+            IndexSorter.parallelSort(rows, size, sortKeys, pool, executor, executor.getParallelism());
+        } else {
+            IndexSorter.sort(rows, size, sortKeys, pool);
+        }
+    }
+    
+    // Puts the first limit selected rows in permutation order; the rest follow in row order
+    private int selectFromPermutation(int[] permutation, SelectionVector indices, long limit) {
+        int[] rows = indices.rows();
+        int size = indices.size();
+        int take = (int) Math.min(limit, size);
         
-        for (Integer rowIndex : indices) {
-            Map<String, Object> row = new HashMap<>();
-            
-            for (int colIndex = 0; colIndex < root.getFieldVectors().size(); colIndex++) {
-                FieldVector vector = root.getVector(colIndex);
-                String columnName = vector.getField().getName();
-                Object value = extractVectorValue(vector, rowIndex);
-                row.put(columnName, value);
-            }
-            
-            results.add(row);
+        if (size == permutation.length) {
+            System.arraycopy(permutation, 0, rows, 0, size);
+            return size;
         }
         
-        return results;
+        RowBitmap selected = new RowBitmap(permutation.length);
+        selected.reset(permutation.length);
+        selected.clearAll();
+        for (int i = 0; i < size; i++) {
+            selected.set(rows[i]);
+        }
+        
+        int found = 0;
+        for (int i = 0; i < permutation.length && found < take; i++) {
+            int row = permutation[i];
+            if (selected.get(row)) {
+                rows[found++] = row;
+                selected.clear(row);
+            }
+        }
+        for (int row = selected.nextSetBit(0); row >= 0; row = selected.nextSetBit(row + 1)) {
+            rows[found++] = row;
+        }
+        return take;
     }
     
-    private List<Map<String, Object>> extractData(VectorSchemaRoot root) {
-        List<Map<String, Object>> results = new ArrayList<>();
-        int rowCount = root.getRowCount();
+    // Merges rows appended since the permutations were built into every cached permutation
+    private void patchSortPermutationsForAppend(String sessionId, ChunkedTable table, int oldRowCount, int newRowCount) {
+        SortPermutationCache sortCache = sortCaches.get(sessionId);
+        if (sortCache == null) {
+            return;
+        }
+        SelectionVectorPool pool = getSelectionPool(sessionId);
+        int appended = newRowCount - oldRowCount;
         
-        for (int rowIndex = 0; rowIndex < rowCount; rowIndex++) {
-            Map<String, Object> row = new HashMap<>();
-            
-            for (int colIndex = 0; colIndex < root.getFieldVectors().size(); colIndex++) {
-                FieldVector vector = root.getVector(colIndex);
-                String columnName = vector.getField().getName();
-                Object value = extractVectorValue(vector, rowIndex);
-                row.put(columnName, value);
+        for (SortPermutationCache.Entry entry : sortCache.entries()) {
+            int[] permutation = entry.permutation;
+            if (permutation.length != oldRowCount) {
+                sortCache.remove(entry);
+                continue;
             }
+            List<SortKey> sortKeys = createSortKeys(sessionId, table, entry.sorts);
+            int[] added = new int[appended];
+            for (int i = 0; i < appended; i++) {
+                added[i] = oldRowCount + i;
+            }
+            IndexSorter.sort(added, appended, sortKeys, pool);
             
-            results.add(row);
+            // Appended rows have higher indices, so existing rows win ties as in a stable sort
+            RowComparator comparator = IndexSorter.comparator(sortKeys);
+            int[] merged = new int[newRowCount];
+            int p = 0;
+            int q = 0;
+            for (int i = 0; i < newRowCount; i++) {
+                if (q >= appended || (p < oldRowCount && comparator.compare(permutation[p], added[q]) <= 0)) {
+                    merged[i] = permutation[p++];
+                } else {
+                    merged[i] = added[q++];
+                }
+            }
+            sortCache.replace(entry, merged);
         }
-        
-        return results;
     }
     
-    private Object extractVectorValue(FieldVector vector, int index) {
-        if (vector.isNull(index)) {
-            return null;
+    // Drops deleted rows from every cached permutation and renumbers the survivors
+    private void patchSortPermutationsForDelete(String sessionId, int oldRowCount, int[] keepIndices) {
+        SortPermutationCache sortCache = sortCaches.get(sessionId);
+        if (sortCache == null) {
+            return;
+        }
+        int[] newIndex = new int[oldRowCount];
+        Arrays.fill(newIndex, -1);
+        for (int i = 0; i < keepIndices.length; i++) {
+            newIndex[keepIndices[i]] = i;
         }
         
-        if (vector instanceof IntVector) {
-            return ((IntVector) vector).get(index);
-        } else if (vector instanceof Float8Vector) {
-            return ((Float8Vector) vector).get(index);
-        } else if (vector instanceof BitVector) {
-            return ((BitVector) vector).get(index) == 1;
-        } else if (vector instanceof VarCharVector) {
-            return new String(((VarCharVector) vector).get(index));
-        } else if (vector instanceof VarBinaryVector) {
-            return ((VarBinaryVector) vector).get(index);
+        for (SortPermutationCache.Entry entry : sortCache.entries()) {
+            int[] permutation = entry.permutation;
+            if (permutation.length != oldRowCount) {
+                sortCache.remove(entry);
+                continue;
+            }
+            int[] patched = new int[keepIndices.length];
+            int n = 0;
+            for (int row : permutation) {
+                int mapped = newIndex[row];
+                if (mapped >= 0) {
+                    patched[n++] = mapped;
+                }
+            }
+            sortCache.replace(entry, patched);
+        }
+    }
+    
+    // Requested columns in request order, skipping unknown and repeated names; all columns when none are given
+    private List<ChunkedColumn> projectColumns(ChunkedTable table, List<String> columns) {
+        if (columns == null || columns.isEmpty()) {
+            return table.columns();
+        }
+        List<ChunkedColumn> projected = new ArrayList<>(columns.size());
+        Set<String> seen = new HashSet<>();
+        for (String name : columns) {
+            ChunkedColumn column = table.column(name);
+            if (column != null && seen.add(name)) {
+                projected.add(column);
+            }
+        }
+        return projected;
+    }
+    
+    private List<Map<String, Object>> extractDataForIndices(ChunkedTable table, List<ChunkedColumn> columns,
+                                                            int[] indices, int from, int to) {
+        int count = to - from;
+        if (count < PARALLEL_EXTRACT_MIN_ROWS || !runsInParallel(table.getRowCount())) {
+            List<Map<String, Object>> results = new ArrayList<>(count);
+            for (int i = from; i < to; i++) {
+                results.add(extractRow(columns, indices[i]));
+            }
+            return results;
         }
         
-        return vector.getObject(index);
+        // Rows are built concurrently in blocks, each into its own slot of the page
+        List<Map<String, Object>> rows = new ArrayList<>(Collections.nCopies(count, null));
+        int blockCount = (count + PARALLEL_EXTRACT_MIN_ROWS - 1) / PARALLEL_EXTRACT_MIN_ROWS;
+        forEachTask(blockCount, block -> {
+            int blockEnd = Math.min((block + 1) * PARALLEL_EXTRACT_MIN_ROWS, count);
+            for (int i = block * PARALLEL_EXTRACT_MIN_ROWS; i < blockEnd; i++) {
+                rows.set(i, extractRow(columns, indices[from + i]));
+            }
+        });
+        return rows;
+    }
+    
+    private Map<String, Object> extractRow(List<ChunkedColumn> columns, int rowIndex) {
+        Map<String, Object> row = new HashMap<>();
+        for (ChunkedColumn column : columns) {
+            row.put(column.getName(), column.getObject(rowIndex));
+        }
+        return row;
     }
     
+    private List<Map<String, Object>> extractData(ChunkedTable table) {
+        List<Map<String, Object>> results = new ArrayList<>();
+        List<ChunkedColumn> columns = table.columns();
+        int rowCount = table.getRowCount();
+        
+        for (int rowIndex = 0; rowIndex < rowCount; rowIndex++) {
+            results.add(extractRow(columns, rowIndex));
+        }
+        
+        return results;
+    }
     
     @Override
     public boolean updateFieldValue(String sessionId, String recordId, String fieldName, Object newValue) {
-        VectorSchemaRoot root = sessionTables.get(sessionId);
-        if (root == null) {
+        ChunkedTable table = sessionTables.get(sessionId);
+        if (table == null) {
             return false;
         }
+        table.lock().writeLock().lock();
+        try {
+            if (sessionTables.get(sessionId) != table) {
+                return false;
+            }
+            Map<String, Set<Integer>> changedBatches = new HashMap<>();
+            boolean updated = updateRecord(table, sessionId, recordId, fieldName, newValue, changedBatches);
+            onRecordsUpdated(sessionId, table, changedBatches);
+            return updated;
+        } finally {
+            table.lock().writeLock().unlock();
+        }
+    }
+    
+    @Override
+    public List<Integer> updateFieldValues(String sessionId, List<FieldUpdate> updates) {
+        Span span = getTracer().spanBuilder("arrow.updateFieldValues")
+                .setAttribute("sessionId", sessionId)
+                .setAttribute("updateCount", updates.size())
+                .setAttribute("implementation", "Arrow")
+                .startSpan();
         
-        // Find the field vector
-        FieldVector fieldVector = root.getVector(fieldName);
-        if (fieldVector == null) {
+        try {
+            List<Integer> failed = new ArrayList<>();
+            ChunkedTable table = sessionTables.get(sessionId);
+            if (table == null) {
+                for (int i = 0; i < updates.size(); i++) {
+                    failed.add(i);
+                }
+                return failed;
+            }
+            
+            // All edits are applied under one lock; statistics and caches are refreshed once at the end
+            table.lock().writeLock().lock();
+            try {
+                if (sessionTables.get(sessionId) != table) {
+                    for (int i = 0; i < updates.size(); i++) {
+                        failed.add(i);
+                    }
+                    return failed;
+                }
+                Map<String, Set<Integer>> changedBatches = new HashMap<>();
+                for (int i = 0; i < updates.size(); i++) {
+                    FieldUpdate update = updates.get(i);
+                    if (!updateRecord(table, sessionId, update.getRecordId(), update.getField(), update.getValue(), changedBatches)) {
+                        failed.add(i);
+                    }
+                }
+                onRecordsUpdated(sessionId, table, changedBatches);
+            } finally {
+                table.lock().writeLock().unlock();
+            }
+            span.setAttribute("failedCount", failed.size());
+            return failed;
+        } finally {
+            span.end();
+        }
+    }
+    
+    // Updates one field of a record in place, noting the batch it changed in changedBatches
+    private boolean updateRecord(ChunkedTable table, String sessionId, String recordId, String fieldName, Object newValue,
+                                 Map<String, Set<Integer>> changedBatches) {
+        // Find the field column
+        ChunkedColumn fieldColumn = table.column(fieldName);
+        if (fieldColumn == null || recordId == null || newValue == null) {
             return false;
         }
         
         // Find the record by ID
-        FieldVector idVector = root.getVector("id");
-        if (idVector == null) {
+        ChunkedColumn idColumn = table.column(ID_COLUMN);
+        if (idColumn == null) {
             return false;
         }
         
-        int recordIndex = -1;
-        for (int i = 0; i < idVector.getValueCount(); i++) {
-            Object currentId = idVector.getObject(i);
-            if (currentId != null && currentId.toString().equals(recordId)) {
-                recordIndex = i;
-                break;
-            }
-        }
-        
+        int recordIndex = findRecord(sessionId, idColumn, recordId);
         if (recordIndex == -1) {
             return false;
         }
         
+        // The value is updated in place in the batch holding the record
+        int batch = fieldColumn.batchOf(recordIndex);
+        int batchIndex = recordIndex - fieldColumn.start(batch);
+        FieldVector fieldVector = fieldColumn.vector(batch);
+        
+        SortedIndex sortedIndex = getColumnIndexes(sessionId).sortedIndex(fieldName);
+        BitmapIndex bitmapIndex = getColumnIndexes(sessionId).bitmapIndex(fieldName);
+        PrimaryKeyIndex keyIndex = fieldName.equals(ID_COLUMN) ? primaryKeyIndexes.get(sessionId) : null;
+        Object oldValue = sortedIndex != null || bitmapIndex != null || keyIndex != null ? fieldColumn.getObject(recordIndex) : null;
+        
+        TrigramIndex searchIndex = searchIndexes.get(sessionId);
+        boolean indexed = searchIndex != null && searchIndex.covers(fieldName);
+        if (indexed) {
+            searchIndex.removeRow(table, recordIndex);
+        }
         try {
+            // An encoded column stores the value's code, unless the value outgrows the dictionary
+            DictionaryColumn dictionary = fieldColumn.dictionary();
+            int code = -1;
+            if (dictionary != null) {
+                byte[] bytes = newValue.toString().getBytes();
+                code = dictionary.code(bytes, 0, bytes.length);
+                if (code < 0) {
+                    table.decodeColumn(table.columnIndex(fieldName));
+                    fieldColumn = table.column(fieldName);
+                    fieldVector = fieldColumn.vector(batch);
+                }
+            }
+            
             // Update the field value based on its type
-            if (fieldVector instanceof VarCharVector) {
-                ((VarCharVector) fieldVector).setSafe(recordIndex, newValue.toString().getBytes());
+            if (code >= 0) {
+                ((IntVector) fieldVector).set(batchIndex, code);
+            } else if (fieldVector instanceof VarCharVector) {
+                replaceVariableWidthValue((VarCharVector) fieldVector, batchIndex, newValue.toString().getBytes());
             } else if (fieldVector instanceof IntVector) {
-                ((IntVector) fieldVector).setSafe(recordIndex, Integer.parseInt(newValue.toString()));
+                ((IntVector) fieldVector).setSafe(batchIndex, Integer.parseInt(newValue.toString()));
             } else if (fieldVector instanceof BigIntVector) {
-                ((BigIntVector) fieldVector).setSafe(recordIndex, Long.parseLong(newValue.toString()));
+                ((BigIntVector) fieldVector).setSafe(batchIndex, Long.parseLong(newValue.toString()));
             } else if (fieldVector instanceof Float8Vector) {
-                ((Float8Vector) fieldVector).setSafe(recordIndex, Double.parseDouble(newValue.toString()));
+                ((Float8Vector) fieldVector).setSafe(batchIndex, Double.parseDouble(newValue.toString()));
             } else if (fieldVector instanceof Float4Vector) {
-                ((Float4Vector) fieldVector).setSafe(recordIndex, Float.parseFloat(newValue.toString()));
+                ((Float4Vector) fieldVector).setSafe(batchIndex, Float.parseFloat(newValue.toString()));
             } else {
                 return false;
             }
             
+            changedBatches.computeIfAbsent(fieldName, k -> new TreeSet<>()).add(batch);
+            if (sortedIndex != null) {
+                sortedIndex.update(recordIndex, numericValue(oldValue), numericValue(fieldColumn.getObject(recordIndex)));
+            }
+            if (bitmapIndex != null && !bitmapIndex.update(recordIndex, oldValue, fieldColumn.getObject(recordIndex))) {
+                getColumnIndexes(sessionId).bitmapIndexes().remove(fieldName);
+            }
+            if (keyIndex != null) {
+                // Later edits may address the record by its new id; with repeated ids another row may take over the old one
+                if (keyIndex.hasDuplicates()) {
+                    primaryKeyIndexes.put(sessionId, PrimaryKeyIndex.build(idColumn, sessionTombstones.get(sessionId)));
+                } else {
+                    keyIndex.remove((Integer) oldValue, recordIndex);
+                    keyIndex.put((Integer) fieldColumn.getObject(recordIndex), recordIndex);
+                }
+            }
             return true;
         } catch (Exception e) {
             return false;
+        } finally {
+            if (indexed) {
+                searchIndex.addRow(table, recordIndex);
+            }
         }
     }
     
+    private static Double numericValue(Object value) {
+        return value == null ? null : ((Number) value).doubleValue();
+    }
+    
+    // Row of the live record with the given id, from the primary key index when the id column has one
+    private int findRecord(String sessionId, ChunkedColumn idColumn, String recordId) {
+        PrimaryKeyIndex keyIndex = primaryKeyIndexes.get(sessionId);
+        if (keyIndex != null) {
+            int key;
+            try {
+                key = Integer.parseInt(recordId);
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+            // Only the canonical form matches, as when comparing the id's toString()
+            return Integer.toString(key).equals(recordId) ? keyIndex.get(key) : -1;
+        }
+        
+        Tombstones tombstones = sessionTombstones.get(sessionId);
+        for (int i = 0; i < idColumn.rowCount(); i++) {
+            if (tombstones != null && tombstones.isDeleted(i)) {
+                continue;
+            }
+            Object currentId = idColumn.getObject(i);
+            if (currentId != null && currentId.toString().equals(recordId)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    // Refreshes the statistics of the changed batches and drops the cached results they affect
+    private void onRecordsUpdated(String sessionId, ChunkedTable table, Map<String, Set<Integer>> changedBatches) {
+        if (changedBatches.isEmpty()) {
+            return;
+        }
+        invalidateQueryResults(sessionId);
+        SortPermutationCache sortCache = sortCaches.get(sessionId);
+        for (Map.Entry<String, Set<Integer>> entry : changedBatches.entrySet()) {
+            ZoneMap zoneMap = getColumnIndexes(sessionId).zoneMap(entry.getKey());
+            if (zoneMap != null) {
+                ChunkedColumn column = table.column(entry.getKey());
+                for (int batch : entry.getValue()) {
+                    zoneMap.update(column, batch);
+                }
+            }
+            if (sortCache != null) {
+                sortCache.invalidateColumn(entry.getKey());
+            }
+        }
+    }
+    
+    /**
+     * Replaces the value of one row of a variable-width vector in place, shifting the bytes
+     * and offsets of the following rows. setSafe only supports writing rows in order: on an
+     * earlier row it overwrites the next values and later truncates the rows after it.
+     */
+    private void replaceVariableWidthValue(BaseVariableWidthVector vector, int index, byte[] value) {
+        int valueCount = vector.getValueCount();
+        int start = vector.getStartOffset(index);
+        int end = vector.getEndOffset(index);
+        int dataEnd = vector.getStartOffset(valueCount);
+        int delta = value.length - (end - start);
+        
+        while (vector.getDataBuffer().capacity() < (long) dataEnd + delta) {
+            vector.reallocDataBuffer();
+        }
+        ArrowBuf data = vector.getDataBuffer();
+        if (delta != 0 && dataEnd > end) {
+            data.setBytes(end + delta, data, end, dataEnd - end);
+        }
+        data.setBytes(start, value);
+        
+        ArrowBuf offsets = vector.getOffsetBuffer();
+        for (int i = index + 1; i <= valueCount; i++) {
+            long position = (long) i * BaseVariableWidthVector.OFFSET_WIDTH;
+            offsets.setInt(position, offsets.getInt(position) + delta);
+        }
+        BitVectorHelper.setBit(vector.getValidityBuffer(), index);
+        vector.setLastSet(valueCount - 1);
+    }
+    
     @Override
     public int deleteByQuery(String sessionId, TableQueryRequest queryRequest) {
         Span span = getTracer().spanBuilder("arrow.deleteByQuery")
@@ -745,91 +1872,187 @@ public class ArrowTableService implements TableService {
                 .startSpan();
         
         try {
-            VectorSchemaRoot root = sessionTables.get(sessionId);
-            if (root == null) {
-                return 0;
-            }
-            
-            // Generate indices of rows that match the deletion criteria
-            List<Integer> matchingIndices = generateMatchingIndices(root, queryRequest);
-            int deletedCount = matchingIndices.size();
-            
-            if (deletedCount == 0) {
+            ChunkedTable table = sessionTables.get(sessionId);
+            if (table == null) {
                 return 0;
             }
-            
-            int totalRows = root.getRowCount();
-            if (deletedCount == totalRows) {
-                // If deleting all rows, just clear and recreate empty schema
-                List<ColumnDefinition> schema = sessionSchemas.get(sessionId);
-                clearSession(sessionId);
-                createSchema(sessionId, schema);
-                span.setAttribute("deletedRows", deletedCount);
-                span.setAttribute("remainingRows", 0);
-                return deletedCount;
-            }
-            
-            // Create a set of indices to delete for O(1) lookup
-            Set<Integer> indicesToDelete = new HashSet<>(matchingIndices);
-            
-            // Build array of indices for rows we want to keep
-            int[] keepIndices = new int[totalRows - deletedCount];
-            int keepIndex = 0;
-            for (int rowIndex = 0; rowIndex < totalRows; rowIndex++) {
-                if (!indicesToDelete.contains(rowIndex)) {
-                    keepIndices[keepIndex++] = rowIndex;
-                }
-            }
-            
-            // Create new VectorSchemaRoot with same schema
-            VectorSchemaRoot newRoot = VectorSchemaRoot.create(root.getSchema(), allocator);
-            int newRowCount = keepIndices.length;
-            
-            // Allocate vectors for the new root
-            for (FieldVector newVector : newRoot.getFieldVectors()) {
-                if (newVector instanceof BaseVariableWidthVector) {
-                    // Find the corresponding column definition to get the width
-                    String fieldName = newVector.getField().getName();
-                    List<ColumnDefinition> schema = sessionSchemas.get(sessionId);
-                    ColumnDefinition colDef = schema.stream()
-                        .filter(col -> col.getName().equals(fieldName))
-                        .findFirst()
-                        .orElse(null);
-                    
-                    int width = (colDef != null && colDef.hasWidth()) ? colDef.getWidth() : 80;
-                    ((BaseVariableWidthVector) newVector).allocateNew(newRowCount * width, newRowCount);
-                } else {
-                    newVector.allocateNew();
+            table.lock().writeLock().lock();
+            try {
+                if (sessionTables.get(sessionId) != table) {
+                    return 0;
                 }
+                return deleteRows(sessionId, table, queryRequest, span);
+            } finally {
+                table.lock().writeLock().unlock();
             }
-            
-            // Copy data directly using Arrow's vector operations
-            for (int colIndex = 0; colIndex < root.getFieldVectors().size(); colIndex++) {
-                FieldVector sourceVector = root.getVector(colIndex);
-                FieldVector targetVector = newRoot.getVector(colIndex);
-                
-                // Copy values at specified indices using Arrow's native operations
-                copyVectorValues(sourceVector, targetVector, keepIndices);
-            }
-            
-            newRoot.setRowCount(newRowCount);
-            
-            // Replace the old root with the new one
-            VectorSchemaRoot oldRoot = sessionTables.put(sessionId, newRoot);
-            sessionRowCounts.put(sessionId, newRowCount);
-            
-            // Close the old root
-            if (oldRoot != null) {
-                oldRoot.close();
-            }
-            
+        } finally {
+            span.end();
+        }
+    }
+    
+    // Marks the matching rows deleted; the batches holding them are rewritten later by the compactor
+    private int deleteRows(String sessionId, ChunkedTable table, TableQueryRequest queryRequest, Span span) {
+        // Generate indices of rows that match the deletion criteria, skipping rows deleted before
+        SelectionVectorPool pool = getSelectionPool(sessionId);
+        SelectionVector matchingIndices = generateMatchingIndices(table, queryRequest, pool);
+        int deletedCount = matchingIndices.size();
+        
+        if (deletedCount == 0) {
+            pool.release(matchingIndices);
+            return 0;
+        }
+        
+        int totalRows = table.getRowCount();
+        Tombstones tombstones = sessionTombstones.computeIfAbsent(sessionId, k -> new Tombstones());
+        if (deletedCount == totalRows - tombstones.count()) {
+            pool.release(matchingIndices);
+            // If deleting all rows, just clear and recreate empty schema
+            List<ColumnDefinition> schema = sessionSchemas.get(sessionId);
+            clearSession(sessionId);
+            createSchema(sessionId, schema);
             span.setAttribute("deletedRows", deletedCount);
-            span.setAttribute("remainingRows", newRowCount);
-            
+            span.setAttribute("remainingRows", 0);
             return deletedCount;
+        }
+        
+        // Only the matched rows are touched; cached permutations and indexes keep covering every
+        // row, since scans drop the deleted ones
+        tombstones.delete(matchingIndices);
+        PrimaryKeyIndex keyIndex = primaryKeyIndexes.get(sessionId);
+        if (keyIndex != null) {
+            if (keyIndex.hasDuplicates()) {
+                // Another row of a repeated id may take over, so index the remaining rows again
+                primaryKeyIndexes.put(sessionId, PrimaryKeyIndex.build(table.column(ID_COLUMN), tombstones));
+            } else {
+                keyIndex.removeRows(table.column(ID_COLUMN), matchingIndices);
+            }
+        }
+        pool.release(matchingIndices);
+        invalidateQueryResults(sessionId);
+        
+        int pendingRows = tombstones.count();
+        span.setAttribute("deletedRows", deletedCount);
+        span.setAttribute("remainingRows", totalRows - pendingRows);
+        span.setAttribute("pendingDeletedRows", pendingRows);
+        if (pendingRows >= compactionThreshold * totalRows) {
+            scheduleCompaction(sessionId);
+        }
+        return deletedCount;
+    }
+    
+    // Queues a background compaction of the session unless one is already waiting
+    private void scheduleCompaction(String sessionId) {
+        if (pendingCompactions.add(sessionId)) {
+            getCompactor().execute(() -> {
+                pendingCompactions.remove(sessionId);
+                compact(sessionId);
+            });
+        }
+    }
+    
+    /**
+     * Rewrites the batches holding deleted rows without them, dropping batches left empty,
+     * and renumbers the session's caches and indexes. Runs in the background once the deleted
+     * fraction of a session reaches the compaction threshold. Returns the rows removed.
+     */
+    public int compact(String sessionId) {
+        ChunkedTable table = sessionTables.get(sessionId);
+        if (table == null) {
+            return 0;
+        }
+        table.lock().writeLock().lock();
+        try {
+            Tombstones tombstones = sessionTombstones.get(sessionId);
+            if (sessionTables.get(sessionId) != table || tombstones == null || tombstones.isEmpty()) {
+                return 0; // Cleared or compacted meanwhile
+            }
             
+            Span span = getTracer().spanBuilder("arrow.compact")
+                    .setAttribute("sessionId", sessionId)
+                    .setAttribute("implementation", "Arrow")
+                    .startSpan();
+            try {
+                long startTime = System.currentTimeMillis();
+                int totalRows = table.getRowCount();
+                int[] keepIndices = new int[totalRows - tombstones.count()];
+                int keepIndex = 0;
+                for (int rowIndex = 0; rowIndex < totalRows; rowIndex++) {
+                    if (!tombstones.isDeleted(rowIndex)) {
+                        keepIndices[keepIndex++] = rowIndex;
+                    }
+                }
+                int newRowCount = keepIndices.length;
+                
+                // Rewrite only the batches that lose rows; batches losing every row are dropped
+                int[] batchStarts = table.batchStarts();
+                List<VectorSchemaRoot> oldBatches = table.batches();
+                List<VectorSchemaRoot> newBatches = new ArrayList<>(oldBatches.size());
+                List<VectorSchemaRoot> replacedBatches = new ArrayList<>();
+                int rewrittenBatches = 0;
+                int keepFrom = 0;
+                for (int batch = 0; batch < oldBatches.size(); batch++) {
+                    VectorSchemaRoot oldBatch = oldBatches.get(batch);
+                    int batchStart = batchStarts[batch];
+                    int keepTo = keepFrom;
+                    while (keepTo < keepIndices.length && keepIndices[keepTo] < batchStarts[batch + 1]) {
+                        keepTo++;
+                    }
+                    int kept = keepTo - keepFrom;
+                    if (kept == oldBatch.getRowCount()) {
+                        newBatches.add(oldBatch);
+                    } else {
+                        replacedBatches.add(oldBatch);
+                        if (kept > 0) {
+                            int[] batchKeepIndices = new int[kept];
+                            for (int i = 0; i < kept; i++) {
+                                batchKeepIndices[i] = keepIndices[keepFrom + i] - batchStart;
+                            }
+                            newBatches.add(copyBatchRows(oldBatch, batchKeepIndices, sessionSchemas.get(sessionId)));
+                            rewrittenBatches++;
+                        }
+                    }
+                    keepFrom = keepTo;
+                }
+                
+                // Replace the old batches with the new ones and renumber the surviving rows
+                table.setBatches(newBatches);
+                sessionRowCounts.put(sessionId, newRowCount);
+                invalidateQueryResults(sessionId);
+                patchSortPermutationsForDelete(sessionId, totalRows, keepIndices);
+                TrigramIndex searchIndex = searchIndexes.get(sessionId);
+                if (searchIndex != null) {
+                    searchIndex.retain(keepIndices, totalRows);
+                }
+                ColumnIndexes columnIndexes = getColumnIndexes(sessionId);
+                // Batches were rewritten or dropped, so rebuild the statistics over the new batches
+                columnIndexes.zoneMaps().replaceAll((column, zoneMap) -> ZoneMap.create(table.column(column)));
+                for (SortedIndex sortedIndex : columnIndexes.sortedIndexes().values()) {
+                    sortedIndex.retain(keepIndices, totalRows);
+                }
+                for (BitmapIndex bitmapIndex : columnIndexes.bitmapIndexes().values()) {
+                    bitmapIndex.retain(keepIndices, totalRows);
+                }
+                primaryKeyIndexes.computeIfPresent(sessionId, (k, keyIndex) -> PrimaryKeyIndex.build(table.column(ID_COLUMN), null));
+                sessionTombstones.remove(sessionId);
+                sessionCompactions.merge(sessionId, 1, Integer::sum);
+                
+                // Close the replaced batches
+                replacedBatches.forEach(VectorSchemaRoot::close);
+                
+                span.setAttribute("compactTimeMs", System.currentTimeMillis() - startTime);
+                span.setAttribute("rewrittenBatches", rewrittenBatches);
+                span.setAttribute("droppedBatches", replacedBatches.size() - rewrittenBatches);
+                span.setAttribute("removedRows", totalRows - newRowCount);
+                span.setAttribute("remainingRows", newRowCount);
+                return totalRows - newRowCount;
+            } catch (RuntimeException e) {
+                span.recordException(e);
+                throw e;
+            } finally {
+                span.end();
+            }
         } finally {
-            span.end();
+            table.lock().writeLock().unlock();
         }
     }
     
@@ -838,6 +2061,32 @@ public class ArrowTableService implements TableService {
         return new ArrayList<>(sessionTables.keySet());
     }
     
+    // Copies the rows at sourceIndices of a batch into a new batch of the same schema; encoded columns copy their codes
+    private VectorSchemaRoot copyBatchRows(VectorSchemaRoot batch, int[] sourceIndices, List<ColumnDefinition> schema) {
+        VectorSchemaRoot newBatch = VectorSchemaRoot.create(batch.getSchema(), allocator);
+        int newRowCount = sourceIndices.length;
+        
+        // Allocate vectors for the new batch
+        for (int colIndex = 0; colIndex < newBatch.getFieldVectors().size(); colIndex++) {
+            FieldVector newVector = newBatch.getVector(colIndex);
+            if (newVector instanceof BaseVariableWidthVector) {
+                ColumnDefinition colDef = schema.get(colIndex);
+                int width = colDef.hasWidth() ? colDef.getWidth() : 80;
+                ((BaseVariableWidthVector) newVector).allocateNew((long) newRowCount * width, newRowCount);
+            } else {
+                newVector.setInitialCapacity(newRowCount);
+                newVector.allocateNew();
+            }
+        }
+        
+        // Copy data directly using Arrow's vector operations
+        for (int colIndex = 0; colIndex < batch.getFieldVectors().size(); colIndex++) {
+            copyVectorValues(batch.getVector(colIndex), newBatch.getVector(colIndex), sourceIndices);
+        }
+        newBatch.setRowCount(newRowCount);
+        return newBatch;
+    }
+    
     private void copyVectorValues(FieldVector sourceVector, FieldVector targetVector, int[] sourceIndices) {
         // Copy values at specified indices - more efficient than get/set but still works correctly
         for (int targetIndex = 0; targetIndex < sourceIndices.length; targetIndex++) {
@@ -867,20 +2116,4 @@ public class ArrowTableService implements TableService {
             return DataType.STRING;
         }
     }
-    
-    private int compareValues(Object value1, Object value2) {
-        if (value1 == null && value2 == null) return 0;
-        if (value1 == null) return -1;
-        if (value2 == null) return 1;
-        
-        try {
-            // Try numeric comparison
-            double d1 = Double.parseDouble(value1.toString());
-            double d2 = Double.parseDouble(value2.toString());
-            return Double.compare(d1, d2);
-        } catch (NumberFormatException e) {
-            // Fall back to string comparison
-            return value1.toString().compareTo(value2.toString());
-        }
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,144 @@
+package amat.arrowstore.bigtable.service;
+
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.vector.BitVector;
+import org.apache.arrow.vector.BitVectorHelper;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.IntVector;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Bitmap index of a BOOLEAN or low-cardinality INTEGER column: the rows of every distinct
+ * value in a {@link PostingBitmap}, keyed by the value as the column boxes it, plus the
+ * null rows. A filter is decided once per distinct value and resolves to the union of the
+ * accepted bitmaps. Deleted rows stay indexed until compaction renumbers the table.
+ */
+final class BitmapIndex {
+
+    private final Map<Object, PostingBitmap> postings = new HashMap<>();
+    private final int maxCardinality;
+    private PostingBitmap nulls = new PostingBitmap();
+    private int rowCount;
+    private long buildNanos;
+
+    private BitmapIndex(int maxCardinality) {
+        this.maxCardinality = maxCardinality;
+    }
+
+    /**
+     * Indexes every row of the column, or returns null for columns other than BOOLEAN and
+     * INTEGER and for INTEGER columns with more than {@code maxCardinality} distinct values.
+     */
+    static BitmapIndex build(ChunkedColumn column, int maxCardinality) {
+        FieldVector vector = column.vector(0);
+        if (!(vector instanceof IntVector || vector instanceof BitVector)) {
+            return null;
+        }
+        long start = System.nanoTime();
+        BitmapIndex index = new BitmapIndex(vector instanceof BitVector ? 2 : maxCardinality);
+        if (!index.addRows(column, 0, column.rowCount())) {
+            return null;
+        }
+        index.buildNanos = System.nanoTime() - start;
+        return index;
+    }
+
+    /** Indexes rows {@code [from, to)}; false when a new value exceeds the cardinality limit. */
+    boolean addRows(ChunkedColumn column, int from, int to) {
+        for (int batch = from < to ? column.batchOf(from) : column.batchCount(); batch < column.batchCount() && column.start(batch) < to; batch++) {
+            int start = column.start(batch);
+            FieldVector vector = column.vector(batch);
+            ArrowBuf data = vector.getDataBuffer();
+            ArrowBuf validity = vector.getValidityBuffer();
+            boolean bits = vector instanceof BitVector;
+            for (int row = Math.max(from, start), end = Math.min(to, column.start(batch + 1)); row < end; row++) {
+                int local = row - start;
+                if (BitVectorHelper.get(validity, local) == 0) {
+                    nulls.add(row);
+                    continue;
+                }
+                Object value = bits
+                    ? Boolean.valueOf(BitVectorHelper.get(data, local) == 1)
+                    : Integer.valueOf(data.getInt((long) local * IntVector.TYPE_WIDTH));
+                PostingBitmap posting = posting(value);
+                if (posting == null) {
+                    return false;
+                }
+                posting.add(row);
+            }
+        }
+        rowCount = Math.max(rowCount, to);
+        return true;
+    }
+
+    /** Moves a row whose value changed in place; false when the new value exceeds the cardinality limit. */
+    boolean update(int row, Object oldValue, Object newValue) {
+        PostingBitmap old = oldValue == null ? nulls : postings.get(oldValue);
+        if (old != null) {
+            old.remove(row);
+            if (oldValue != null && old.isEmpty()) {
+                postings.remove(oldValue);
+            }
+        }
+        PostingBitmap posting = newValue == null ? nulls : posting(newValue);
+        if (posting == null) {
+            return false;
+        }
+        posting.add(row);
+        return true;
+    }
+
+    /** Keeps the rows listed in {@code keepIndices}, renumbered to their position there. */
+    void retain(int[] keepIndices, int oldRowCount) {
+        int[] newIndex = new int[oldRowCount];
+        Arrays.fill(newIndex, -1);
+        for (int i = 0; i < keepIndices.length; i++) {
+            newIndex[keepIndices[i]] = i;
+        }
+        postings.replaceAll((value, posting) -> posting.remap(newIndex));
+        postings.values().removeIf(PostingBitmap::isEmpty);
+        nulls = nulls.remap(newIndex);
+        rowCount = keepIndices.length;
+    }
+
+    /** Rows of every distinct value, keyed by the boxed value. */
+    Map<Object, PostingBitmap> postings() {
+        return postings;
+    }
+
+    PostingBitmap nulls() {
+        return nulls;
+    }
+
+    /** Rows of the table covered by the index, null rows included. */
+    int rowCount() {
+        return rowCount;
+    }
+
+    long buildNanos() {
+        return buildNanos;
+    }
+
+    long bytes() {
+        long bytes = nulls.bytes();
+        for (PostingBitmap posting : postings.values()) {
+            bytes += posting.bytes();
+        }
+        return bytes;
+    }
+
+    private PostingBitmap posting(Object value) {
+        PostingBitmap posting = postings.get(value);
+        if (posting == null) {
+            if (postings.size() >= maxCardinality) {
+                return null;
+            }
+            posting = new PostingBitmap();
+            postings.put(value, posting);
+        }
+        return posting;
+    }
+}
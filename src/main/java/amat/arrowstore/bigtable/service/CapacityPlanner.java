@@ -0,0 +1,90 @@
+package amat.arrowstore.bigtable.service;
+
+import amat.arrowstore.bigtable.model.ColumnDefinition;
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.vector.BaseVariableWidthVector;
+import org.apache.arrow.vector.FieldVector;
+
+import java.util.List;
+
+/**
+ * Grows the vectors of a session's tail batch before rows are appended, tracking value
+ * capacity and, for variable-width vectors, data-buffer bytes. Value capacity doubles; a
+ * data buffer is allocated from the column's width hint and reallocated at most once per
+ * append, to the size its value capacity is expected to need at the average width of the
+ * values stored so far. Counts the bytes each reallocation copies.
+ */
+final class CapacityPlanner {
+
+    private final int[] widthHints;
+    private long copiedBytes;
+    private int reallocations;
+
+    CapacityPlanner(List<ColumnDefinition> schema) {
+        widthHints = new int[schema.size()];
+        for (int colIndex = 0; colIndex < widthHints.length; colIndex++) {
+            ColumnDefinition colDef = schema.get(colIndex);
+            widthHints[colIndex] = colDef.hasWidth() ? colDef.getWidth() : 80;
+        }
+    }
+
+    /** Bytes per value to allocate for a column before any value was stored. */
+    int widthHint(int colIndex) {
+        return widthHints[colIndex];
+    }
+
+    /**
+     * Makes room for rows {@code [rowCount, newRowCount)}, and for {@code appendBytes} more
+     * bytes of values when the vector is variable-width. Existing rows are kept.
+     */
+    synchronized void reserve(FieldVector vector, int rowCount, int newRowCount, long appendBytes) {
+        while (vector.getValueCapacity() < newRowCount) {
+            copiedBytes += capacityBytes(vector);
+            reallocations++;
+            if (vector instanceof BaseVariableWidthVector) {
+                ((BaseVariableWidthVector) vector).reallocValidityAndOffsetBuffers();
+            } else {
+                vector.reAlloc();
+            }
+        }
+        if (!(vector instanceof BaseVariableWidthVector)) {
+            return;
+        }
+
+        BaseVariableWidthVector varVector = (BaseVariableWidthVector) vector;
+        if (varVector.getLastSet() < rowCount - 1) {
+            varVector.setValueCount(rowCount); // fills the offsets of trailing nulls
+        }
+        long usedBytes = varVector.getOffsetBuffer().getInt((long) rowCount * BaseVariableWidthVector.OFFSET_WIDTH);
+        long neededBytes = usedBytes + appendBytes;
+        if (neededBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Column '" + vector.getName() + "' exceeds 2 GB of values");
+        }
+        long dataCapacity = varVector.getDataBuffer().capacity();
+        if (neededBytes <= dataCapacity) {
+            return;
+        }
+
+        // Room for every row of the value capacity at the average width so far, rounded up
+        long plannedBytes = Math.min(Integer.MAX_VALUE,
+            Math.max(neededBytes, (neededBytes * varVector.getValueCapacity() + newRowCount - 1) / newRowCount));
+        copiedBytes += dataCapacity;
+        reallocations++;
+        // Arrow rounds the allocation up to a power of two
+        varVector.reallocDataBuffer(plannedBytes);
+    }
+
+    synchronized long copiedBytes() {
+        return copiedBytes;
+    }
+
+    synchronized int reallocations() {
+        return reallocations;
+    }
+
+    private static long capacityBytes(FieldVector vector) {
+        // Growing the value capacity copies the validity and offsets of a variable-width vector
+        ArrowBuf values = vector instanceof BaseVariableWidthVector ? vector.getOffsetBuffer() : vector.getDataBuffer();
+        return vector.getValidityBuffer().capacity() + values.capacity();
+    }
+}
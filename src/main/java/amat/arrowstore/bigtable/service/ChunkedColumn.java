@@ -0,0 +1,121 @@
+package amat.arrowstore.bigtable.service;
+
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.types.pojo.Field;
+
+import java.util.Arrays;
+
+/**
+ * One column of a {@link ChunkedTable} as of when it was taken: the column's vector in
+ * every batch and the global index of each batch's first row. Kernels locate a row with
+ * {@link #batchOf} and read it from {@code vector(batch)} at {@code row - start(batch)}.
+ * The vectors of a dictionary-encoded column hold the codes of its {@link #dictionary()},
+ * while {@link #getField()} remains the string field.
+ */
+final class ChunkedColumn {
+
+    private final Field field;
+    private final FieldVector[] vectors;
+    private final int[] starts;
+    private final DictionaryColumn dictionary;
+    // Rows per batch when every batch but the last is full, so lookups divide; 0 otherwise
+    private final int uniformSize;
+
+    ChunkedColumn(Field field, FieldVector[] vectors, int[] starts, int batchSize, DictionaryColumn dictionary) {
+        this.field = field;
+        this.vectors = vectors;
+        this.starts = starts;
+        this.dictionary = dictionary;
+        boolean uniform = true;
+        for (int batch = 0; batch + 1 < vectors.length && uniform; batch++) {
+            uniform = starts[batch + 1] - starts[batch] == batchSize;
+        }
+        this.uniformSize = uniform ? batchSize : 0;
+    }
+
+    /** A column held in a single vector, such as the values of a dictionary. */
+    static ChunkedColumn of(FieldVector vector) {
+        return new ChunkedColumn(vector.getField(), new FieldVector[] {vector},
+            new int[] {0, vector.getValueCount()}, Integer.MAX_VALUE, null);
+    }
+
+    String getName() {
+        return field.getName();
+    }
+
+    Field getField() {
+        return field;
+    }
+
+    /** Dictionary whose codes the vectors hold, or null when they hold the values. */
+    DictionaryColumn dictionary() {
+        return dictionary;
+    }
+
+    int batchCount() {
+        return vectors.length;
+    }
+
+    FieldVector vector(int batch) {
+        return vectors[batch];
+    }
+
+    /** Global index of the first row of the batch; {@code start(batchCount())} is the row count. */
+    int start(int batch) {
+        return starts[batch];
+    }
+
+    int rowCount() {
+        return starts[vectors.length];
+    }
+
+    int batchOf(int row) {
+        if (uniformSize > 0) {
+            return Math.min(row / uniformSize, vectors.length - 1);
+        }
+        int batch = Arrays.binarySearch(starts, 0, vectors.length, row);
+        if (batch >= 0) {
+            // Skip empty batches starting at the same row
+            while (batch + 1 < vectors.length && starts[batch + 1] == row) {
+                batch++;
+            }
+            return batch;
+        }
+        return -batch - 2;
+    }
+
+    boolean isNull(int row) {
+        int batch = batchOf(row);
+        return vectors[batch].isNull(row - starts[batch]);
+    }
+
+    Object getObject(int row) {
+        int batch = batchOf(row);
+        if (dictionary != null) {
+            IntVector codes = (IntVector) vectors[batch];
+            int index = row - starts[batch];
+            return codes.isNull(index) ? null : VectorValues.extract(dictionary.values(), codes.get(index));
+        }
+        return VectorValues.extract(vectors[batch], row - starts[batch]);
+    }
+
+    /** Copies the row's value to {@code index} of a vector of the column's field, decoding codes. */
+    void copyValue(int row, FieldVector target, int index) {
+        int batch = batchOf(row);
+        if (dictionary != null) {
+            dictionary.copyValue((IntVector) vectors[batch], row - starts[batch], (VarCharVector) target, index);
+        } else {
+            target.copyFromSafe(row - starts[batch], index, vectors[batch]);
+        }
+    }
+
+    long getNullCount() {
+        long nulls = 0;
+        for (FieldVector vector : vectors) {
+            nulls += vector.getNullCount();
+        }
+        return nulls;
+    }
+}
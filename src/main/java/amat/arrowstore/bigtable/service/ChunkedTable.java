@@ -0,0 +1,214 @@
+package amat.arrowstore.bigtable.service;
+
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.dictionary.DictionaryEncoder;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.Schema;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A session table held as a list of record batches of at most {@code batchSize} rows.
+ * Only the last batch, the tail, receives appended rows; once full a new tail is started,
+ * so appends never copy the rows of earlier batches, and a delete rewrites only the
+ * batches it removes rows from. Rows are addressed by global index across the batches.
+ * The batch list is replaced rather than modified, so {@link ChunkedColumn}s taken by a
+ * running query keep a consistent view. A table always holds at least one batch.
+ * Queries hold the read lock; appends, deletes and compaction, which renumber rows or
+ * replace batches, hold the write lock.
+ * <p>
+ * A low-cardinality string column may be stored dictionary-encoded: its batch vectors then
+ * hold int32 codes into the column's {@link DictionaryColumn}, and {@link #getSchema()}
+ * still describes it as a string column.
+ */
+final class ChunkedTable implements AutoCloseable {
+
+    private final Schema schema;
+    private final DictionaryColumn[] dictionaries;
+    private final BufferAllocator allocator;
+    private final int batchSize;
+    private final Map<String, Integer> columnIndexes = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile List<VectorSchemaRoot> batches;
+    private volatile int[] starts;
+    // Schema of the batch vectors, with the code fields of encoded columns
+    private volatile Schema storageSchema;
+
+    ChunkedTable(Schema schema, BufferAllocator allocator, int batchSize) {
+        this.schema = schema;
+        this.storageSchema = schema;
+        this.dictionaries = new DictionaryColumn[schema.getFields().size()];
+        this.allocator = allocator;
+        this.batchSize = batchSize;
+        List<Field> fields = schema.getFields();
+        for (int colIndex = 0; colIndex < fields.size(); colIndex++) {
+            columnIndexes.put(fields.get(colIndex).getName(), colIndex);
+        }
+        setBatches(List.of(VectorSchemaRoot.create(schema, allocator)));
+    }
+
+    ReentrantReadWriteLock lock() {
+        return lock;
+    }
+
+    Schema getSchema() {
+        return schema;
+    }
+
+    int batchSize() {
+        return batchSize;
+    }
+
+    int getRowCount() {
+        int[] s = starts;
+        return s[s.length - 1];
+    }
+
+    int batchCount() {
+        return batches.size();
+    }
+
+    List<VectorSchemaRoot> batches() {
+        return batches;
+    }
+
+    VectorSchemaRoot tail() {
+        List<VectorSchemaRoot> current = batches;
+        return current.get(current.size() - 1);
+    }
+
+    /** Index of the column in the schema, or -1 when the table has no such column. */
+    int columnIndex(String name) {
+        return columnIndexes.getOrDefault(name, -1);
+    }
+
+    /** The column across the current batches, or null when the table has no such column. */
+    ChunkedColumn column(String name) {
+        int colIndex = columnIndex(name);
+        return colIndex < 0 ? null : column(colIndex);
+    }
+
+    ChunkedColumn column(int colIndex) {
+        List<VectorSchemaRoot> current = batches;
+        int[] currentStarts = starts;
+        FieldVector[] vectors = new FieldVector[current.size()];
+        for (int batch = 0; batch < vectors.length; batch++) {
+            vectors[batch] = current.get(batch).getVector(colIndex);
+        }
+        return new ChunkedColumn(schema.getFields().get(colIndex), vectors, currentStarts, batchSize,
+            dictionaries[colIndex]);
+    }
+
+    /** Dictionary of the column when it is stored encoded, otherwise null. */
+    DictionaryColumn dictionary(int colIndex) {
+        return dictionaries[colIndex];
+    }
+
+    List<ChunkedColumn> columns() {
+        List<ChunkedColumn> columns = new ArrayList<>(columnIndexes.size());
+        for (int colIndex = 0; colIndex < columnIndexes.size(); colIndex++) {
+            columns.add(column(colIndex));
+        }
+        return columns;
+    }
+
+    /**
+     * Global index of the first row of every batch, followed by the row count. The array is
+     * replaced, never modified, when the batches change.
+     */
+    int[] batchStarts() {
+        return starts;
+    }
+
+    /** Seals the tail and starts a new, unallocated one. */
+    VectorSchemaRoot startBatch() {
+        VectorSchemaRoot batch = VectorSchemaRoot.create(storageSchema, allocator);
+        List<VectorSchemaRoot> next = new ArrayList<>(batches);
+        next.add(batch);
+        setBatches(next);
+        return batch;
+    }
+
+    /** Replaces the tail with a filled batch, closing the old tail. */
+    void replaceTail(VectorSchemaRoot batch) {
+        List<VectorSchemaRoot> next = new ArrayList<>(batches);
+        VectorSchemaRoot oldTail = next.set(next.size() - 1, batch);
+        setBatches(next);
+        oldTail.close();
+    }
+
+    /** Publishes rows written to the tail batch after it had {@code rowCount} rows. */
+    void setTailRowCount(int rowCount) {
+        tail().setRowCount(rowCount);
+        setBatches(batches);
+    }
+
+    /**
+     * Replaces the batch list; batches no longer listed must be closed by the caller. An
+     * empty list leaves one empty batch.
+     */
+    void setBatches(List<VectorSchemaRoot> newBatches) {
+        if (newBatches.isEmpty()) {
+            newBatches = List.of(VectorSchemaRoot.create(storageSchema, allocator));
+        }
+        int[] newStarts = new int[newBatches.size() + 1];
+        for (int batch = 0; batch < newBatches.size(); batch++) {
+            newStarts[batch + 1] = newStarts[batch] + newBatches.get(batch).getRowCount();
+        }
+        // Readers take the batches first, so publish the starts covering them before the list
+        starts = newStarts;
+        batches = List.copyOf(newBatches);
+    }
+
+    /** Replaces the string vectors of the column in every batch by their codes in the dictionary. */
+    void encodeColumn(int colIndex, DictionaryColumn dictionary) {
+        DictionaryEncoder encoder = dictionary.encoder();
+        List<VectorSchemaRoot> encoded = new ArrayList<>(batches.size());
+        for (VectorSchemaRoot batch : batches) {
+            encoded.add(replaceVector(batch, colIndex, (FieldVector) encoder.encode(batch.getVector(colIndex))));
+        }
+        dictionaries[colIndex] = dictionary;
+        storageSchema = encoded.get(0).getSchema();
+        setBatches(encoded);
+    }
+
+    /** Restores the string vectors of an encoded column and closes its dictionary. */
+    void decodeColumn(int colIndex) {
+        DictionaryColumn dictionary = dictionaries[colIndex];
+        Field field = schema.getFields().get(colIndex);
+        List<VectorSchemaRoot> decoded = new ArrayList<>(batches.size());
+        for (VectorSchemaRoot batch : batches) {
+            decoded.add(replaceVector(batch, colIndex, dictionary.decode((IntVector) batch.getVector(colIndex), field)));
+        }
+        dictionaries[colIndex] = null;
+        storageSchema = decoded.get(0).getSchema();
+        setBatches(decoded);
+        dictionary.close();
+    }
+
+    // The batch with one vector swapped, closing the old one; the other vectors are shared
+    private static VectorSchemaRoot replaceVector(VectorSchemaRoot batch, int colIndex, FieldVector vector) {
+        List<FieldVector> vectors = new ArrayList<>(batch.getFieldVectors());
+        vectors.set(colIndex, vector).close();
+        List<Field> fields = new ArrayList<>(batch.getSchema().getFields());
+        fields.set(colIndex, vector.getField());
+        return new VectorSchemaRoot(fields, vectors, batch.getRowCount());
+    }
+
+    @Override
+    public void close() {
+        batches.forEach(VectorSchemaRoot::close);
+        for (DictionaryColumn dictionary : dictionaries) {
+            if (dictionary != null) {
+                dictionary.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package amat.arrowstore.bigtable.service;
+
+import amat.arrowstore.bigtable.model.ColumnDefinition;
+
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A batch of rows to append to a session table, held column by column in primitive arrays:
+ * {@code int[]} and {@code double[]} for numbers, a {@link BitSet} for booleans, and either
+ * offsets into one byte array or one byte array per row for strings (UTF-8) and binary
+ * values. Nulls are given as a bitset of null rows, or as null entries of a {@code byte[][]}.
+ * Columns of the schema that are missing from the batch are appended as nulls.
+ */
+public final class ColumnBatch {
+
+    private final int rowCount;
+    private final Map<String, Column> columns = new HashMap<>();
+
+    public ColumnBatch(int rowCount) {
+        if (rowCount < 0) {
+            throw new IllegalArgumentException("Negative row count: " + rowCount);
+        }
+        this.rowCount = rowCount;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public ColumnBatch putInts(String column, int[] values, BitSet nulls) {
+        checkLength(column, values.length, rowCount);
+        Column col = new Column(Kind.INTS, nulls);
+        col.ints = values;
+        columns.put(column, col);
+        return this;
+    }
+
+    public ColumnBatch putDoubles(String column, double[] values, BitSet nulls) {
+        checkLength(column, values.length, rowCount);
+        Column col = new Column(Kind.DOUBLES, nulls);
+        col.doubles = values;
+        columns.put(column, col);
+        return this;
+    }
+
+    public ColumnBatch putBooleans(String column, BitSet values, BitSet nulls) {
+        Column col = new Column(Kind.BOOLEANS, nulls);
+        col.booleans = values;
+        columns.put(column, col);
+        return this;
+    }
+
+    /**
+     * Values of a STRING or BINARY column as one byte array, row {@code i} spanning
+     * {@code data[offsets[i], offsets[i + 1])}.
+     */
+    public ColumnBatch putBytes(String column, int[] offsets, byte[] data, BitSet nulls) {
+        checkLength(column, offsets.length, rowCount + 1);
+        if (offsets[0] < 0 || offsets[rowCount] > data.length || offsets[0] > offsets[rowCount]) {
+            throw new IllegalArgumentException("Offsets of column '" + column + "' exceed its data");
+        }
+        Column col = new Column(Kind.OFFSETS, nulls);
+        col.offsets = offsets;
+        col.data = data;
+        columns.put(column, col);
+        return this;
+    }
+
+    /** Values of a STRING or BINARY column as one array per row; null entries are null values. */
+    public ColumnBatch putBytes(String column, byte[][] values) {
+        checkLength(column, values.length, rowCount);
+        Column col = new Column(Kind.ARRAYS, null);
+        col.arrays = values;
+        columns.put(column, col);
+        return this;
+    }
+
+    /**
+     * Converts row maps to a batch, taking numbers and booleans as they were deserialized and
+     * parsing their string form otherwise, like the row-based upload always did.
+     */
+    public static ColumnBatch fromRows(List<ColumnDefinition> schema, List<Map<String, Object>> rows) {
+        int rowCount = rows.size();
+        ColumnBatch batch = new ColumnBatch(rowCount);
+        for (ColumnDefinition colDef : schema) {
+            String name = colDef.getName();
+            BitSet nulls = new BitSet(rowCount);
+            switch (colDef.getType()) {
+                case INTEGER: {
+                    int[] values = new int[rowCount];
+                    for (int i = 0; i < rowCount; i++) {
+                        Object value = rows.get(i).get(name);
+                        if (value == null) {
+                            nulls.set(i);
+                        } else {
+                            values[i] = value instanceof Integer ? (Integer) value : Integer.parseInt(value.toString());
+                        }
+                    }
+                    batch.putInts(name, values, nulls);
+                    break;
+                }
+                case DOUBLE: {
+                    double[] values = new double[rowCount];
+                    for (int i = 0; i < rowCount; i++) {
+                        Object value = rows.get(i).get(name);
+                        if (value == null) {
+                            nulls.set(i);
+                        } else {
+                            values[i] = value instanceof Number ? ((Number) value).doubleValue() : Double.parseDouble(value.toString());
+                        }
+                    }
+                    batch.putDoubles(name, values, nulls);
+                    break;
+                }
+                case BOOLEAN: {
+                    BitSet values = new BitSet(rowCount);
+                    for (int i = 0; i < rowCount; i++) {
+                        Object value = rows.get(i).get(name);
+                        if (value == null) {
+                            nulls.set(i);
+                        } else if (value instanceof Boolean ? (Boolean) value : Boolean.parseBoolean(value.toString())) {
+                            values.set(i);
+                        }
+                    }
+                    batch.putBooleans(name, values, nulls);
+                    break;
+                }
+                case BINARY: {
+                    byte[][] values = new byte[rowCount][];
+                    for (int i = 0; i < rowCount; i++) {
+                        values[i] = (byte[]) rows.get(i).get(name);
+                    }
+                    batch.putBytes(name, values);
+                    break;
+                }
+                default: {
+                    byte[][] values = new byte[rowCount][];
+                    for (int i = 0; i < rowCount; i++) {
+                        Object value = rows.get(i).get(name);
+                        if (value != null) {
+                            values[i] = value.toString().getBytes(StandardCharsets.UTF_8);
+                        }
+                    }
+                    batch.putBytes(name, values);
+                }
+            }
+        }
+        return batch;
+    }
+
+    /** The column's values, or null when the batch leaves it null. */
+    Column column(String name) {
+        return columns.get(name);
+    }
+
+    private static void checkLength(String column, int length, int expected) {
+        if (length < expected) {
+            throw new IllegalArgumentException("Column '" + column + "' has " + length
+                + " entries, expected " + expected);
+        }
+    }
+
+    enum Kind { INTS, DOUBLES, BOOLEANS, OFFSETS, ARRAYS }
+
+    /** One column of the batch; exactly the arrays of its kind are set. */
+    static final class Column {
+        final Kind kind;
+        final BitSet nulls;
+        int[] ints;
+        double[] doubles;
+        BitSet booleans;
+        int[] offsets;
+        byte[] data;
+        byte[][] arrays;
+
+        private Column(Kind kind, BitSet nulls) {
+            this.kind = kind;
+            this.nulls = nulls;
+        }
+
+        boolean isNull(int row) {
+            return kind == Kind.ARRAYS ? arrays[row] == null : nulls != null && nulls.get(row);
+        }
+
+        /** Bytes of the values of rows {@code [from, to)} of a variable-width column. */
+        long byteLength(int from, int to) {
+            if (kind == Kind.OFFSETS) {
+                return offsets[to] - offsets[from];
+            }
+            long length = 0;
+            for (int row = from; row < to; row++) {
+                if (arrays[row] != null) {
+                    length += arrays[row].length;
+                }
+            }
+            return length;
+        }
+    }
+}
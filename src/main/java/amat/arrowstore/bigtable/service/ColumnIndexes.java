@@ -0,0 +1,48 @@
+package amat.arrowstore.bigtable.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-session structures derived from the column vectors, looked up by column name when
+ * filters and sorts are compiled.
+ */
+final class ColumnIndexes implements AutoCloseable {
+
+    static final ColumnIndexes NONE = new ColumnIndexes();
+
+    private final Map<String, ZoneMap> zoneMaps = new ConcurrentHashMap<>();
+    private final Map<String, SortedIndex> sortedIndexes = new ConcurrentHashMap<>();
+    private final Map<String, BitmapIndex> bitmapIndexes = new ConcurrentHashMap<>();
+
+    ZoneMap zoneMap(String column) {
+        return zoneMaps.get(column);
+    }
+
+    Map<String, ZoneMap> zoneMaps() {
+        return zoneMaps;
+    }
+
+    SortedIndex sortedIndex(String column) {
+        return sortedIndexes.get(column);
+    }
+
+    Map<String, SortedIndex> sortedIndexes() {
+        return sortedIndexes;
+    }
+
+    BitmapIndex bitmapIndex(String column) {
+        return bitmapIndexes.get(column);
+    }
+
+    Map<String, BitmapIndex> bitmapIndexes() {
+        return bitmapIndexes;
+    }
+
+    @Override
+    public void close() {
+        zoneMaps.clear();
+        sortedIndexes.clear();
+        bitmapIndexes.clear();
+    }
+}
@@ -0,0 +1,31 @@
+package amat.arrowstore.bigtable.service;
+
+/**
+ * A filter resolved against one column of a {@link ChunkedTable}, evaluated a row range at
+ * a time. A range always lies within one batch of the table.
+ */
+interface ColumnPredicate {
+
+    /**
+     * Writes the match bits for rows {@code [from, to)} into {@code words}: bit {@code i}
+     * is set when row {@code from + i} matches. Every word covering the range is
+     * overwritten and bits past the range are left clear.
+     */
+    void evaluate(int from, int to, long[] words);
+
+    /**
+     * Whether any row in {@code [from, to)} may match; false lets the caller skip the
+     * range without evaluating it. Predicates without statistics answer true.
+     */
+    default boolean mayMatch(int from, int to) {
+        return true;
+    }
+
+    /**
+     * Relative cost of evaluating a row, used to order the predicates of a filter: 1 is a
+     * word-wide bit operation, 16 a boxed comparison.
+     */
+    default double cost() {
+        return 16.0;
+    }
+}
@@ -0,0 +1,937 @@
+package amat.arrowstore.bigtable.service;
+
+import amat.arrowstore.bigtable.model.FilterCriteria;
+import amat.arrowstore.bigtable.model.FilterOperation;
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.vector.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Compiles {@link FilterCriteria} into typed column predicates. Vector lookup, type
+ * dispatch and filter value conversion happen once here; the predicates then run tight
+ * per-type loops over the Arrow buffers.
+ */
+final class ColumnPredicates {
+
+    // Comparison outcomes accepted by an operation: bit 0 = less, bit 1 = equal, bit 2 = greater
+    private static final int LT = 1;
+    private static final int EQ = 2;
+    private static final int GT = 4;
+
+    static final ColumnPredicate ALL_ROWS = (from, to, words) -> {
+        int count = to - from;
+        int wordCount = RowBitmap.wordCount(count);
+        for (int w = 0; w < wordCount; w++) {
+            words[w] = RowBitmap.tailMask(Math.min(64, count - (w << 6)));
+        }
+    };
+
+    private ColumnPredicates() {
+    }
+
+    static ColumnPredicate compile(ChunkedTable table, FilterCriteria filter, ColumnIndexes indexes) {
+        ChunkedColumn column = table.column(filter.getColumn());
+        if (column == null) {
+            return ALL_ROWS;
+        }
+
+        FilterOperation operation = filter.getOperation();
+        List<Object> filterValues = filter.getValues();
+        boolean nullMatches = operation == FilterOperation.IS_NULL;
+
+        if (filterValues == null || filterValues.isEmpty()
+                || operation == FilterOperation.IS_NULL || operation == FilterOperation.IS_NOT_NULL) {
+            return new NullnessPredicate(column, operation == FilterOperation.IS_NOT_NULL, nullMatches);
+        }
+
+        DictionaryColumn dictionary = column.dictionary();
+        if (dictionary != null) {
+            // Evaluate the filter once per distinct value, then look rows up by code
+            long[] matches = new long[Math.max(RowBitmap.wordCount(dictionary.size()), 1)];
+            if (dictionary.size() > 0) {
+                compileValues(ChunkedColumn.of(dictionary.values()), operation, filterValues, null)
+                    .evaluate(0, dictionary.size(), matches);
+            }
+            return new DictionaryPredicate(column, matches);
+        }
+
+        BitmapIndex bitmapIndex = indexes.bitmapIndex(filter.getColumn());
+        if (bitmapIndex != null && bitmapIndex.rowCount() == column.rowCount()) {
+            ColumnPredicate indexed = BitmapIndexPredicate.compile(bitmapIndex, operation, filterValues);
+            if (indexed != null) {
+                return indexed;
+            }
+        }
+        SortedIndex sortedIndex = indexes.sortedIndex(filter.getColumn());
+        if (sortedIndex != null && sortedIndex.rowCount() == column.rowCount()) {
+            ColumnPredicate indexed = SortedIndexPredicate.compile(sortedIndex, column, operation, filterValues);
+            if (indexed != null) {
+                return indexed;
+            }
+        }
+        return compileValues(column, operation, filterValues, indexes.zoneMap(filter.getColumn()));
+    }
+
+    private static ColumnPredicate compileValues(ChunkedColumn column, FilterOperation operation, List<Object> filterValues,
+                                                 ZoneMap zoneMap) {
+        Object filterValue = filterValues.get(0);
+
+        switch (operation) {
+            case EQUALS:
+            case NOT_EQUALS:
+            case GREATER_THAN:
+            case GREATER_THAN_OR_EQUAL:
+            case LESS_THAN:
+            case LESS_THAN_OR_EQUAL:
+                return compileComparison(column, operation, filterValue, zoneMap);
+            case CONTAINS:
+            case STARTS_WITH:
+            case ENDS_WITH:
+                return new StringMatchPredicate(column, operation, filterValue.toString());
+            case IN:
+            case NOT_IN:
+                return compileMembership(column, operation == FilterOperation.NOT_IN, filterValues, zoneMap);
+            default:
+                return new GenericPredicate(column, operation, filterValues);
+        }
+    }
+
+    private static ColumnPredicate compileComparison(ChunkedColumn column, FilterOperation operation, Object filterValue,
+                                                     ZoneMap zoneMap) {
+        int accept = acceptMask(operation);
+        FieldVector vector = column.vector(0);
+
+        if (vector instanceof IntVector) {
+            if (filterValue instanceof Number) {
+                return new IntComparisonPredicate(column, accept, ((Number) filterValue).intValue(), zoneMap);
+            }
+            Double parsed = VectorValues.parseDouble(filterValue);
+            if (parsed != null) {
+                return new IntAsDoubleComparisonPredicate(column, accept, parsed, zoneMap);
+            }
+        } else if (vector instanceof Float8Vector) {
+            Double key = filterValue instanceof Number
+                ? Double.valueOf(((Number) filterValue).doubleValue())
+                : VectorValues.parseDouble(filterValue);
+            if (key != null) {
+                return new DoubleComparisonPredicate(column, accept, key, zoneMap);
+            }
+        } else if (vector instanceof BitVector) {
+            int compareTrue;
+            int compareFalse;
+            if (filterValue instanceof Boolean) {
+                compareTrue = Boolean.compare(true, (Boolean) filterValue);
+                compareFalse = Boolean.compare(false, (Boolean) filterValue);
+            } else {
+                compareTrue = VectorValues.compare(Boolean.TRUE, filterValue);
+                compareFalse = VectorValues.compare(Boolean.FALSE, filterValue);
+            }
+            return new BooleanComparisonPredicate(column,
+                accepts(accept, compareTrue), accepts(accept, compareFalse), zoneMap);
+        } else if (vector instanceof VarCharVector && VectorValues.parseDouble(filterValue) == null) {
+            // A non-numeric filter value always compares as a string, so compare raw UTF-8 bytes
+            return new Utf8ComparisonPredicate(column, accept,
+                filterValue.toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        return new GenericPredicate(column, operation, List.of(filterValue));
+    }
+
+    /**
+     * IN matches values whose string form equals a filter value's, so every filter value is
+     * converted once to the single column value it can equal, if any, and rows are probed in
+     * a typed hash set of those values.
+     */
+    private static ColumnPredicate compileMembership(ChunkedColumn column, boolean negated, List<Object> filterValues,
+                                                     ZoneMap zoneMap) {
+        FieldVector vector = column.vector(0);
+        if (vector instanceof IntVector) {
+            ValueHashSets.IntSet values = new ValueHashSets.IntSet(filterValues.size());
+            for (Object filterValue : filterValues) {
+                Double key = filterValue == null ? null : canonicalKey(filterValue.toString(), true);
+                if (key != null) {
+                    values.add(key.intValue());
+                }
+            }
+            return new IntMembershipPredicate(column, values, negated, zoneMap);
+        } else if (vector instanceof Float8Vector) {
+            ValueHashSets.DoubleSet values = new ValueHashSets.DoubleSet(filterValues.size());
+            for (Object filterValue : filterValues) {
+                Double key = filterValue == null ? null : canonicalKey(filterValue.toString(), false);
+                if (key != null) {
+                    values.add(key);
+                }
+            }
+            return new DoubleMembershipPredicate(column, values, negated, zoneMap);
+        } else if (vector instanceof VarCharVector) {
+            ValueHashSets.Utf8Set values = new ValueHashSets.Utf8Set(filterValues.size());
+            for (Object filterValue : filterValues) {
+                if (filterValue != null) {
+                    values.add(filterValue.toString().getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            return new Utf8MembershipPredicate(column, values, negated);
+        } else if (vector instanceof BitVector) {
+            boolean trueListed = filterValues.stream().anyMatch(value -> value != null && value.toString().equals("true"));
+            boolean falseListed = filterValues.stream().anyMatch(value -> value != null && value.toString().equals("false"));
+            return new BooleanComparisonPredicate(column, trueListed != negated, falseListed != negated, zoneMap);
+        }
+        return new GenericPredicate(column, negated ? FilterOperation.NOT_IN : FilterOperation.IN, filterValues);
+    }
+
+    // The column value whose string form is exactly the given one, or null when there is none
+    static Double canonicalKey(String value, boolean intColumn) {
+        try {
+            if (intColumn) {
+                int key = Integer.parseInt(value);
+                return Integer.toString(key).equals(value) ? Double.valueOf(key) : null;
+            }
+            double key = Double.parseDouble(value);
+            return Double.toString(key).equals(value) ? key : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    static int acceptMask(FilterOperation operation) {
+        switch (operation) {
+            case EQUALS: return EQ;
+            case NOT_EQUALS: return LT | GT;
+            case GREATER_THAN: return GT;
+            case GREATER_THAN_OR_EQUAL: return GT | EQ;
+            case LESS_THAN: return LT;
+            case LESS_THAN_OR_EQUAL: return LT | EQ;
+            default: return 0;
+        }
+    }
+
+    static boolean accepts(int accept, int comparison) {
+        return ((accept >>> (Integer.signum(comparison) + 1)) & 1) != 0;
+    }
+
+    private static long acceptBit(int accept, int comparison) {
+        return (accept >>> (Integer.signum(comparison) + 1)) & 1L;
+    }
+
+    /**
+     * Shared batch lookup and null handling: every range lies within one batch, which
+     * {@link #evaluate(int, int, int, long[])} receives with the range in batch-local rows.
+     * Null rows match only when {@code nullMatches}.
+     */
+    abstract static class AbstractColumnPredicate implements ColumnPredicate {
+        protected final ChunkedColumn column;
+        private final boolean[] hasNulls;
+        private final boolean nullMatches;
+
+        AbstractColumnPredicate(ChunkedColumn column, boolean nullMatches) {
+            this.column = column;
+            this.hasNulls = new boolean[column.batchCount()];
+            for (int batch = 0; batch < hasNulls.length; batch++) {
+                hasNulls[batch] = column.vector(batch).getNullCount() > 0;
+            }
+            this.nullMatches = nullMatches;
+        }
+
+        @Override
+        public final void evaluate(int from, int to, long[] words) {
+            int batch = column.batchOf(from);
+            int start = column.start(batch);
+            evaluate(batch, from - start, to - start, words);
+        }
+
+        /** Writes the match bits of the batch-local rows {@code [from, to)}. */
+        abstract void evaluate(int batch, int from, int to, long[] words);
+
+        protected final long applyValidity(int batch, long bits, int base, int count) {
+            if (!hasNulls[batch]) {
+                return bits;
+            }
+            long valid = validBits(column.vector(batch), base, count);
+            return (bits & valid) | (nullMatches ? ~valid & RowBitmap.tailMask(count) : 0L);
+        }
+
+        private static long validBits(FieldVector vector, int base, int count) {
+            return RowBitmap.readBits(vector.getValidityBuffer(), base, count);
+        }
+    }
+
+    /** Row-at-a-time evaluation through {@link #test(FieldVector, int)}, for predicates without a typed loop. */
+    abstract static class RowPredicate extends AbstractColumnPredicate {
+
+        RowPredicate(ChunkedColumn column, boolean nullMatches) {
+            super(column, nullMatches);
+        }
+
+        @Override
+        void evaluate(int batch, int from, int to, long[] words) {
+            FieldVector vector = column.vector(batch);
+            for (int w = 0, base = from; base < to; w++, base += 64) {
+                int count = Math.min(64, to - base);
+                long bits = 0;
+                for (int i = 0; i < count; i++) {
+                    if (!vector.isNull(base + i) && test(vector, base + i)) {
+                        bits |= 1L << i;
+                    }
+                }
+                words[w] = applyValidity(batch, bits, base, count);
+            }
+        }
+
+        /** Tests a non-null row of a batch vector. */
+        abstract boolean test(FieldVector vector, int row);
+    }
+
+    static final class NullnessPredicate extends AbstractColumnPredicate {
+        private final long nonNullBits;
+
+        NullnessPredicate(ChunkedColumn column, boolean nonNullMatches, boolean nullMatches) {
+            super(column, nullMatches);
+            this.nonNullBits = nonNullMatches ? -1L : 0L;
+        }
+
+        @Override
+        public double cost() {
+            return 1.0;
+        }
+
+        @Override
+        void evaluate(int batch, int from, int to, long[] words) {
+            for (int w = 0, base = from; base < to; w++, base += 64) {
+                int count = Math.min(64, to - base);
+                words[w] = applyValidity(batch, nonNullBits & RowBitmap.tailMask(count), base, count);
+            }
+        }
+    }
+
+    static final class IntComparisonPredicate extends AbstractColumnPredicate {
+        private final int accept;
+        private final int key;
+        private final ZoneMap zoneMap;
+
+        IntComparisonPredicate(ChunkedColumn column, int accept, int key, ZoneMap zoneMap) {
+            super(column, false);
+            this.accept = accept;
+            this.key = key;
+            this.zoneMap = zoneMap;
+        }
+
+        @Override
+        public double cost() {
+            return 2.0;
+        }
+
+        @Override
+        public boolean mayMatch(int from, int to) {
+            return zoneMap == null || zoneMap.mayMatch(column.batchOf(from), accept, key);
+        }
+
+        @Override
+        void evaluate(int batch, int from, int to, long[] words) {
+            ArrowBuf data = column.vector(batch).getDataBuffer();
+            for (int w = 0, base = from; base < to; w++, base += 64) {
+                int count = Math.min(64, to - base);
+                long bits = 0;
+                for (int i = 0; i < count; i++) {
+                    int value = data.getInt((long) (base + i) * IntVector.TYPE_WIDTH);
+                    bits |= acceptBit(accept, Integer.compare(value, key)) << i;
+                }
+                words[w] = applyValidity(batch, bits, base, count);
+            }
+        }
+    }
+
+    static final class IntAsDoubleComparisonPredicate extends AbstractColumnPredicate {
+        private final int accept;
+        private final double key;
+        private final ZoneMap zoneMap;
+
+        IntAsDoubleComparisonPredicate(ChunkedColumn column, int accept, double key, ZoneMap zoneMap) {
+            super(column, false);
+            this.accept = accept;
+            this.key = key;
+            this.zoneMap = zoneMap;
+        }
+
+        @Override
+        public double cost() {
+            return 2.0;
+        }
+
+        @Override
+        public boolean mayMatch(int from, int to) {
+            return zoneMap == null || zoneMap.mayMatch(column.batchOf(from), accept, key);
+        }
+
+        @Override
+        void evaluate(int batch, int from, int to, long[] words) {
+            ArrowBuf data = column.vector(batch).getDataBuffer();
+            for (int w = 0, base = from; base < to; w++, base += 64) {
+                int count = Math.min(64, to - base);
+                long bits = 0;
+                for (int i = 0; i < count; i++) {
+                    int value = data.getInt((long) (base + i) * IntVector.TYPE_WIDTH);
+                    bits |= acceptBit(accept, Double.compare(value, key)) << i;
+                }
+                words[w] = applyValidity(batch, bits, base, count);
+            }
+        }
+    }
+
+    static final class DoubleComparisonPredicate extends AbstractColumnPredicate {
+        private final int accept;
+        private final double key;
+        private final ZoneMap zoneMap;
+
+        DoubleComparisonPredicate(ChunkedColumn column, int accept, double key, ZoneMap zoneMap) {
+            super(column, false);
+            this.accept = accept;
+            this.key = key;
+            this.zoneMap = zoneMap;
+        }
+
+        @Override
+        public double cost() {
+            return 2.0;
+        }
+
+        @Override
+        public boolean mayMatch(int from, int to) {
+            return zoneMap == null || zoneMap.mayMatch(column.batchOf(from), accept, key);
+        }
+
+        @Override
+        void evaluate(int batch, int from, int to, long[] words) {
+            ArrowBuf data = column.vector(batch).getDataBuffer();
+            for (int w = 0, base = from; base < to; w++, base += 64) {
+                int count = Math.min(64, to - base);
+                long bits = 0;
+                for (int i = 0; i < count; i++) {
+                    double value = data.getDouble((long) (base + i) * Float8Vector.TYPE_WIDTH);
+                    bits |= acceptBit(accept, Double.compare(value, key)) << i;
+                }
+                words[w] = applyValidity(batch, bits, base, count);
+            }
+        }
+    }
+
+    static final class BooleanComparisonPredicate extends AbstractColumnPredicate {
+        private final long trueMask;
+        private final long falseMask;
+        private final ZoneMap zoneMap;
+
+        BooleanComparisonPredicate(ChunkedColumn column, boolean trueMatches, boolean falseMatches, ZoneMap zoneMap) {
+            super(column, false);
+            this.trueMask = trueMatches ? -1L : 0L;
+            this.falseMask = falseMatches ? -1L : 0L;
+            this.zoneMap = zoneMap;
+        }
+
+        @Override
+        public double cost() {
+            return 1.0;
+        }
+
+        @Override
+        public boolean mayMatch(int from, int to) {
+            // Booleans are tracked as 0 and 1, so ask whether either accepted value occurs
+            int batch = column.batchOf(from);
+            return zoneMap == null
+                || (trueMask != 0 && zoneMap.mayMatch(batch, EQ, 1))
+                || (falseMask != 0 && zoneMap.mayMatch(batch, EQ, 0));
+        }
+
+        @Override
+        void evaluate(int batch, int from, int to, long[] words) {
+            ArrowBuf data = column.vector(batch).getDataBuffer();
+            for (int w = 0, base = from; base < to; w++, base += 64) {
+                int count = Math.min(64, to - base);
+                long values = RowBitmap.readBits(data, base, count);
+                long bits = ((values & trueMask) | (~values & falseMask)) & RowBitmap.tailMask(count);
+                words[w] = applyValidity(batch, bits, base, count);
+            }
+        }
+    }
+
+    static final class Utf8ComparisonPredicate extends AbstractColumnPredicate {
+        private final int accept;
+        private final byte[] key;
+
+        Utf8ComparisonPredicate(ChunkedColumn column, int accept, byte[] key) {
+            super(column, false);
+            this.accept = accept;
+            this.key = key;
+        }
+
+        @Override
+        public double cost() {
+            return 4.0;
+        }
+
+        @Override
+        void evaluate(int batch, int from, int to, long[] words) {
+            FieldVector vector = column.vector(batch);
+            ArrowBuf offsets = vector.getOffsetBuffer();
+            ArrowBuf data = vector.getDataBuffer();
+            for (int w = 0, base = from; base < to; w++, base += 64) {
+                int count = Math.min(64, to - base);
+                long bits = 0;
+                for (int i = 0; i < count; i++) {
+                    long row = base + i;
+                    int start = offsets.getInt(row * BaseVariableWidthVector.OFFSET_WIDTH);
+                    int end = offsets.getInt((row + 1) * BaseVariableWidthVector.OFFSET_WIDTH);
+                    bits |= acceptBit(accept, compareUtf8(data, start, end - start, key)) << i;
+                }
+                words[w] = applyValidity(batch, bits, base, count);
+            }
+        }
+
+        private static int compareUtf8(ArrowBuf data, int start, int length, byte[] key) {
+            int common = Math.min(length, key.length);
+            for (int k = 0; k < common; k++) {
+                int diff = (data.getByte(start + k) & 0xFF) - (key[k] & 0xFF);
+                if (diff != 0) {
+                    return diff;
+                }
+            }
+            return length - key.length;
+        }
+    }
+
+    static final class StringMatchPredicate extends RowPredicate {
+        private final FilterOperation operation;
+        private final Utf8Matcher matcher;
+        private final String needle;
+
+        StringMatchPredicate(ChunkedColumn column, FilterOperation operation, String needle) {
+            super(column, false);
+            this.operation = operation;
+            this.matcher = new Utf8Matcher(needle);
+            this.needle = needle.toLowerCase();
+        }
+
+        @Override
+        public double cost() {
+            return 8.0;
+        }
+
+        @Override
+        void evaluate(int batch, int from, int to, long[] words) {
+            FieldVector vector = column.vector(batch);
+            if (!(vector instanceof VarCharVector)) {
+                super.evaluate(batch, from, to, words);
+                return;
+            }
+            ArrowBuf offsets = vector.getOffsetBuffer();
+            ArrowBuf data = vector.getDataBuffer();
+            for (int w = 0, base = from; base < to; w++, base += 64) {
+                int count = Math.min(64, to - base);
+                long bits = 0;
+                for (int i = 0; i < count; i++) {
+                    long row = base + i;
+                    int start = offsets.getInt(row * BaseVariableWidthVector.OFFSET_WIDTH);
+                    int length = offsets.getInt((row + 1) * BaseVariableWidthVector.OFFSET_WIDTH) - start;
+                    if (matches(data, start, length)) {
+                        bits |= 1L << i;
+                    }
+                }
+                words[w] = applyValidity(batch, bits, base, count);
+            }
+        }
+
+        private boolean matches(ArrowBuf data, int start, int length) {
+            switch (operation) {
+                case CONTAINS: return matcher.contains(data, start, length);
+                case STARTS_WITH: return matcher.startsWith(data, start, length);
+                case ENDS_WITH: return matcher.endsWith(data, start, length);
+                default: return false;
+            }
+        }
+
+        @Override
+        boolean test(FieldVector vector, int row) {
+            Object boxed = VectorValues.extract(vector, row);
+            if (boxed == null) return false;
+            String lower = boxed.toString().toLowerCase();
+            switch (operation) {
+                case CONTAINS: return lower.contains(needle);
+                case STARTS_WITH: return lower.startsWith(needle);
+                case ENDS_WITH: return lower.endsWith(needle);
+                default: return false;
+            }
+        }
+    }
+
+    static final class IntMembershipPredicate extends AbstractColumnPredicate {
+        private final ValueHashSets.IntSet values;
+        private final boolean negated;
+        private final ZoneMap zoneMap;
+
+        IntMembershipPredicate(ChunkedColumn column, ValueHashSets.IntSet values, boolean negated, ZoneMap zoneMap) {
+            super(column, false);
+            this.values = values;
+            this.negated = negated;
+            this.zoneMap = zoneMap;
+        }
+
+        @Override
+        public double cost() {
+            return 3.0;
+        }
+
+        @Override
+        public boolean mayMatch(int from, int to) {
+            if (negated) {
+                return true;
+            }
+            int batch = column.batchOf(from);
+            return values.size() > 0 && (zoneMap == null
+                || (zoneMap.mayMatch(batch, GT | EQ, values.min()) && zoneMap.mayMatch(batch, LT | EQ, values.max())));
+        }
+
+        @Override
+        void evaluate(int batch, int from, int to, long[] words) {
+            ArrowBuf data = column.vector(batch).getDataBuffer();
+            for (int w = 0, base = from; base < to; w++, base += 64) {
+                int count = Math.min(64, to - base);
+                long bits = 0;
+                for (int i = 0; i < count; i++) {
+                    int value = data.getInt((long) (base + i) * IntVector.TYPE_WIDTH);
+                    if (values.contains(value) != negated) {
+                        bits |= 1L << i;
+                    }
+                }
+                words[w] = applyValidity(batch, bits, base, count);
+            }
+        }
+    }
+
+    static final class DoubleMembershipPredicate extends AbstractColumnPredicate {
+        private final ValueHashSets.DoubleSet values;
+        private final boolean negated;
+        private final ZoneMap zoneMap;
+
+        DoubleMembershipPredicate(ChunkedColumn column, ValueHashSets.DoubleSet values, boolean negated, ZoneMap zoneMap) {
+            super(column, false);
+            this.values = values;
+            this.negated = negated;
+            this.zoneMap = zoneMap;
+        }
+
+        @Override
+        public double cost() {
+            return 3.0;
+        }
+
+        @Override
+        public boolean mayMatch(int from, int to) {
+            if (negated) {
+                return true;
+            }
+            int batch = column.batchOf(from);
+            return values.size() > 0 && (zoneMap == null
+                || (zoneMap.mayMatch(batch, GT | EQ, values.min()) && zoneMap.mayMatch(batch, LT | EQ, values.max())));
+        }
+
+        @Override
+        void evaluate(int batch, int from, int to, long[] words) {
+            ArrowBuf data = column.vector(batch).getDataBuffer();
+            for (int w = 0, base = from; base < to; w++, base += 64) {
+                int count = Math.min(64, to - base);
+                long bits = 0;
+                for (int i = 0; i < count; i++) {
+                    double value = data.getDouble((long) (base + i) * Float8Vector.TYPE_WIDTH);
+                    if (values.contains(value) != negated) {
+                        bits |= 1L << i;
+                    }
+                }
+                words[w] = applyValidity(batch, bits, base, count);
+            }
+        }
+    }
+
+    static final class Utf8MembershipPredicate extends AbstractColumnPredicate {
+        private final ValueHashSets.Utf8Set values;
+        private final boolean negated;
+
+        Utf8MembershipPredicate(ChunkedColumn column, ValueHashSets.Utf8Set values, boolean negated) {
+            super(column, false);
+            this.values = values;
+            this.negated = negated;
+        }
+
+        @Override
+        public double cost() {
+            return 6.0;
+        }
+
+        @Override
+        public boolean mayMatch(int from, int to) {
+            return negated || values.size() > 0;
+        }
+
+        @Override
+        void evaluate(int batch, int from, int to, long[] words) {
+            FieldVector vector = column.vector(batch);
+            ArrowBuf offsets = vector.getOffsetBuffer();
+            ArrowBuf data = vector.getDataBuffer();
+            for (int w = 0, base = from; base < to; w++, base += 64) {
+                int count = Math.min(64, to - base);
+                long bits = 0;
+                for (int i = 0; i < count; i++) {
+                    long row = base + i;
+                    int start = offsets.getInt(row * BaseVariableWidthVector.OFFSET_WIDTH);
+                    int end = offsets.getInt((row + 1) * BaseVariableWidthVector.OFFSET_WIDTH);
+                    if (values.contains(data, start, end - start) != negated) {
+                        bits |= 1L << i;
+                    }
+                }
+                words[w] = applyValidity(batch, bits, base, count);
+            }
+        }
+    }
+
+    /** Looks up each row's dictionary code, read from the batch vector, in the set of codes whose values match. */
+    static final class DictionaryPredicate extends AbstractColumnPredicate {
+        private final long[] matches;
+
+        DictionaryPredicate(ChunkedColumn column, long[] matches) {
+            super(column, false);
+            this.matches = matches;
+        }
+
+        @Override
+        public double cost() {
+            return 2.0;
+        }
+
+        @Override
+        void evaluate(int batch, int from, int to, long[] words) {
+            ArrowBuf data = column.vector(batch).getDataBuffer();
+            for (int w = 0, base = from; base < to; w++, base += 64) {
+                int count = Math.min(64, to - base);
+                long bits = 0;
+                for (int i = 0; i < count; i++) {
+                    int code = data.getInt((long) (base + i) * IntVector.TYPE_WIDTH);
+                    bits |= ((matches[code >>> 6] >>> code) & 1L) << i;
+                }
+                words[w] = applyValidity(batch, bits, base, count);
+            }
+        }
+    }
+
+    /** Rows resolved up front from an index into a bitmap over the table, so that evaluating a range copies bits. */
+    abstract static class IndexedPredicate implements ColumnPredicate {
+        private final long[] matches;
+        private final double selectivity;
+
+        IndexedPredicate(long[] matches, int rowCount) {
+            this.matches = matches;
+            long matchCount = 0;
+            for (int w = 0, n = RowBitmap.wordCount(rowCount); w < n; w++) {
+                matchCount += Long.bitCount(matches[w] & RowBitmap.tailMask(Math.min(64, rowCount - (w << 6))));
+            }
+            this.selectivity = rowCount == 0 ? 0.0 : (double) matchCount / rowCount;
+        }
+
+        /** Fraction of the table's rows that match, deleted rows included. */
+        double selectivity() {
+            return selectivity;
+        }
+
+        @Override
+        public double cost() {
+            return 1.0;
+        }
+
+        @Override
+        public final void evaluate(int from, int to, long[] words) {
+            int count = to - from;
+            for (int w = 0, base = 0; base < count; w++, base += 64) {
+                words[w] = RowBitmap.bitsAt(matches, from + base) & RowBitmap.tailMask(Math.min(64, count - base));
+            }
+        }
+    }
+
+    /**
+     * Rows found by binary search in a {@link SortedIndex}. Only used when few enough rows
+     * match that setting their bits one by one beats scanning the column.
+     */
+    static final class SortedIndexPredicate extends IndexedPredicate {
+        private static final int MAX_MATCH_FRACTION = 8; // Scan instead when more than 1/8 of the rows match
+
+        private SortedIndexPredicate(long[] matches, int rowCount) {
+            super(matches, rowCount);
+        }
+
+        /** The predicate for the filter, or null when the index cannot serve it or the scan is cheaper. */
+        static ColumnPredicate compile(SortedIndex index, ChunkedColumn column, FilterOperation operation,
+                                       List<Object> filterValues) {
+            boolean intColumn = column.vector(0) instanceof IntVector;
+            List<int[]> ranges = new ArrayList<>();
+            if (operation == FilterOperation.IN) {
+                for (Object filterValue : filterValues) {
+                    // IN matches values whose string form equals the filter value's
+                    Double key = filterValue == null ? null : canonicalKey(filterValue.toString(), intColumn);
+                    if (key != null) {
+                        ranges.add(new int[] {index.lowerBound(key), index.upperBound(key)});
+                    }
+                }
+            } else {
+                int accept = acceptMask(operation);
+                Object filterValue = filterValues.get(0);
+                Double key = filterValue instanceof Number
+                    ? Double.valueOf(intColumn ? ((Number) filterValue).intValue() : ((Number) filterValue).doubleValue())
+                    : VectorValues.parseDouble(filterValue);
+                if (key == null) {
+                    return null;
+                }
+                switch (accept) {
+                    case EQ: ranges.add(new int[] {index.lowerBound(key), index.upperBound(key)}); break;
+                    case LT: ranges.add(new int[] {0, index.lowerBound(key)}); break;
+                    case LT | EQ: ranges.add(new int[] {0, index.upperBound(key)}); break;
+                    case GT: ranges.add(new int[] {index.upperBound(key), index.size()}); break;
+                    case GT | EQ: ranges.add(new int[] {index.lowerBound(key), index.size()}); break;
+                    default: return null;
+                }
+            }
+
+            long matchCount = 0;
+            for (int[] range : ranges) {
+                matchCount += range[1] - range[0];
+            }
+            if (matchCount * MAX_MATCH_FRACTION > index.rowCount()) {
+                return null;
+            }
+            long[] matches = new long[Math.max(RowBitmap.wordCount(index.rowCount()), 1)];
+            for (int[] range : ranges) {
+                for (int position = range[0]; position < range[1]; position++) {
+                    int row = index.row(position);
+                    matches[row >>> 6] |= 1L << row;
+                }
+            }
+            return new SortedIndexPredicate(matches, index.rowCount());
+        }
+    }
+
+    /**
+     * Union of the {@link BitmapIndex} bitmaps of the values a filter accepts, ORed in a word
+     * at a time. When most rows match, it starts from every row instead and clears the null
+     * rows and the rejected values.
+     */
+    static final class BitmapIndexPredicate extends IndexedPredicate {
+
+        private BitmapIndexPredicate(long[] matches, int rowCount) {
+            super(matches, rowCount);
+        }
+
+        /** The predicate for the filter, or null when the operation is not decided per value. */
+        static ColumnPredicate compile(BitmapIndex index, FilterOperation operation, List<Object> filterValues) {
+            List<PostingBitmap> accepted = new ArrayList<>();
+            List<PostingBitmap> rejected = new ArrayList<>();
+            long acceptedRows = 0;
+            long rejectedRows = index.nulls().cardinality();
+            for (Map.Entry<Object, PostingBitmap> entry : index.postings().entrySet()) {
+                Boolean matches = decide(entry.getKey(), operation, filterValues);
+                if (matches == null) {
+                    return null;
+                }
+                if (matches) {
+                    accepted.add(entry.getValue());
+                    acceptedRows += entry.getValue().cardinality();
+                } else {
+                    rejected.add(entry.getValue());
+                    rejectedRows += entry.getValue().cardinality();
+                }
+            }
+
+            long[] matches = new long[Math.max(RowBitmap.wordCount(index.rowCount()), 1)];
+            if (acceptedRows <= rejectedRows) {
+                for (PostingBitmap posting : accepted) {
+                    posting.orInto(matches);
+                }
+            } else {
+                // Bits past the last row are never read, so they may stay set
+                Arrays.fill(matches, -1L);
+                index.nulls().andNotInto(matches);
+                for (PostingBitmap posting : rejected) {
+                    posting.andNotInto(matches);
+                }
+            }
+            return new BitmapIndexPredicate(matches, index.rowCount());
+        }
+
+        // Whether a non-null value passes the filter, decided as the scanning predicates decide it
+        private static Boolean decide(Object value, FilterOperation operation, List<Object> filterValues) {
+            switch (operation) {
+                case EQUALS:
+                case NOT_EQUALS:
+                case GREATER_THAN:
+                case GREATER_THAN_OR_EQUAL:
+                case LESS_THAN:
+                case LESS_THAN_OR_EQUAL:
+                    return accepts(acceptMask(operation), compare(value, filterValues.get(0)));
+                case IN:
+                    return filterValues.stream().anyMatch(fv -> fv != null && (value.equals(fv) || value.toString().equals(fv.toString())));
+                case NOT_IN:
+                    return filterValues.stream().noneMatch(fv -> fv != null && (value.equals(fv) || value.toString().equals(fv.toString())));
+                default:
+                    return null;
+            }
+        }
+
+        private static int compare(Object value, Object filterValue) {
+            if (value instanceof Integer) {
+                if (filterValue instanceof Number) {
+                    return Integer.compare((Integer) value, ((Number) filterValue).intValue());
+                }
+                Double parsed = VectorValues.parseDouble(filterValue);
+                if (parsed != null) {
+                    return Double.compare((Integer) value, parsed);
+                }
+            } else if (filterValue instanceof Boolean) {
+                return Boolean.compare((Boolean) value, (Boolean) filterValue);
+            }
+            return VectorValues.compare(value, filterValue);
+        }
+    }
+
+    /** Row-at-a-time fallback with the original boxed comparison semantics. */
+    static final class GenericPredicate extends RowPredicate {
+        private final FilterOperation operation;
+        private final List<Object> filterValues;
+
+        GenericPredicate(ChunkedColumn column, FilterOperation operation, List<Object> filterValues) {
+            super(column, false);
+            this.operation = operation;
+            this.filterValues = filterValues;
+        }
+
+        @Override
+        boolean test(FieldVector vector, int row) {
+            Object value = VectorValues.extract(vector, row);
+            switch (operation) {
+                case EQUALS:
+                case NOT_EQUALS:
+                case GREATER_THAN:
+                case GREATER_THAN_OR_EQUAL:
+                case LESS_THAN:
+                case LESS_THAN_OR_EQUAL:
+                    return accepts(acceptMask(operation), VectorValues.compare(value, filterValues.get(0)));
+                case IN:
+                    return filterValues.stream().anyMatch(fv -> Objects.equals(value, fv) ||
+                        (value != null && value.toString().equals(fv.toString())));
+                case NOT_IN:
+                    return filterValues.stream().noneMatch(fv -> Objects.equals(value, fv) ||
+                        (value != null && value.toString().equals(fv.toString())));
+                default:
+                    return true;
+            }
+        }
+    }
+}
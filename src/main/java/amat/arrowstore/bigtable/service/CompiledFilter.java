@@ -0,0 +1,302 @@
+package amat.arrowstore.bigtable.service;
+
+import amat.arrowstore.bigtable.model.FilterCriteria;
+import amat.arrowstore.bigtable.model.FilterOperation;
+import amat.arrowstore.bigtable.model.LogicalOperator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The filter list of a query compiled against a session's table into an AND/OR tree. Each
+ * filter joins the clauses before it with its logical operator, AND binding tighter than
+ * OR, and a filter with nested filters is a parenthesized group. Predicates are evaluated
+ * column-at-a-time over a row range and combined word-by-word; the children of a node run
+ * cheapest and most decisive first, and each later child only evaluates the words holding
+ * rows whose outcome is still open.
+ */
+final class CompiledFilter {
+
+    private static final int MIN_SKIPPED_WORDS = 4; // Shorter gaps are evaluated rather than split into calls
+
+    private final Node root;
+
+    private CompiledFilter(Node root) {
+        this.root = root;
+    }
+
+    static CompiledFilter compile(ChunkedTable table, List<FilterCriteria> filters,
+                                  ColumnIndexes indexes) {
+        return new CompiledFilter(filters == null || filters.isEmpty() ? null : compileGroup(table, filters, indexes));
+    }
+
+    // a AND b OR c compiles to OR(AND(a, b), c)
+    private static Node compileGroup(ChunkedTable table, List<FilterCriteria> filters, ColumnIndexes indexes) {
+        List<Node> disjuncts = new ArrayList<>();
+        List<Node> conjuncts = new ArrayList<>();
+        for (FilterCriteria filter : filters) {
+            if (!conjuncts.isEmpty() && filter.getLogicalOperator() == LogicalOperator.OR) {
+                disjuncts.add(And.of(conjuncts));
+                conjuncts = new ArrayList<>();
+            }
+            if (filter.isGroup()) {
+                conjuncts.add(filter.getFilters().isEmpty()
+                    ? new Leaf(ColumnPredicates.ALL_ROWS, null)
+                    : compileGroup(table, filter.getFilters(), indexes));
+            } else {
+                conjuncts.add(new Leaf(ColumnPredicates.compile(table, filter, indexes), filter.getOperation()));
+            }
+        }
+        disjuncts.add(And.of(conjuncts));
+        return Or.of(disjuncts);
+    }
+
+    boolean isEmpty() {
+        return root == null;
+    }
+
+    /**
+     * Evaluates rows {@code [from, to)} of one batch into {@code result}, using
+     * {@code scratch} for the intermediate bitmaps. Returns false when the predicates ruled
+     * the range out from their statistics alone, leaving {@code result} empty.
+     */
+    boolean evaluate(int from, int to, RowBitmap result, Scratch scratch) {
+        int size = to - from;
+        result.reset(size);
+        if (root == null) {
+            result.setAll();
+            return true;
+        }
+        if (!root.mayMatch(from, to)) {
+            result.clearAll();
+            return false;
+        }
+
+        int wordCount = RowBitmap.wordCount(size);
+        long[] open = scratch.buffer(0, wordCount);
+        for (int w = 0; w < wordCount; w++) {
+            open[w] = RowBitmap.tailMask(Math.min(64, size - (w << 6)));
+        }
+        root.evaluate(from, to, result.words(), open, scratch, 1);
+        return true;
+    }
+
+    /** Bitmaps of one evaluating thread, reused from range to range. */
+    static final class Scratch {
+        private long[][] buffers = new long[0][];
+
+        long[] buffer(int index, int wordCount) {
+            if (index >= buffers.length) {
+                buffers = Arrays.copyOf(buffers, index + 1);
+            }
+            if (buffers[index] == null || buffers[index].length < wordCount) {
+                buffers[index] = new long[wordCount];
+            }
+            return buffers[index];
+        }
+    }
+
+    /**
+     * A node of the tree with its estimated fraction of matching rows and cost per row,
+     * the cost counting later children only on the rows they still evaluate.
+     */
+    private abstract static class Node {
+        double selectivity;
+        double cost;
+
+        abstract boolean mayMatch(int from, int to);
+
+        /**
+         * Writes the match bits of rows {@code [from, to)} into {@code out}. Only the bits set
+         * in {@code open} must be right; words without open bits may be left untouched.
+         * Buffers from {@code depth} on are free for the node to use.
+         */
+        abstract void evaluate(int from, int to, long[] out, long[] open, Scratch scratch, int depth);
+    }
+
+    private static final class Leaf extends Node {
+        private final ColumnPredicate predicate;
+
+        Leaf(ColumnPredicate predicate, FilterOperation operation) {
+            this.predicate = predicate;
+            if (predicate == ColumnPredicates.ALL_ROWS) {
+                selectivity = 1.0;
+                cost = 0.0;
+            } else {
+                selectivity = predicate instanceof ColumnPredicates.IndexedPredicate
+                    ? ((ColumnPredicates.IndexedPredicate) predicate).selectivity()
+                    : estimateSelectivity(operation);
+                cost = predicate.cost();
+            }
+        }
+
+        // Rough guesses for predicates without statistics; only their order matters
+        private static double estimateSelectivity(FilterOperation operation) {
+            switch (operation) {
+                case EQUALS: return 0.1;
+                case IN: return 0.2;
+                case CONTAINS:
+                case STARTS_WITH:
+                case ENDS_WITH: return 0.25;
+                case GREATER_THAN:
+                case GREATER_THAN_OR_EQUAL:
+                case LESS_THAN:
+                case LESS_THAN_OR_EQUAL: return 0.33;
+                case IS_NULL: return 0.1;
+                default: return 0.9;
+            }
+        }
+
+        @Override
+        boolean mayMatch(int from, int to) {
+            return predicate.mayMatch(from, to);
+        }
+
+        @Override
+        void evaluate(int from, int to, long[] out, long[] open, Scratch scratch, int depth) {
+            int wordCount = RowBitmap.wordCount(to - from);
+            for (int w = 0; w < wordCount; ) {
+                if (open[w] == 0) {
+                    w++;
+                    continue;
+                }
+                // Extend the run over closed words until a long enough gap
+                int end = w + 1;
+                for (int gap = 0; end + gap < wordCount && gap < MIN_SKIPPED_WORDS; ) {
+                    if (open[end + gap] != 0) {
+                        end += gap + 1;
+                        gap = 0;
+                    } else {
+                        gap++;
+                    }
+                }
+                int runTo = Math.min(to, from + (end << 6));
+                if (w == 0 && runTo == to) {
+                    predicate.evaluate(from, to, out);
+                    return;
+                }
+                long[] run = scratch.buffer(depth, end - w);
+                predicate.evaluate(from + (w << 6), runTo, run);
+                System.arraycopy(run, 0, out, w, end - w);
+                w = end;
+            }
+        }
+    }
+
+    /** Children ordered by cost per row they rule out; each runs only on the rows still matching. */
+    private static final class And extends Node {
+        private final Node[] children;
+
+        private And(List<Node> children) {
+            children.sort(Comparator.comparingDouble(node -> node.cost / Math.max(1.0 - node.selectivity, 1e-3)));
+            this.children = children.toArray(new Node[0]);
+            selectivity = 1.0;
+            for (Node child : this.children) {
+                cost += selectivity * child.cost;
+                selectivity *= child.selectivity;
+            }
+        }
+
+        static Node of(List<Node> children) {
+            return children.size() == 1 ? children.get(0) : new And(children);
+        }
+
+        @Override
+        boolean mayMatch(int from, int to) {
+            for (Node child : children) {
+                if (!child.mayMatch(from, to)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        void evaluate(int from, int to, long[] out, long[] open, Scratch scratch, int depth) {
+            int wordCount = RowBitmap.wordCount(to - from);
+            if (!mayMatch(from, to)) {
+                Arrays.fill(out, 0, wordCount, 0L);
+                return;
+            }
+            children[0].evaluate(from, to, out, open, scratch, depth);
+            long[] childOpen = scratch.buffer(depth, wordCount);
+            long[] childOut = scratch.buffer(depth + 1, wordCount);
+            for (int i = 1; i < children.length; i++) {
+                boolean anyOpen = false;
+                for (int w = 0; w < wordCount; w++) {
+                    childOpen[w] = open[w] & out[w];
+                    anyOpen |= childOpen[w] != 0;
+                }
+                if (!anyOpen) {
+                    return;
+                }
+                children[i].evaluate(from, to, childOut, childOpen, scratch, depth + 2);
+                for (int w = 0; w < wordCount; w++) {
+                    if (childOpen[w] != 0) {
+                        out[w] &= childOut[w] | ~childOpen[w];
+                    }
+                }
+            }
+        }
+    }
+
+    /** Children ordered by cost per row they select; each runs only on the rows not yet matching. */
+    private static final class Or extends Node {
+        private final Node[] children;
+
+        private Or(List<Node> children) {
+            children.sort(Comparator.comparingDouble(node -> node.cost / Math.max(node.selectivity, 1e-3)));
+            this.children = children.toArray(new Node[0]);
+            double unmatched = 1.0;
+            for (Node child : this.children) {
+                cost += unmatched * child.cost;
+                unmatched *= 1.0 - child.selectivity;
+            }
+            selectivity = 1.0 - unmatched;
+        }
+
+        static Node of(List<Node> children) {
+            return children.size() == 1 ? children.get(0) : new Or(children);
+        }
+
+        @Override
+        boolean mayMatch(int from, int to) {
+            for (Node child : children) {
+                if (child.mayMatch(from, to)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        void evaluate(int from, int to, long[] out, long[] open, Scratch scratch, int depth) {
+            int wordCount = RowBitmap.wordCount(to - from);
+            Arrays.fill(out, 0, wordCount, 0L);
+            long[] childOpen = scratch.buffer(depth, wordCount);
+            long[] childOut = scratch.buffer(depth + 1, wordCount);
+            System.arraycopy(open, 0, childOpen, 0, wordCount);
+            for (Node child : children) {
+                // Zone maps may rule a branch out for the whole range
+                if (!child.mayMatch(from, to)) {
+                    continue;
+                }
+                child.evaluate(from, to, childOut, childOpen, scratch, depth + 2);
+                boolean anyOpen = false;
+                for (int w = 0; w < wordCount; w++) {
+                    if (childOpen[w] != 0) {
+                        long matched = childOut[w] & childOpen[w];
+                        out[w] |= matched;
+                        childOpen[w] &= ~matched;
+                        anyOpen |= childOpen[w] != 0;
+                    }
+                }
+                if (!anyOpen) {
+                    return;
+                }
+            }
+        }
+    }
+}
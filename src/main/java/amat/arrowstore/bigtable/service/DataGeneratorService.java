@@ -4,6 +4,7 @@ import amat.arrowstore.bigtable.model.ColumnDefinition;
 import amat.arrowstore.bigtable.model.DataType;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 @Service
@@ -147,6 +148,71 @@ public class DataGeneratorService {
         return data;
     }
     
+    /**
+     * Generates rows {@code firstRow .. firstRow + rowCount - 1} column by column, with the
+     * same values as {@link #generateData} but without building a map per row.
+     */
+    public ColumnBatch generateColumns(int firstRow, int rowCount, List<ColumnDefinition> schema) {
+        ColumnBatch batch = new ColumnBatch(rowCount);
+        Random random = new Random();
+        
+        for (ColumnDefinition column : schema) {
+            switch (column.getType()) {
+                case INTEGER: {
+                    int[] values = new int[rowCount];
+                    for (int row = 0; row < rowCount; row++) {
+                        values[row] = column.getName().equals("id") ? firstRow + row + 1 : random.nextInt(10000);
+                    }
+                    batch.putInts(column.getName(), values, null);
+                    break;
+                }
+                case DOUBLE: {
+                    double[] values = new double[rowCount];
+                    for (int row = 0; row < rowCount; row++) {
+                        values[row] = Math.round(random.nextDouble() * 1000 * 100.0) / 100.0;
+                    }
+                    batch.putDoubles(column.getName(), values, null);
+                    break;
+                }
+                case BOOLEAN: {
+                    BitSet values = new BitSet(rowCount);
+                    for (int row = 0; row < rowCount; row++) {
+                        if (random.nextBoolean()) {
+                            values.set(row);
+                        }
+                    }
+                    batch.putBooleans(column.getName(), values, null);
+                    break;
+                }
+                case BINARY: {
+                    byte[][] values = new byte[rowCount][];
+                    for (int row = 0; row < rowCount; row++) {
+                        values[row] = generateBinaryData(random, 1024);
+                    }
+                    batch.putBytes(column.getName(), values);
+                    break;
+                }
+                default: {
+                    int[] offsets = new int[rowCount + 1];
+                    byte[] data = new byte[rowCount * 16];
+                    int length = 0;
+                    for (int row = 0; row < rowCount; row++) {
+                        byte[] value = ((String) generateValueForColumn(column, random)).getBytes(StandardCharsets.UTF_8);
+                        if (length + value.length > data.length) {
+                            data = Arrays.copyOf(data, Math.max(length + value.length, data.length * 2));
+                        }
+                        System.arraycopy(value, 0, data, length, value.length);
+                        length += value.length;
+                        offsets[row + 1] = length;
+                    }
+                    batch.putBytes(column.getName(), offsets, data, null);
+                }
+            }
+        }
+        
+        return batch;
+    }
+    
     private Object generateValueForColumn(ColumnDefinition column, Random random) {
         switch (column.getType()) {
             case INTEGER:
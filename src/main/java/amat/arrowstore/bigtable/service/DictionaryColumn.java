@@ -0,0 +1,199 @@
+package amat.arrowstore.bigtable.service;
+
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.util.ByteFunctionHelpers;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.dictionary.Dictionary;
+import org.apache.arrow.vector.dictionary.DictionaryEncoder;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.DictionaryEncoding;
+import org.apache.arrow.vector.types.pojo.Field;
+
+import java.util.Arrays;
+
+/**
+ * Dictionary of a low-cardinality string column whose batches store an int32 code per row
+ * in place of the values' bytes. The table keeps the distinct values here, and decodes
+ * rows only where their bytes are needed. Predicates are evaluated once per distinct value
+ * and then looked up by code, and sorts compare precomputed ranks of the values instead of
+ * their bytes. Once the column exceeds the cardinality limit it is decoded again.
+ */
+final class DictionaryColumn implements AutoCloseable {
+
+    private final BufferAllocator allocator;
+    private final int maxCardinality;
+    private final DictionaryEncoding encoding;
+    private final VarCharVector values;
+    private int size;
+
+    // Open-addressing map from value hash to dictionary code + 1 (0 marks a free slot)
+    private final int[] slots;
+    private int[] ranks;
+    private byte[] scratch = new byte[64];
+
+    private DictionaryColumn(BufferAllocator allocator, int maxCardinality, long id, VarCharVector values) {
+        this.allocator = allocator;
+        this.maxCardinality = maxCardinality;
+        this.encoding = new DictionaryEncoding(id, false, new ArrowType.Int(32, true));
+        this.values = values;
+        this.slots = new int[Integer.highestOneBit(Math.max(maxCardinality, 8)) * 4];
+    }
+
+    /**
+     * Collects the distinct values of a string column, or returns null when it has more
+     * than {@code maxCardinality} of them.
+     */
+    static DictionaryColumn create(ChunkedColumn column, long id, int maxCardinality, BufferAllocator allocator) {
+        VarCharVector values = new VarCharVector(column.getName() + "_dictionary", allocator);
+        values.allocateNew();
+        DictionaryColumn dictionary = new DictionaryColumn(allocator, maxCardinality, id, values);
+        for (int batch = 0; batch < column.batchCount(); batch++) {
+            VarCharVector vector = (VarCharVector) column.vector(batch);
+            for (int row = 0, end = column.start(batch + 1) - column.start(batch); row < end; row++) {
+                if (!vector.isNull(row) && dictionary.code(vector, row) < 0) {
+                    dictionary.close();
+                    return null;
+                }
+            }
+        }
+        return dictionary;
+    }
+
+    /** Arrow encoder of string vectors whose values are all in the dictionary. */
+    DictionaryEncoder encoder() {
+        return new DictionaryEncoder(new Dictionary(values, encoding), allocator);
+    }
+
+    /** The string vector of the codes, as a vector of {@code field}. */
+    VarCharVector decode(IntVector codes, Field field) {
+        VarCharVector decoded = (VarCharVector) field.createVector(allocator);
+        decoded.allocateNew(Math.max(codes.getValueCount(), 1));
+        for (int row = 0; row < codes.getValueCount(); row++) {
+            copyValue(codes, row, decoded, row);
+        }
+        decoded.setValueCount(codes.getValueCount());
+        return decoded;
+    }
+
+    /** Writes the value of the code at {@code row} to {@code index} of a string vector. */
+    void copyValue(IntVector codes, int row, VarCharVector target, int index) {
+        if (codes.isNull(row)) {
+            target.setNull(index);
+        } else {
+            target.copyFromSafe(codes.get(row), index, values);
+        }
+    }
+
+    /** Distinct values, indexed by code. */
+    VarCharVector values() {
+        return values;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** Bitmap over codes of the values containing the matcher's needle. */
+    long[] contains(Utf8Matcher matcher) {
+        long[] matches = new long[Math.max(RowBitmap.wordCount(size), 1)];
+        for (int code = 0; code < size; code++) {
+            if (matcher.contains(values, code)) {
+                matches[code >>> 6] |= 1L << code;
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Codes of rows {@code [from, to)} of an appended string column, adding new values; null
+     * rows get code 0. Returns null when the column outgrew the cardinality limit, in which
+     * case the column must be decoded.
+     */
+    int[] encode(ColumnBatch.Column column, int from, int to) {
+        int[] codes = new int[to - from];
+        for (int row = from; row < to; row++) {
+            if (column.isNull(row)) {
+                continue;
+            }
+            int code = column.kind == ColumnBatch.Kind.OFFSETS
+                ? code(column.data, column.offsets[row], column.offsets[row + 1])
+                : code(column.arrays[row], 0, column.arrays[row].length);
+            if (code < 0) {
+                return null;
+            }
+            codes[row - from] = code;
+        }
+        return codes;
+    }
+
+    /** Code of a value, adding it if new; -1 when the dictionary is full. */
+    int code(byte[] bytes, int start, int end) {
+        int mask = slots.length - 1;
+        int slot = hash(bytes, start, end) & mask;
+        ArrowBuf data = values.getDataBuffer();
+        while (slots[slot] != 0) {
+            int code = slots[slot] - 1;
+            if (ByteFunctionHelpers.compare(data, values.getStartOffset(code), values.getEndOffset(code),
+                    bytes, start, end) == 0) {
+                return code;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (size == maxCardinality) {
+            return -1;
+        }
+
+        values.setSafe(size, bytes, start, end - start);
+        values.setValueCount(size + 1);
+        slots[slot] = ++size;
+        return size - 1;
+    }
+
+    /** Position of every code in byte order of the values, so ranks sort like the strings. */
+    synchronized int[] ranks() {
+        if (ranks == null || ranks.length != size) {
+            ArrowBuf data = values.getDataBuffer();
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> ByteFunctionHelpers.compare(
+                data, values.getStartOffset(a), values.getEndOffset(a),
+                data, values.getStartOffset(b), values.getEndOffset(b)));
+            int[] computed = new int[size];
+            for (int i = 0; i < size; i++) {
+                computed[order[i]] = i;
+            }
+            ranks = computed;
+        }
+        return ranks;
+    }
+
+    long bytes() {
+        return values.getBufferSize() + (long) slots.length * Integer.BYTES;
+    }
+
+    @Override
+    public void close() {
+        values.close();
+    }
+
+    private int code(VarCharVector vector, int row) {
+        int length = vector.getEndOffset(row) - vector.getStartOffset(row);
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        vector.getDataBuffer().getBytes(vector.getStartOffset(row), scratch, 0, length);
+        return code(scratch, 0, length);
+    }
+
+    private static int hash(byte[] bytes, int start, int end) {
+        int hash = 1;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,393 @@
+package amat.arrowstore.bigtable.service;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Sorting kernels over primitive row-index arrays.
+ */
+final class IndexSorter {
+
+    private static final int INSERTION_SORT_THRESHOLD = 32;
+
+    private IndexSorter() {
+    }
+
+    /**
+     * Sorts {@code rows[0, size)} by the compound key, first key most significant. Ties
+     * keep their input order. Radix-sortable keys are applied least significant first with
+     * stable LSD radix passes; otherwise a stable merge sort on the compound comparator is used.
+     */
+    static void sort(int[] rows, int size, List<SortKey> keys, SelectionVectorPool pool) {
+        if (size < 2 || keys.isEmpty()) {
+            return;
+        }
+
+        SelectionVector scratch = pool.acquire(size);
+        try {
+            if (!keys.stream().allMatch(SortKey::isRadixSortable)) {
+                mergeSort(rows, size, comparator(keys), scratch.rows());
+                return;
+            }
+
+            long[] radixKeys = pool.acquireKeys(size);
+            long[] radixScratch = pool.acquireKeys(size);
+            try {
+                for (int k = keys.size() - 1; k >= 0; k--) {
+                    sortByKey(rows, size, keys.get(k), radixKeys, scratch.rows(), radixScratch);
+                }
+            } finally {
+                pool.releaseKeys(radixKeys);
+                pool.releaseKeys(radixScratch);
+            }
+        } finally {
+            pool.release(scratch);
+        }
+    }
+
+    /**
+     * Parallel form of {@link #sort}: {@code segments} contiguous ranges are sorted
+     * concurrently on {@code executor} and then merged pairwise, left run first on ties,
+     * so the result is identical to the sequential stable sort.
+     */
+    static void parallelSort(int[] rows, int size, List<SortKey> keys, SelectionVectorPool pool,
+                             ForkJoinPool executor, int segments) {
+        if (segments < 2 || size < segments * 2 || keys.isEmpty()) {
+            sort(rows, size, keys, pool);
+            return;
+        }
+
+        int[] bounds = new int[segments + 1];
+        for (int s = 0; s <= segments; s++) {
+            bounds[s] = (int) ((long) size * s / segments);
+        }
+        executor.submit(() -> IntStream.range(0, segments).parallel().forEach(s -> {
+            int from = bounds[s];
+            int length = bounds[s + 1] - from;
+            SelectionVector segment = pool.acquire(length);
+            try {
+                System.arraycopy(rows, from, segment.rows(), 0, length);
+                sort(segment.rows(), length, keys, pool);
+                System.arraycopy(segment.rows(), 0, rows, from, length);
+            } finally {
+                pool.release(segment);
+            }
+        })).join();
+
+        RowComparator comparator = comparator(keys);
+        SelectionVector scratchVector = pool.acquire(size);
+        try {
+            int[] src = rows;
+            int[] dst = scratchVector.rows();
+            for (int width = 1; width < segments; width <<= 1) {
+                int step = width;
+                int[] from = src;
+                int[] to = dst;
+                executor.submit(() -> IntStream.iterate(0, s -> s < segments, s -> s + 2 * step).parallel().forEach(s -> {
+                    int lo = bounds[s];
+                    int mid = bounds[Math.min(s + step, segments)];
+                    int hi = bounds[Math.min(s + 2 * step, segments)];
+                    merge(from, lo, mid, hi, to, comparator);
+                })).join();
+                src = to;
+                dst = from;
+            }
+            if (src != rows) {
+                System.arraycopy(src, 0, rows, 0, size);
+            }
+        } finally {
+            pool.release(scratchVector);
+        }
+    }
+
+    // Merges the sorted runs src[lo, mid) and src[mid, hi) into dst[lo, hi), stable
+    private static void merge(int[] src, int lo, int mid, int hi, int[] dst, RowComparator comparator) {
+        if (mid >= hi || comparator.compare(src[mid - 1], src[mid]) <= 0) {
+            System.arraycopy(src, lo, dst, lo, hi - lo);
+            return;
+        }
+        for (int i = lo, p = lo, q = mid; i < hi; i++) {
+            if (q >= hi || (p < mid && comparator.compare(src[p], src[q]) <= 0)) {
+                dst[i] = src[p++];
+            } else {
+                dst[i] = src[q++];
+            }
+        }
+    }
+
+    /**
+     * Moves the {@code k} smallest rows of {@code rows[0, size)} to the front in sorted
+     * order, using a bounded max-heap of size {@code k}. Ties are broken by row index, which
+     * matches the stable full sort for selections in ascending row order. The remaining
+     * entries keep the other rows in unspecified order, so the array still holds the same
+     * set of (distinct) rows.
+     */
+    static void topK(int[] rows, int size, int k, List<SortKey> keys, SelectionVectorPool pool) {
+        if (k <= 0 || size < 2) {
+            return;
+        }
+        RowComparator keyComparator = comparator(keys);
+        RowComparator comparator = (row1, row2) -> {
+            int comparison = keyComparator.compare(row1, row2);
+            return comparison != 0 ? comparison : Integer.compare(row1, row2);
+        };
+
+        SelectionVector heapVector = pool.acquire(k);
+        SelectionVector scratch = pool.acquire(k);
+        try {
+            int[] heap = heapVector.rows();
+            int heapSize = 0;
+            for (int i = 0; i < size; i++) {
+                int row = rows[i];
+                if (heapSize < k) {
+                    heap[heapSize] = row;
+                    siftUp(heap, heapSize++, comparator);
+                } else if (comparator.compare(row, heap[0]) < 0) {
+                    heap[0] = row;
+                    siftDown(heap, heapSize, comparator);
+                }
+            }
+
+            int maxRow = 0;
+            for (int i = 0; i < heapSize; i++) {
+                maxRow = Math.max(maxRow, heap[i]);
+            }
+            RowBitmap selected = new RowBitmap(maxRow + 1);
+            selected.reset(maxRow + 1);
+            selected.clearAll();
+            for (int i = 0; i < heapSize; i++) {
+                selected.set(heap[i]);
+            }
+
+            // Rows displaced from the front that did not make the cut take over the
+            // slots of selected rows found further back
+            int[] displaced = scratch.rows();
+            System.arraycopy(rows, 0, displaced, 0, heapSize);
+            int next = 0;
+            for (int i = heapSize; i < size; i++) {
+                if (isSelected(selected, rows[i])) {
+                    while (isSelected(selected, displaced[next])) {
+                        next++;
+                    }
+                    rows[i] = displaced[next++];
+                }
+            }
+
+            System.arraycopy(heap, 0, rows, 0, heapSize);
+            mergeSort(rows, heapSize, comparator, scratch.rows());
+        } finally {
+            pool.release(heapVector);
+            pool.release(scratch);
+        }
+    }
+
+    private static boolean isSelected(RowBitmap selected, int row) {
+        return row < selected.size() && selected.get(row);
+    }
+
+    // Max-heap on the comparator: the largest retained row sits at the root
+    private static void siftUp(int[] heap, int index, RowComparator comparator) {
+        int row = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (comparator.compare(heap[parent], row) >= 0) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = row;
+    }
+
+    private static void siftDown(int[] heap, int heapSize, RowComparator comparator) {
+        int row = heap[0];
+        int index = 0;
+        while (true) {
+            int child = (index << 1) + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && comparator.compare(heap[child + 1], heap[child]) > 0) {
+                child++;
+            }
+            if (comparator.compare(row, heap[child]) >= 0) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = row;
+    }
+
+    static RowComparator comparator(List<SortKey> keys) {
+        SortKey[] keyArray = keys.toArray(new SortKey[0]);
+        return (row1, row2) -> {
+            for (SortKey key : keyArray) {
+                int comparison = key.compare(row1, row2);
+                if (comparison != 0) {
+                    return comparison;
+                }
+            }
+            return 0;
+        };
+    }
+
+    // One stable pass ordering rows by a single key, nulls included
+    private static void sortByKey(int[] rows, int size, SortKey key, long[] keys, int[] rowScratch, long[] keyScratch) {
+        for (int i = 0; i < size; i++) {
+            int row = rows[i];
+            keys[i] = key.isNull(row) ? 0L : key.encode(row);
+        }
+        radixSort(rows, keys, size, rowScratch, keyScratch);
+
+        if (key.needsTieBreak()) {
+            // Rows with equal radix keys (shared string prefix) are ordered by full comparison
+            int runStart = 0;
+            for (int i = 1; i <= size; i++) {
+                if (i == size || keys[i] != keys[runStart]) {
+                    if (i - runStart > 1) {
+                        mergeSortRange(rows, runStart, i, key, rowScratch);
+                    }
+                    runStart = i;
+                }
+            }
+        }
+
+        if (key.hasNulls()) {
+            partitionNulls(rows, size, key, rowScratch);
+        }
+    }
+
+    /**
+     * Stable LSD radix sort of {@code rows} by unsigned {@code keys}, one byte per pass.
+     * Passes where every key shares the same byte are skipped, so 32-bit keys cost at most
+     * four passes.
+     */
+    static void radixSort(int[] rows, long[] keys, int size, int[] rowScratch, long[] keyScratch) {
+        int[][] counts = new int[8][256];
+        for (int i = 0; i < size; i++) {
+            long key = keys[i];
+            for (int b = 0; b < 8; b++) {
+                counts[b][(int) (key >>> (b << 3)) & 0xFF]++;
+            }
+        }
+
+        int[] srcRows = rows;
+        long[] srcKeys = keys;
+        int[] dstRows = rowScratch;
+        long[] dstKeys = keyScratch;
+        for (int b = 0; b < 8; b++) {
+            int shift = b << 3;
+            int[] count = counts[b];
+            if (count[(int) (srcKeys[0] >>> shift) & 0xFF] == size) {
+                continue;
+            }
+            int offset = 0;
+            for (int d = 0; d < 256; d++) {
+                int c = count[d];
+                count[d] = offset;
+                offset += c;
+            }
+            for (int i = 0; i < size; i++) {
+                long key = srcKeys[i];
+                int position = count[(int) (key >>> shift) & 0xFF]++;
+                dstRows[position] = srcRows[i];
+                dstKeys[position] = key;
+            }
+            int[] swapRows = srcRows;
+            srcRows = dstRows;
+            dstRows = swapRows;
+            long[] swapKeys = srcKeys;
+            srcKeys = dstKeys;
+            dstKeys = swapKeys;
+        }
+
+        if (srcRows != rows) {
+            System.arraycopy(srcRows, 0, rows, 0, size);
+            System.arraycopy(srcKeys, 0, keys, 0, size);
+        }
+    }
+
+    // Stable partition moving null rows first (ascending) or last (descending)
+    private static void partitionNulls(int[] rows, int size, SortKey key, int[] scratch) {
+        boolean nullsFirst = !key.descending;
+        int nullCount = 0;
+        for (int i = 0; i < size; i++) {
+            if (key.isNull(rows[i])) {
+                nullCount++;
+            }
+        }
+        if (nullCount == 0 || nullCount == size) {
+            return;
+        }
+        int nullPos = nullsFirst ? 0 : size - nullCount;
+        int valuePos = nullsFirst ? nullCount : 0;
+        for (int i = 0; i < size; i++) {
+            int row = rows[i];
+            if (key.isNull(row)) {
+                scratch[nullPos++] = row;
+            } else {
+                scratch[valuePos++] = row;
+            }
+        }
+        System.arraycopy(scratch, 0, rows, 0, size);
+    }
+
+    /**
+     * Stable merge sort of {@code rows[0, size)}. {@code scratch} must hold at least
+     * {@code size} entries.
+     */
+    static void mergeSort(int[] rows, int size, RowComparator comparator, int[] scratch) {
+        if (size < 2) {
+            return;
+        }
+        System.arraycopy(rows, 0, scratch, 0, size);
+        mergeSort(scratch, rows, 0, size, comparator);
+    }
+
+    /** Stable merge sort of {@code rows[from, to)}, using {@code scratch} at the same positions. */
+    static void mergeSortRange(int[] rows, int from, int to, RowComparator comparator, int[] scratch) {
+        if (to - from < 2) {
+            return;
+        }
+        System.arraycopy(rows, from, scratch, from, to - from);
+        mergeSort(scratch, rows, from, to, comparator);
+    }
+
+    // Sorts src[from, to) into dst[from, to); both hold the same elements on entry
+    private static void mergeSort(int[] src, int[] dst, int from, int to, RowComparator comparator) {
+        int length = to - from;
+        if (length <= INSERTION_SORT_THRESHOLD) {
+            insertionSort(dst, from, to, comparator);
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        mergeSort(dst, src, from, mid, comparator);
+        mergeSort(dst, src, mid, to, comparator);
+
+        if (comparator.compare(src[mid - 1], src[mid]) <= 0) {
+            System.arraycopy(src, from, dst, from, length);
+            return;
+        }
+        for (int i = from, p = from, q = mid; i < to; i++) {
+            if (q >= to || (p < mid && comparator.compare(src[p], src[q]) <= 0)) {
+                dst[i] = src[p++];
+            } else {
+                dst[i] = src[q++];
+            }
+        }
+    }
+
+    static void insertionSort(int[] rows, int from, int to, RowComparator comparator) {
+        for (int i = from + 1; i < to; i++) {
+            int row = rows[i];
+            int j = i - 1;
+            while (j >= from && comparator.compare(rows[j], row) > 0) {
+                rows[j + 1] = rows[j];
+                j--;
+            }
+            rows[j + 1] = row;
+        }
+    }
+}
@@ -0,0 +1,403 @@
+package amat.arrowstore.bigtable.service;
+
+import java.util.Arrays;
+
+/**
+ * Compressed set of row indices in the style of a roaring bitmap: rows are split by their
+ * high 16 bits into containers holding the low 16 bits, either as a sorted array (sparse)
+ * or as a 65536-bit bitmap (dense). Appending rows in ascending order is the fast path.
+ */
+final class PostingBitmap {
+
+    private static final int ARRAY_MAX = 4096;
+    private static final int BITMAP_WORDS = 1024;
+
+    private char[] keys = new char[1];
+    private Container[] containers = new Container[1];
+    private int size;
+
+    void add(int row) {
+        char key = (char) (row >>> 16);
+        int index = size > 0 && keys[size - 1] == key ? size - 1 : indexOf(key);
+        if (index < 0) {
+            index = -index - 1;
+            insertContainer(index, key, new ArrayContainer());
+        }
+        containers[index] = containers[index].add((char) row);
+    }
+
+    void remove(int row) {
+        int index = indexOf((char) (row >>> 16));
+        if (index < 0) {
+            return;
+        }
+        Container container = containers[index].remove((char) row);
+        if (container.cardinality() == 0) {
+            System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+            System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+            containers[--size] = null;
+        } else {
+            containers[index] = container;
+        }
+    }
+
+    boolean contains(int row) {
+        int index = indexOf((char) (row >>> 16));
+        return index >= 0 && containers[index].contains((char) row);
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int cardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += containers[i].cardinality();
+        }
+        return cardinality;
+    }
+
+    long bytes() {
+        long bytes = (long) keys.length * (Character.BYTES + 8);
+        for (int i = 0; i < size; i++) {
+            bytes += containers[i].bytes();
+        }
+        return bytes;
+    }
+
+    PostingBitmap and(PostingBitmap other) {
+        PostingBitmap result = new PostingBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                Container container = containers[i].and(other.containers[j]);
+                if (container.cardinality() > 0) {
+                    result.insertContainer(result.size, keys[i], container);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /** Sets the bit of every row in {@code target}, which must cover all rows of this set. */
+    void writeTo(RowBitmap target) {
+        for (int i = 0; i < size; i++) {
+            containers[i].writeTo(keys[i] << 16, target);
+        }
+    }
+
+    /** ORs the rows into a bitmap over the whole table, a word at a time for dense containers. */
+    void orInto(long[] words) {
+        for (int i = 0; i < size; i++) {
+            containers[i].orInto(keys[i] << 16, words);
+        }
+    }
+
+    /** Clears the rows from a bitmap over the whole table, a word at a time for dense containers. */
+    void andNotInto(long[] words) {
+        for (int i = 0; i < size; i++) {
+            containers[i].andNotInto(keys[i] << 16, words);
+        }
+    }
+
+    /**
+     * Maps every row through {@code newIndex} (negative entries drop the row). The mapping
+     * must preserve row order, as a compaction does.
+     */
+    PostingBitmap remap(int[] newIndex) {
+        PostingBitmap result = new PostingBitmap();
+        for (int i = 0; i < size; i++) {
+            containers[i].remap(keys[i] << 16, newIndex, result);
+        }
+        return result;
+    }
+
+    private int indexOf(char key) {
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    private void insertContainer(int index, char key, Container container) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = container;
+        size++;
+    }
+
+    private abstract static class Container {
+        /** Returns the container holding the result, which may be a converted one. */
+        abstract Container add(char value);
+
+        abstract Container remove(char value);
+
+        abstract boolean contains(char value);
+
+        abstract int cardinality();
+
+        abstract long bytes();
+
+        abstract Container and(Container other);
+
+        abstract void writeTo(int base, RowBitmap target);
+
+        abstract void orInto(int base, long[] words);
+
+        abstract void andNotInto(int base, long[] words);
+
+        abstract void remap(int base, int[] newIndex, PostingBitmap target);
+    }
+
+    private static final class ArrayContainer extends Container {
+        private char[] values;
+        private int cardinality;
+
+        ArrayContainer() {
+            this.values = new char[4];
+        }
+
+        ArrayContainer(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        Container add(char value) {
+            if (cardinality > 0 && values[cardinality - 1] == value) {
+                return this;
+            }
+            int index = cardinality == 0 || values[cardinality - 1] < value
+                ? cardinality : Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0 && index < cardinality) {
+                return this;
+            }
+            if (index < 0) {
+                index = -index - 1;
+            }
+            if (cardinality == ARRAY_MAX) {
+                return toBitmap().add(value);
+            }
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(cardinality * 2, ARRAY_MAX));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = value;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0) {
+                System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+                cardinality--;
+            }
+            return this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        long bytes() {
+            return (long) values.length * Character.BYTES + 16;
+        }
+
+        @Override
+        Container and(Container other) {
+            char[] result = new char[Math.min(cardinality, other.cardinality())];
+            int count = 0;
+            if (other instanceof BitmapContainer) {
+                for (int i = 0; i < cardinality; i++) {
+                    if (other.contains(values[i])) {
+                        result[count++] = values[i];
+                    }
+                }
+            } else {
+                ArrayContainer array = (ArrayContainer) other;
+                int i = 0;
+                int j = 0;
+                while (i < cardinality && j < array.cardinality) {
+                    if (values[i] < array.values[j]) {
+                        i++;
+                    } else if (values[i] > array.values[j]) {
+                        j++;
+                    } else {
+                        result[count++] = values[i];
+                        i++;
+                        j++;
+                    }
+                }
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        @Override
+        void writeTo(int base, RowBitmap target) {
+            for (int i = 0; i < cardinality; i++) {
+                target.set(base | values[i]);
+            }
+        }
+
+        @Override
+        void orInto(int base, long[] words) {
+            for (int i = 0; i < cardinality; i++) {
+                int row = base | values[i];
+                words[row >>> 6] |= 1L << row;
+            }
+        }
+
+        @Override
+        void andNotInto(int base, long[] words) {
+            for (int i = 0; i < cardinality; i++) {
+                int row = base | values[i];
+                words[row >>> 6] &= ~(1L << row);
+            }
+        }
+
+        @Override
+        void remap(int base, int[] newIndex, PostingBitmap target) {
+            for (int i = 0; i < cardinality; i++) {
+                int row = newIndex[base | values[i]];
+                if (row >= 0) {
+                    target.add(row);
+                }
+            }
+        }
+
+        private BitmapContainer toBitmap() {
+            BitmapContainer bitmap = new BitmapContainer();
+            for (int i = 0; i < cardinality; i++) {
+                bitmap.add(values[i]);
+            }
+            return bitmap;
+        }
+    }
+
+    private static final class BitmapContainer extends Container {
+        private final long[] words = new long[BITMAP_WORDS];
+        private int cardinality;
+
+        @Override
+        Container add(char value) {
+            long before = words[value >>> 6];
+            words[value >>> 6] = before | (1L << value);
+            if (before != words[value >>> 6]) {
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            long before = words[value >>> 6];
+            words[value >>> 6] = before & ~(1L << value);
+            if (before != words[value >>> 6]) {
+                cardinality--;
+            }
+            return cardinality <= ARRAY_MAX ? toArray() : this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        long bytes() {
+            return (long) BITMAP_WORDS * Long.BYTES + 16;
+        }
+
+        @Override
+        Container and(Container other) {
+            if (other instanceof ArrayContainer) {
+                return other.and(this);
+            }
+            BitmapContainer bitmap = (BitmapContainer) other;
+            BitmapContainer result = new BitmapContainer();
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                result.words[i] = words[i] & bitmap.words[i];
+                result.cardinality += Long.bitCount(result.words[i]);
+            }
+            return result.cardinality <= ARRAY_MAX ? result.toArray() : result;
+        }
+
+        @Override
+        void writeTo(int base, RowBitmap target) {
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                long word = words[w];
+                while (word != 0) {
+                    target.set(base | (w << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        @Override
+        void orInto(int base, long[] target) {
+            int offset = base >>> 6;
+            for (int w = 0, n = Math.min(BITMAP_WORDS, target.length - offset); w < n; w++) {
+                target[offset + w] |= words[w];
+            }
+        }
+
+        @Override
+        void andNotInto(int base, long[] target) {
+            int offset = base >>> 6;
+            for (int w = 0, n = Math.min(BITMAP_WORDS, target.length - offset); w < n; w++) {
+                target[offset + w] &= ~words[w];
+            }
+        }
+
+        @Override
+        void remap(int base, int[] newIndex, PostingBitmap target) {
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                long word = words[w];
+                while (word != 0) {
+                    int row = newIndex[base | (w << 6) | Long.numberOfTrailingZeros(word)];
+                    if (row >= 0) {
+                        target.add(row);
+                    }
+                    word &= word - 1;
+                }
+            }
+        }
+
+        private ArrayContainer toArray() {
+            char[] values = new char[Math.max(cardinality, 4)];
+            int count = 0;
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                long word = words[w];
+                while (word != 0) {
+                    values[count++] = (char) ((w << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return new ArrayContainer(values, count);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package amat.arrowstore.bigtable.service;
+
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.vector.BitVectorHelper;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.IntVector;
+
+import java.util.Arrays;
+
+/**
+ * Hash index from the values of an INTEGER {@code id} column to their row, in open
+ * addressing over two primitive arrays with linear probing. A repeated id keeps its first
+ * row, the one a linear scan would find; once an id repeats, removing its row cannot tell
+ * which row takes over, so the owner rebuilds the index instead (see {@link #hasDuplicates}).
+ */
+final class PrimaryKeyIndex {
+
+    private static final int FREE = -1;
+
+    private int[] keys;
+    private int[] rows;
+    private int size;
+    private boolean duplicates;
+
+    private PrimaryKeyIndex(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(16, expected * 2 - 1)) << 1;
+        keys = new int[capacity];
+        rows = new int[capacity];
+        Arrays.fill(rows, FREE);
+    }
+
+    /** Indexes the ids of every live row, or returns null when the column is not an INTEGER column. */
+    static PrimaryKeyIndex build(ChunkedColumn ids, Tombstones tombstones) {
+        if (!(ids.vector(0) instanceof IntVector)) {
+            return null;
+        }
+        PrimaryKeyIndex index = new PrimaryKeyIndex(ids.rowCount());
+        index.addRows(ids, 0, ids.rowCount(), tombstones);
+        return index;
+    }
+
+    /** Indexes rows {@code [from, to)} of the column, skipping null ids and deleted rows. */
+    void addRows(ChunkedColumn ids, int from, int to, Tombstones tombstones) {
+        for (int batch = from < to ? ids.batchOf(from) : ids.batchCount(); batch < ids.batchCount() && ids.start(batch) < to; batch++) {
+            int start = ids.start(batch);
+            FieldVector vector = ids.vector(batch);
+            ArrowBuf data = vector.getDataBuffer();
+            ArrowBuf validity = vector.getValidityBuffer();
+            for (int row = Math.max(from, start), end = Math.min(to, ids.start(batch + 1)); row < end; row++) {
+                int local = row - start;
+                if (BitVectorHelper.get(validity, local) == 0 || (tombstones != null && tombstones.isDeleted(row))) {
+                    continue;
+                }
+                put(data.getInt((long) local * IntVector.TYPE_WIDTH), row);
+            }
+        }
+    }
+
+    /** Drops the ids of the given rows, as read from the column. */
+    void removeRows(ChunkedColumn ids, SelectionVector rows) {
+        for (int i = 0; i < rows.size(); i++) {
+            int row = rows.get(i);
+            int batch = ids.batchOf(row);
+            int local = row - ids.start(batch);
+            FieldVector vector = ids.vector(batch);
+            if (!vector.isNull(local)) {
+                remove(vector.getDataBuffer().getInt((long) local * IntVector.TYPE_WIDTH), row);
+            }
+        }
+    }
+
+    /** Row of the id, or -1 when no live row holds it. */
+    int get(int key) {
+        int mask = keys.length - 1;
+        for (int slot = hash(key) & mask; rows[slot] != FREE; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return rows[slot];
+            }
+        }
+        return -1;
+    }
+
+    void put(int key, int row) {
+        if ((size + 1) * 2 > keys.length) {
+            resize(keys.length << 1);
+        }
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (rows[slot] != FREE) {
+            if (keys[slot] == key) {
+                duplicates = true;
+                if (row < rows[slot]) {
+                    rows[slot] = row;
+                }
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        rows[slot] = row;
+        size++;
+    }
+
+    /** Drops the id when it maps to {@code row}, shifting later entries of its probe run back. */
+    void remove(int key, int row) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (rows[slot] != FREE && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        if (rows[slot] != row) {
+            return;
+        }
+        rows[slot] = FREE;
+        size--;
+        for (int next = (slot + 1) & mask; rows[next] != FREE; next = (next + 1) & mask) {
+            int home = hash(keys[next]) & mask;
+            // Move the entry into the hole unless its home lies cyclically in (slot, next]
+            if (slot <= next ? (home <= slot || home > next) : (home <= slot && home > next)) {
+                keys[slot] = keys[next];
+                rows[slot] = rows[next];
+                rows[next] = FREE;
+                slot = next;
+            }
+        }
+    }
+
+    /** Whether an id was seen on more than one row, so a removal must rebuild the index. */
+    boolean hasDuplicates() {
+        return duplicates;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long bytes() {
+        return (long) keys.length * 2 * Integer.BYTES;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldRows = rows;
+        keys = new int[capacity];
+        rows = new int[capacity];
+        Arrays.fill(rows, FREE);
+        size = 0;
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldRows[slot] != FREE) {
+                put(oldKeys[slot], oldRows[slot]);
+            }
+        }
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,114 @@
+package amat.arrowstore.bigtable.service;
+
+import amat.arrowstore.bigtable.model.FilterCriteria;
+import amat.arrowstore.bigtable.model.SortSpecification;
+
+import java.util.*;
+
+/**
+ * Per-session LRU cache of query result sets, keyed by the normalized filters, search term
+ * and sorts of a request. Entries hold the matching row indices rather than rendered rows,
+ * so paging through a cached result only extracts the requested page. Every write bumps the
+ * data version and empties the cache; results computed against an older version are not stored.
+ */
+final class QueryResultCache {
+
+    static final class Entry {
+        /** All matching rows; the first {@link #ordered} are in sort order. */
+        final int[] rows;
+        final int ordered;
+
+        Entry(int[] rows, int ordered) {
+            this.rows = rows;
+            this.ordered = ordered;
+        }
+    }
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private long version;
+
+    QueryResultCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /** Canonical key of a request; {@code sorts} are the resolved sorts ordered by priority. */
+    static String key(List<FilterCriteria> filters, String searchTerm, List<SortSpecification> sorts) {
+        StringBuilder key = new StringBuilder();
+        appendFilters(key, filters);
+        key.append('\u0002');
+        if (searchTerm != null && !searchTerm.trim().isEmpty()) {
+            key.append(searchTerm.toLowerCase());
+        }
+        key.append('\u0002').append(SortPermutationCache.key(sorts));
+        return key.toString();
+    }
+
+    private static void appendFilters(StringBuilder key, List<FilterCriteria> filters) {
+        if (filters == null) {
+            return;
+        }
+        for (FilterCriteria filter : filters) {
+            key.append(filter.getLogicalOperator()).append('\u0000');
+            if (filter.isGroup()) {
+                key.append('\u0003');
+                appendFilters(key, filter.getFilters());
+                key.append('\u0004');
+            } else {
+                key.append(filter.getColumn()).append('\u0000')
+                   .append(filter.getOperation());
+                if (filter.getValues() != null) {
+                    for (Object value : filter.getValues()) {
+                        // Typed values: 5 and "5" take different comparison paths
+                        key.append('\u0000').append(value == null ? "null" : value.getClass().getSimpleName())
+                           .append(':').append(value);
+                    }
+                }
+            }
+            key.append('\u0001');
+        }
+    }
+
+    synchronized long version() {
+        return version;
+    }
+
+    synchronized Entry get(String key) {
+        return entries.get(key);
+    }
+
+    /** Stores a result computed at {@code version}, unless the data changed in the meantime. */
+    synchronized void put(String key, long version, int[] rows, int ordered) {
+        long size = (long) rows.length * Integer.BYTES;
+        if (version != this.version || size > maxBytes) {
+            return;
+        }
+        remove(key);
+        entries.put(key, new Entry(rows, ordered));
+        bytes += size;
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            bytes -= (long) eldest.next().getValue().rows.length * Integer.BYTES;
+            eldest.remove();
+        }
+    }
+
+    /** Called on every write to the session's data. */
+    synchronized void invalidate() {
+        version++;
+        entries.clear();
+        bytes = 0;
+    }
+
+    synchronized long bytes() {
+        return bytes;
+    }
+
+    private void remove(String key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            bytes -= (long) removed.rows.length * Integer.BYTES;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package amat.arrowstore.bigtable.service;
+
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.vector.BitVectorHelper;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size selection bitmap over a contiguous row range. Bit {@code i} stands for
+ * row {@code base + i}, where the base is tracked by the caller.
+ */
+final class RowBitmap {
+
+    private long[] words;
+    private int size;
+
+    RowBitmap(int capacity) {
+        this.words = new long[wordCount(capacity)];
+    }
+
+    static int wordCount(int bits) {
+        return (bits + 63) >>> 6;
+    }
+
+    /** Resizes the bitmap to {@code size} bits. Contents are undefined until written. */
+    void reset(int size) {
+        int needed = wordCount(size);
+        if (words.length < needed) {
+            words = new long[needed];
+        }
+        this.size = size;
+    }
+
+    long[] words() {
+        return words;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int wordsInUse() {
+        return wordCount(size);
+    }
+
+    void setAll() {
+        int count = wordsInUse();
+        Arrays.fill(words, 0, count, -1L);
+        clearTail();
+    }
+
+    void clearAll() {
+        Arrays.fill(words, 0, wordsInUse(), 0L);
+    }
+
+    boolean get(int index) {
+        return (words[index >>> 6] & (1L << index)) != 0;
+    }
+
+    void set(int index) {
+        words[index >>> 6] |= 1L << index;
+    }
+
+    void clear(int index) {
+        words[index >>> 6] &= ~(1L << index);
+    }
+
+    /** The 64 bits of {@code words} starting at bit {@code from}, which need not be word-aligned. */
+    static long bitsAt(long[] words, int from) {
+        int word = from >>> 6;
+        int shift = from & 63;
+        if (word >= words.length) {
+            return 0;
+        }
+        long bits = words[word] >>> shift;
+        if (shift != 0 && word + 1 < words.length) {
+            bits |= words[word + 1] << (64 - shift);
+        }
+        return bits;
+    }
+
+    void and(RowBitmap other) {
+        long[] otherWords = other.words;
+        for (int i = 0, n = wordsInUse(); i < n; i++) {
+            words[i] &= otherWords[i];
+        }
+    }
+
+    void or(RowBitmap other) {
+        long[] otherWords = other.words;
+        for (int i = 0, n = wordsInUse(); i < n; i++) {
+            words[i] |= otherWords[i];
+        }
+    }
+
+    void andNot(RowBitmap other) {
+        long[] otherWords = other.words;
+        for (int i = 0, n = wordsInUse(); i < n; i++) {
+            words[i] &= ~otherWords[i];
+        }
+    }
+
+    boolean isEmpty() {
+        for (int i = 0, n = wordsInUse(); i < n; i++) {
+            if (words[i] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    int cardinality() {
+        int count = 0;
+        for (int i = 0, n = wordsInUse(); i < n; i++) {
+            count += Long.bitCount(words[i]);
+        }
+        return count;
+    }
+
+    int nextSetBit(int from) {
+        if (from >= size) {
+            return -1;
+        }
+        int wordIndex = from >>> 6;
+        long word = words[wordIndex] & (-1L << from);
+        int n = wordsInUse();
+        while (true) {
+            if (word != 0) {
+                int index = (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+                return index < size ? index : -1;
+            }
+            if (++wordIndex >= n) {
+                return -1;
+            }
+            word = words[wordIndex];
+        }
+    }
+
+    /** Zeroes the bits past {@link #size()} in the last word so whole-word operations stay exact. */
+    void clearTail() {
+        int tailBits = size & 63;
+        if (tailBits != 0) {
+            words[wordsInUse() - 1] &= tailMask(tailBits);
+        }
+    }
+
+    /** Mask of the low {@code count} bits, for {@code count} in 1..64. */
+    static long tailMask(int count) {
+        return count >= 64 ? -1L : (1L << count) - 1;
+    }
+
+    /**
+     * Reads {@code count} (at most 64) bits of an Arrow bit-packed buffer starting at bit
+     * {@code from}; bit {@code i} of the result is bit {@code from + i} of the buffer.
+     */
+    static long readBits(ArrowBuf buffer, int from, int count) {
+        if ((from & 7) == 0) {
+            long byteIndex = from >>> 3;
+            if (count == 64 && byteIndex + 8 <= buffer.capacity()) {
+                return buffer.getLong(byteIndex);
+            }
+            long bits = 0;
+            int bytes = (count + 7) >>> 3;
+            for (int b = 0; b < bytes; b++) {
+                bits |= (buffer.getByte(byteIndex + b) & 0xFFL) << (b << 3);
+            }
+            return bits & tailMask(count);
+        }
+        long bits = 0;
+        for (int i = 0; i < count; i++) {
+            bits |= (long) BitVectorHelper.get(buffer, from + i) << i;
+        }
+        return bits;
+    }
+}
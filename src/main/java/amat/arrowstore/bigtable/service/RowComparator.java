@@ -0,0 +1,10 @@
+package amat.arrowstore.bigtable.service;
+
+/**
+ * Compares two rows of a session table by their physical row index.
+ */
+@FunctionalInterface
+interface RowComparator {
+
+    int compare(int row1, int row2);
+}
@@ -0,0 +1,73 @@
+package amat.arrowstore.bigtable.service;
+
+import java.util.Arrays;
+
+/**
+ * Primitive list of row indices flowing through the query pipeline in place of a
+ * boxed {@code List<Integer>}. Instances are recycled through a {@link SelectionVectorPool}.
+ */
+final class SelectionVector {
+
+    private int[] rows;
+    private int size;
+
+    SelectionVector(int capacity) {
+        this.rows = new int[Math.max(capacity, 16)];
+    }
+
+    int size() {
+        return size;
+    }
+
+    int get(int index) {
+        return rows[index];
+    }
+
+    /** Backing array; only the first {@link #size()} entries are meaningful. */
+    int[] rows() {
+        return rows;
+    }
+
+    int capacity() {
+        return rows.length;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    void setSize(int size) {
+        ensureCapacity(size);
+        this.size = size;
+    }
+
+    void ensureCapacity(int capacity) {
+        if (rows.length < capacity) {
+            rows = Arrays.copyOf(rows, Math.max(capacity, rows.length + (rows.length >> 1)));
+        }
+    }
+
+    void add(int row) {
+        if (size == rows.length) {
+            ensureCapacity(size + 1);
+        }
+        rows[size++] = row;
+    }
+
+    /** Appends {@code base + i} for every set bit {@code i} of the bitmap, in ascending order. */
+    void addSetBits(RowBitmap bitmap, int base) {
+        ensureCapacity(size + bitmap.size());
+        long[] words = bitmap.words();
+        for (int w = 0, n = bitmap.wordsInUse(); w < n; w++) {
+            long word = words[w];
+            while (word != 0) {
+                rows[size++] = base + (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+    }
+
+    int[] toArray() {
+        return Arrays.copyOf(rows, size);
+    }
+}
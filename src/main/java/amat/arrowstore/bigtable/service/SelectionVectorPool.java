@@ -0,0 +1,64 @@
+package amat.arrowstore.bigtable.service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Per-session pool of selection vectors and sort-key buffers, so repeated queries reuse
+ * their scratch memory instead of reallocating it. Safe for concurrent queries on one session.
+ */
+final class SelectionVectorPool {
+
+    private static final int MAX_POOLED = 8;
+    private static final int MAX_POOLED_BATCH_VECTORS = 64;
+
+    private final ArrayBlockingQueue<SelectionVector> free = new ArrayBlockingQueue<>(MAX_POOLED);
+    // Vectors for the matches of a single table batch, kept apart so they never grow to table size
+    private final ArrayBlockingQueue<SelectionVector> freeBatchVectors = new ArrayBlockingQueue<>(MAX_POOLED_BATCH_VECTORS);
+    private final ArrayBlockingQueue<long[]> freeKeys = new ArrayBlockingQueue<>(MAX_POOLED);
+
+    SelectionVector acquire(int capacity) {
+        SelectionVector vector = free.poll();
+        if (vector == null) {
+            return new SelectionVector(capacity);
+        }
+        vector.clear();
+        vector.ensureCapacity(capacity);
+        return vector;
+    }
+
+    void release(SelectionVector vector) {
+        if (vector != null) {
+            free.offer(vector);
+        }
+    }
+
+    SelectionVector acquireBatchVector(int capacity) {
+        SelectionVector vector = freeBatchVectors.poll();
+        if (vector == null) {
+            return new SelectionVector(capacity);
+        }
+        vector.clear();
+        vector.ensureCapacity(capacity);
+        return vector;
+    }
+
+    void releaseBatchVector(SelectionVector vector) {
+        if (vector != null) {
+            freeBatchVectors.offer(vector);
+        }
+    }
+
+    long[] acquireKeys(int capacity) {
+        long[] keys = freeKeys.poll();
+        if (keys == null || keys.length < capacity) {
+            return new long[Math.max(capacity, 16)];
+        }
+        return keys;
+    }
+
+    void releaseKeys(long[] keys) {
+        if (keys != null) {
+            freeKeys.offer(keys);
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package amat.arrowstore.bigtable.service;
+
+import amat.arrowstore.bigtable.model.SortDirection;
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.vector.*;
+
+/**
+ * One column of a sort specification, specialized per Arrow vector type. Each key can
+ * encode its rows into order-preserving 64-bit radix keys and compare two rows directly
+ * on the Arrow buffers of their batches. Rows are global row indices of the table. Nulls
+ * sort first ascending and last descending.
+ */
+abstract class SortKey implements RowComparator {
+
+    protected final ChunkedColumn column;
+    protected final boolean descending;
+    private final boolean hasNulls;
+
+    SortKey(ChunkedColumn column, SortDirection direction) {
+        this.column = column;
+        this.descending = direction == SortDirection.DESC;
+        this.hasNulls = column.getNullCount() > 0;
+    }
+
+    static SortKey of(ChunkedColumn column, SortDirection direction) {
+        FieldVector vector = column.vector(0);
+        if (column.dictionary() != null) {
+            return new DictionarySortKey(column, direction);
+        } else if (vector instanceof IntVector) {
+            return new IntSortKey(column, direction);
+        } else if (vector instanceof Float8Vector) {
+            return new DoubleSortKey(column, direction);
+        } else if (vector instanceof BitVector) {
+            return new BooleanSortKey(column, direction);
+        } else if (vector instanceof VarCharVector) {
+            return new Utf8SortKey(column, direction);
+        }
+        return new GenericSortKey(column, direction);
+    }
+
+    // Buffer of every batch vector, so per-row reads skip the vector lookup
+    private static ArrowBuf[] dataBuffers(ChunkedColumn column) {
+        ArrowBuf[] buffers = new ArrowBuf[column.batchCount()];
+        for (int batch = 0; batch < buffers.length; batch++) {
+            buffers[batch] = column.vector(batch).getDataBuffer();
+        }
+        return buffers;
+    }
+
+    boolean hasNulls() {
+        return hasNulls;
+    }
+
+    boolean isNull(int row) {
+        return hasNulls && column.isNull(row);
+    }
+
+    /** Whether {@link #encode(int)} yields a total order, so no comparison pass is needed. */
+    boolean isRadixSortable() {
+        return true;
+    }
+
+    /**
+     * Whether rows with equal radix keys may still differ and need a comparison pass
+     * (string prefixes).
+     */
+    boolean needsTieBreak() {
+        return false;
+    }
+
+    /**
+     * Order-preserving unsigned key of a non-null row, already inverted for descending
+     * order.
+     */
+    abstract long encode(int row);
+
+    /** Ascending comparison of two non-null rows. */
+    abstract int compareValues(int row1, int row2);
+
+    @Override
+    public int compare(int row1, int row2) {
+        boolean isNull1 = isNull(row1);
+        boolean isNull2 = isNull(row2);
+        int comparison;
+        if (isNull1 || isNull2) {
+            comparison = isNull1 == isNull2 ? 0 : (isNull1 ? -1 : 1);
+        } else {
+            comparison = compareValues(row1, row2);
+        }
+        return descending ? -comparison : comparison;
+    }
+
+    protected final long direct(long key) {
+        return descending ? ~key : key;
+    }
+
+    static final class IntSortKey extends SortKey {
+        private final ArrowBuf[] data;
+
+        IntSortKey(ChunkedColumn column, SortDirection direction) {
+            super(column, direction);
+            this.data = dataBuffers(column);
+        }
+
+        private int value(int row) {
+            int batch = column.batchOf(row);
+            return data[batch].getInt((long) (row - column.start(batch)) * IntVector.TYPE_WIDTH);
+        }
+
+        @Override
+        long encode(int row) {
+            // Flip the sign bit so the two's complement order becomes unsigned order
+            return direct((value(row) ^ Integer.MIN_VALUE) & 0xFFFFFFFFL);
+        }
+
+        @Override
+        int compareValues(int row1, int row2) {
+            return Integer.compare(value(row1), value(row2));
+        }
+    }
+
+    static final class DoubleSortKey extends SortKey {
+        private final ArrowBuf[] data;
+
+        DoubleSortKey(ChunkedColumn column, SortDirection direction) {
+            super(column, direction);
+            this.data = dataBuffers(column);
+        }
+
+        private double value(int row) {
+            int batch = column.batchOf(row);
+            return data[batch].getDouble((long) (row - column.start(batch)) * Float8Vector.TYPE_WIDTH);
+        }
+
+        @Override
+        long encode(int row) {
+            // Same total order as Double.compare: -0.0 before 0.0, NaN last
+            long bits = Double.doubleToLongBits(value(row));
+            return direct(bits < 0 ? ~bits : bits ^ Long.MIN_VALUE);
+        }
+
+        @Override
+        int compareValues(int row1, int row2) {
+            return Double.compare(value(row1), value(row2));
+        }
+    }
+
+    static final class BooleanSortKey extends SortKey {
+        private final ArrowBuf[] data;
+
+        BooleanSortKey(ChunkedColumn column, SortDirection direction) {
+            super(column, direction);
+            this.data = dataBuffers(column);
+        }
+
+        private int value(int row) {
+            int batch = column.batchOf(row);
+            return BitVectorHelper.get(data[batch], row - column.start(batch));
+        }
+
+        @Override
+        long encode(int row) {
+            return direct(value(row)) & (descending ? 1L : -1L);
+        }
+
+        @Override
+        int compareValues(int row1, int row2) {
+            return Integer.compare(value(row1), value(row2));
+        }
+    }
+
+    /**
+     * Byte-wise UTF-8 ordering (code point order) without decoding. The radix key holds
+     * the first eight bytes; rows sharing a prefix are resolved with {@link #compareValues}.
+     */
+    static final class Utf8SortKey extends SortKey {
+        private final ArrowBuf[] offsets;
+        private final ArrowBuf[] data;
+
+        Utf8SortKey(ChunkedColumn column, SortDirection direction) {
+            super(column, direction);
+            this.offsets = new ArrowBuf[column.batchCount()];
+            for (int batch = 0; batch < offsets.length; batch++) {
+                offsets[batch] = column.vector(batch).getOffsetBuffer();
+            }
+            this.data = dataBuffers(column);
+        }
+
+        // Start offset of the row's value in its batch's data buffer
+        private static int start(ArrowBuf offsets, int row) {
+            return offsets.getInt((long) row * BaseVariableWidthVector.OFFSET_WIDTH);
+        }
+
+        private static int end(ArrowBuf offsets, int row) {
+            return offsets.getInt((long) (row + 1) * BaseVariableWidthVector.OFFSET_WIDTH);
+        }
+
+        @Override
+        boolean needsTieBreak() {
+            return true;
+        }
+
+        @Override
+        long encode(int row) {
+            int batch = column.batchOf(row);
+            int local = row - column.start(batch);
+            int start = start(offsets[batch], local);
+            int length = Math.min(end(offsets[batch], local) - start, 8);
+            ArrowBuf bytes = data[batch];
+            long key = 0;
+            for (int i = 0; i < length; i++) {
+                key |= (bytes.getByte(start + i) & 0xFFL) << ((7 - i) << 3);
+            }
+            return direct(key);
+        }
+
+        @Override
+        int compareValues(int row1, int row2) {
+            int batch1 = column.batchOf(row1);
+            int batch2 = column.batchOf(row2);
+            int local1 = row1 - column.start(batch1);
+            int local2 = row2 - column.start(batch2);
+            ArrowBuf data1 = data[batch1];
+            ArrowBuf data2 = data[batch2];
+            int start1 = start(offsets[batch1], local1);
+            int start2 = start(offsets[batch2], local2);
+            int length1 = end(offsets[batch1], local1) - start1;
+            int length2 = end(offsets[batch2], local2) - start2;
+            int common = Math.min(length1, length2);
+            for (int i = 0; i < common; i++) {
+                int diff = (data1.getByte(start1 + i) & 0xFF) - (data2.getByte(start2 + i) & 0xFF);
+                if (diff != 0) {
+                    return diff;
+                }
+            }
+            return length1 - length2;
+        }
+    }
+
+    /** String column compared through the byte-order rank of its dictionary codes. */
+    static final class DictionarySortKey extends SortKey {
+        private final ArrowBuf[] codes;
+        private final int[] ranks;
+
+        DictionarySortKey(ChunkedColumn column, SortDirection direction) {
+            super(column, direction);
+            this.codes = dataBuffers(column);
+            this.ranks = column.dictionary().ranks();
+        }
+
+        private int rank(int row) {
+            int batch = column.batchOf(row);
+            return ranks[codes[batch].getInt((long) (row - column.start(batch)) * IntVector.TYPE_WIDTH)];
+        }
+
+        @Override
+        long encode(int row) {
+            return direct(rank(row));
+        }
+
+        @Override
+        int compareValues(int row1, int row2) {
+            return Integer.compare(rank(row1), rank(row2));
+        }
+    }
+
+    /** Boxed comparison for vector types without a specialized kernel. */
+    static final class GenericSortKey extends SortKey {
+
+        GenericSortKey(ChunkedColumn column, SortDirection direction) {
+            super(column, direction);
+        }
+
+        @Override
+        boolean isRadixSortable() {
+            return false;
+        }
+
+        // Every row gets the same key; the order comes from compareValues alone
+        @Override
+        long encode(int row) {
+            return direct(0L);
+        }
+
+        @Override
+        int compareValues(int row1, int row2) {
+            return VectorValues.compare(column.getObject(row1), column.getObject(row2));
+        }
+    }
+}
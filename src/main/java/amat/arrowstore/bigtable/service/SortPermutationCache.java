@@ -0,0 +1,133 @@
+package amat.arrowstore.bigtable.service;
+
+import amat.arrowstore.bigtable.model.SortSpecification;
+
+import java.util.*;
+
+/**
+ * Per-session LRU cache of full sorted row permutations, keyed by the normalized sort
+ * specification. Bounded by the bytes held in permutations; entries are patched on
+ * append and delete and dropped when a sorted column is updated.
+ */
+final class SortPermutationCache {
+
+    static final class Entry {
+        final List<SortSpecification> sorts;
+        final Set<String> columns;
+        int[] permutation;
+
+        Entry(List<SortSpecification> sorts, int[] permutation) {
+            this.sorts = sorts;
+            this.permutation = permutation;
+            this.columns = new HashSet<>();
+            for (SortSpecification sort : sorts) {
+                columns.add(sort.getColumn());
+            }
+        }
+    }
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Integer> requestCounts = new HashMap<>();
+    private long bytes;
+
+    SortPermutationCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /** Canonical key of sorts already ordered by priority. */
+    static String key(List<SortSpecification> sorts) {
+        StringBuilder key = new StringBuilder();
+        for (SortSpecification sort : sorts) {
+            key.append(sort.getColumn()).append('\u0000').append(sort.getDirection()).append('\u0001');
+        }
+        return key.toString();
+    }
+
+    /** Returns the cached permutation if it still covers exactly {@code rowCount} rows. */
+    synchronized int[] get(String key, int rowCount) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.permutation.length != rowCount) {
+            remove(key);
+            return null;
+        }
+        return entry.permutation;
+    }
+
+    /**
+     * Records a request for a sort that missed the cache and returns how many times it
+     * has been requested, so callers can admit only repeated sorts.
+     */
+    synchronized int recordMiss(String key) {
+        if (requestCounts.size() > 1024) {
+            requestCounts.clear();
+        }
+        return requestCounts.merge(key, 1, Integer::sum);
+    }
+
+    synchronized void put(String key, List<SortSpecification> sorts, int[] permutation) {
+        long size = (long) permutation.length * Integer.BYTES;
+        if (size > maxBytes) {
+            return;
+        }
+        remove(key);
+        entries.put(key, new Entry(sorts, permutation));
+        requestCounts.remove(key);
+        bytes += size;
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            bytes -= (long) eldest.next().getValue().permutation.length * Integer.BYTES;
+            eldest.remove();
+        }
+    }
+
+    synchronized List<Entry> entries() {
+        return new ArrayList<>(entries.values());
+    }
+
+    /** Replaces the permutation of a live entry after it has been patched. */
+    synchronized void replace(Entry entry, int[] permutation) {
+        if (entries.containsValue(entry)) {
+            bytes += (long) (permutation.length - entry.permutation.length) * Integer.BYTES;
+            entry.permutation = permutation;
+        }
+    }
+
+    /** Drops a single entry that can no longer be patched, if it is still cached. */
+    synchronized void remove(Entry entry) {
+        if (entries.values().remove(entry)) {
+            bytes -= (long) entry.permutation.length * Integer.BYTES;
+        }
+    }
+
+    synchronized void invalidateColumn(String column) {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.columns.contains(column)) {
+                bytes -= (long) entry.permutation.length * Integer.BYTES;
+                iterator.remove();
+            }
+        }
+    }
+
+    synchronized void clear() {
+        entries.clear();
+        requestCounts.clear();
+        bytes = 0;
+    }
+
+    synchronized long bytes() {
+        return bytes;
+    }
+
+    private void remove(String key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            bytes -= (long) removed.permutation.length * Integer.BYTES;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package amat.arrowstore.bigtable.service;
+
+import amat.arrowstore.bigtable.model.SortDirection;
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Secondary index of an INTEGER or DOUBLE column: the non-null rows ordered by value, ties
+ * by row, with their values alongside in a primitive array. Comparisons resolve to a range
+ * of positions by binary search, ordered like {@link Double#compare}, and the order doubles
+ * as the column's sort permutation. Deleted rows stay indexed until compaction renumbers
+ * the table; scans drop them like any other match.
+ */
+final class SortedIndex {
+
+    private int[] rows;
+    private int[] intValues;
+    private double[] doubleValues;
+    private int size;
+    private int rowCount;
+    private long buildNanos;
+
+    private SortedIndex(boolean intColumn) {
+        rows = new int[0];
+        if (intColumn) {
+            intValues = new int[0];
+        } else {
+            doubleValues = new double[0];
+        }
+    }
+
+    /** Indexes every row of the column, or returns null for columns other than INTEGER and DOUBLE. */
+    static SortedIndex build(ChunkedColumn column, SelectionVectorPool pool) {
+        FieldVector vector = column.vector(0);
+        if (!(vector instanceof IntVector || vector instanceof Float8Vector)) {
+            return null;
+        }
+        long start = System.nanoTime();
+        SortedIndex index = new SortedIndex(vector instanceof IntVector);
+        index.addRows(column, 0, column.rowCount(), pool);
+        index.buildNanos = System.nanoTime() - start;
+        return index;
+    }
+
+    /** Merges rows {@code [from, to)}, appended behind every indexed row, into the order. */
+    void addRows(ChunkedColumn column, int from, int to, SelectionVectorPool pool) {
+        int[] added = new int[to - from];
+        int count = 0;
+        for (int batch = from < to ? column.batchOf(from) : column.batchCount(); batch < column.batchCount() && column.start(batch) < to; batch++) {
+            int start = column.start(batch);
+            FieldVector vector = column.vector(batch);
+            boolean nulls = vector.getNullCount() > 0;
+            for (int row = Math.max(from, start), end = Math.min(to, column.start(batch + 1)); row < end; row++) {
+                if (!nulls || !vector.isNull(row - start)) {
+                    added[count++] = row;
+                }
+            }
+        }
+        IndexSorter.sort(added, count, List.of(SortKey.of(column, SortDirection.ASC)), pool);
+
+        // Both runs are ordered; on equal values the existing rows come first, being lower
+        int[] mergedRows = new int[size + count];
+        int[] mergedInts = intValues != null ? new int[size + count] : null;
+        double[] mergedDoubles = doubleValues != null ? new double[size + count] : null;
+        int p = 0;
+        int q = 0;
+        for (int i = 0; i < mergedRows.length; i++) {
+            boolean takeExisting;
+            if (q == count) {
+                takeExisting = true;
+            } else if (p == size) {
+                takeExisting = false;
+            } else {
+                takeExisting = compareAt(p, valueOf(column, added[q])) <= 0;
+            }
+            if (takeExisting) {
+                mergedRows[i] = rows[p];
+                if (mergedInts != null) {
+                    mergedInts[i] = intValues[p];
+                } else {
+                    mergedDoubles[i] = doubleValues[p];
+                }
+                p++;
+            } else {
+                int row = added[q++];
+                mergedRows[i] = row;
+                if (mergedInts != null) {
+                    mergedInts[i] = (int) valueOf(column, row);
+                } else {
+                    mergedDoubles[i] = valueOf(column, row);
+                }
+            }
+        }
+        rows = mergedRows;
+        intValues = mergedInts;
+        doubleValues = mergedDoubles;
+        size = mergedRows.length;
+        rowCount = Math.max(rowCount, to);
+    }
+
+    /** Moves a row whose value changed in place; a null value stands for a null row. */
+    void update(int row, Double oldValue, Double newValue) {
+        if (oldValue != null) {
+            int position = Arrays.binarySearch(rows, lowerBound(oldValue), upperBound(oldValue), row);
+            if (position >= 0) {
+                System.arraycopy(rows, position + 1, rows, position, size - position - 1);
+                if (intValues != null) {
+                    System.arraycopy(intValues, position + 1, intValues, position, size - position - 1);
+                } else {
+                    System.arraycopy(doubleValues, position + 1, doubleValues, position, size - position - 1);
+                }
+                size--;
+            }
+        }
+        if (newValue != null) {
+            int position = Arrays.binarySearch(rows, lowerBound(newValue), upperBound(newValue), row);
+            if (position >= 0) {
+                return;
+            }
+            position = -position - 1;
+            if (size == rows.length) {
+                int capacity = Math.max(16, size + (size >> 3));
+                rows = Arrays.copyOf(rows, capacity);
+                if (intValues != null) {
+                    intValues = Arrays.copyOf(intValues, capacity);
+                } else {
+                    doubleValues = Arrays.copyOf(doubleValues, capacity);
+                }
+            }
+            System.arraycopy(rows, position, rows, position + 1, size - position);
+            rows[position] = row;
+            if (intValues != null) {
+                System.arraycopy(intValues, position, intValues, position + 1, size - position);
+                intValues[position] = newValue.intValue();
+            } else {
+                System.arraycopy(doubleValues, position, doubleValues, position + 1, size - position);
+                doubleValues[position] = newValue;
+            }
+            size++;
+        }
+    }
+
+    /** Keeps the rows listed in {@code keepIndices}, renumbered to their position there. */
+    void retain(int[] keepIndices, int oldRowCount) {
+        int[] newIndex = new int[oldRowCount];
+        Arrays.fill(newIndex, -1);
+        for (int i = 0; i < keepIndices.length; i++) {
+            newIndex[keepIndices[i]] = i;
+        }
+        int kept = 0;
+        for (int position = 0; position < size; position++) {
+            int mapped = newIndex[rows[position]];
+            if (mapped >= 0) {
+                rows[kept] = mapped;
+                if (intValues != null) {
+                    intValues[kept] = intValues[position];
+                } else {
+                    doubleValues[kept] = doubleValues[position];
+                }
+                kept++;
+            }
+        }
+        size = kept;
+        rowCount = keepIndices.length;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** Rows of the table covered by the index, null rows included. */
+    int rowCount() {
+        return rowCount;
+    }
+
+    int row(int position) {
+        return rows[position];
+    }
+
+    /** First position whose value is not less than the key. */
+    int lowerBound(double key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareAt(mid, key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /** First position whose value is greater than the key. */
+    int upperBound(double key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareAt(mid, key) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Rows of the table in the column's sort order, as {@link SortKey} orders them: nulls
+     * first ascending and last descending, equal values by row.
+     */
+    int[] permutation(ChunkedColumn column, boolean descending) {
+        int[] nullRows = new int[rowCount - size];
+        int nullCount = 0;
+        if (nullRows.length > 0) {
+            for (int row = 0; row < rowCount; row++) {
+                if (column.isNull(row)) {
+                    nullRows[nullCount++] = row;
+                }
+            }
+        }
+
+        int[] permutation = new int[rowCount];
+        if (!descending) {
+            System.arraycopy(nullRows, 0, permutation, 0, nullCount);
+            System.arraycopy(rows, 0, permutation, nullCount, size);
+            return permutation;
+        }
+        // Runs of equal values are taken from the top down, each kept in row order
+        int n = 0;
+        for (int end = size; end > 0; ) {
+            int start = lowerBound(valueAt(end - 1));
+            System.arraycopy(rows, start, permutation, n, end - start);
+            n += end - start;
+            end = start;
+        }
+        System.arraycopy(nullRows, 0, permutation, n, nullCount);
+        return permutation;
+    }
+
+    long buildNanos() {
+        return buildNanos;
+    }
+
+    long bytes() {
+        long valueWidth = intValues != null ? Integer.BYTES : Double.BYTES;
+        return (long) rows.length * (Integer.BYTES + valueWidth);
+    }
+
+    private double valueAt(int position) {
+        return intValues != null ? intValues[position] : doubleValues[position];
+    }
+
+    private int compareAt(int position, double key) {
+        return Double.compare(valueAt(position), key);
+    }
+
+    private static double valueOf(ChunkedColumn column, int row) {
+        int batch = column.batchOf(row);
+        int local = row - column.start(batch);
+        FieldVector vector = column.vector(batch);
+        ArrowBuf data = vector.getDataBuffer();
+        if (vector instanceof IntVector) {
+            return data.getInt((long) local * IntVector.TYPE_WIDTH);
+        }
+        return data.getDouble((long) local * Float8Vector.TYPE_WIDTH);
+    }
+}
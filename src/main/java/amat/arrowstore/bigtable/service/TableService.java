@@ -1,6 +1,8 @@
 package amat.arrowstore.bigtable.service;
 
 import amat.arrowstore.bigtable.model.*;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
 
@@ -10,8 +12,14 @@ public interface TableService {
     
     void populateData(String sessionId, List<Map<String, Object>> data);
     
+    void appendColumns(String sessionId, ColumnBatch batch);
+    
+    int loadArrowStream(String sessionId, InputStream in) throws IOException;
+    
     TableQueryResponse query(TableQueryRequest request);
     
+    ArrowQueryResult queryArrow(TableQueryRequest request);
+    
     List<ColumnDefinition> getSchema(String sessionId);
     
     void clearSession(String sessionId);
@@ -24,6 +32,9 @@ public interface TableService {
     
     boolean updateFieldValue(String sessionId, String recordId, String fieldName, Object newValue);
     
+    /** Applies the updates in order and returns the positions of those that were not applied. */
+    List<Integer> updateFieldValues(String sessionId, List<FieldUpdate> updates);
+    
     int deleteByQuery(String sessionId, TableQueryRequest queryRequest);
     
     List<String> getAllSessionIds();
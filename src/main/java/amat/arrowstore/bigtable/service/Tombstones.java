@@ -0,0 +1,84 @@
+package amat.arrowstore.bigtable.service;
+
+import java.util.Arrays;
+
+/**
+ * Rows of a session table deleted since its last compaction, one bit per global row.
+ * A delete only sets the bits of the rows it matched; scans clear deleted rows from their
+ * selections until the compactor rewrites the affected batches and starts a new set.
+ */
+final class Tombstones {
+
+    private volatile long[] words = new long[0];
+    private volatile int count;
+
+    /** Marks the selected rows deleted and returns how many were not deleted before. */
+    synchronized int delete(SelectionVector rows) {
+        int added = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            int row = rows.get(i);
+            int word = row >>> 6;
+            if (word >= words.length) {
+                words = Arrays.copyOf(words, Math.max(word + 1, words.length * 2));
+            }
+            long bit = 1L << row;
+            if ((words[word] & bit) == 0) {
+                words[word] |= bit;
+                added++;
+            }
+        }
+        count += added;
+        return added;
+    }
+
+    int count() {
+        return count;
+    }
+
+    boolean isEmpty() {
+        return count == 0;
+    }
+
+    boolean isDeleted(int row) {
+        long[] current = words;
+        int word = row >>> 6;
+        return word < current.length && (current[word] & (1L << row)) != 0;
+    }
+
+    /** Clears the deleted rows from a selection whose bit {@code i} stands for row {@code base + i}. */
+    void clearDeleted(RowBitmap selection, int base) {
+        long[] current = words;
+        if (base >= current.length << 6) {
+            return;
+        }
+        long[] selected = selection.words();
+        for (int i = 0, n = selection.wordsInUse(); i < n; i++) {
+            selected[i] &= ~RowBitmap.bitsAt(current, base + (i << 6));
+        }
+    }
+
+    /** Local indexes of the live rows in {@code [from, to)}, or null when none of them is deleted. */
+    int[] liveRows(int from, int to) {
+        int deleted = 0;
+        for (int row = from; row < to; row++) {
+            if (isDeleted(row)) {
+                deleted++;
+            }
+        }
+        if (deleted == 0) {
+            return null;
+        }
+        int[] live = new int[to - from - deleted];
+        int n = 0;
+        for (int row = from; row < to; row++) {
+            if (!isDeleted(row)) {
+                live[n++] = row - from;
+            }
+        }
+        return live;
+    }
+
+    long bytes() {
+        return (long) words.length * Long.BYTES;
+    }
+}
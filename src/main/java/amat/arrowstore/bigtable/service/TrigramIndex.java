@@ -0,0 +1,257 @@
+package amat.arrowstore.bigtable.service;
+
+import amat.arrowstore.bigtable.model.ColumnDefinition;
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.vector.BaseVariableWidthVector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.VarCharVector;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Inverted index from byte trigrams of the lower-cased UTF-8 values of a session's
+ * searchable columns to the rows containing them. A search term of three or more bytes
+ * narrows the candidates to the intersection of its trigram postings; candidates still
+ * have to be verified, since their trigrams may come from different columns or positions.
+ */
+final class TrigramIndex {
+
+    private final List<String> columns;
+
+    // Open-addressing map from trigram (24 bits, stored + 1 so 0 marks a free slot) to postings
+    private int[] keys = new int[1024];
+    private PostingBitmap[] postings = new PostingBitmap[1024];
+    private int size;
+
+    private byte[] scratch = new byte[256];
+
+    private TrigramIndex(List<String> columns) {
+        this.columns = columns;
+    }
+
+    /**
+     * Creates an empty index over the searchable columns, or returns null when there are
+     * none or one of them is not a string column, since the index could not narrow the search.
+     */
+    static TrigramIndex create(ChunkedTable table, List<ColumnDefinition> schema) {
+        List<String> columns = new ArrayList<>();
+        for (ColumnDefinition colDef : schema) {
+            if (colDef.isSearchable()) {
+                ChunkedColumn column = table.column(colDef.getName());
+                if (column == null || column.dictionary() == null && !(column.vector(0) instanceof VarCharVector)) {
+                    return null;
+                }
+                columns.add(colDef.getName());
+            }
+        }
+        return columns.isEmpty() ? null : new TrigramIndex(columns);
+    }
+
+    boolean covers(String column) {
+        return columns.contains(column);
+    }
+
+    synchronized void addRows(ChunkedTable table, int from, int to) {
+        for (String name : columns) {
+            ChunkedColumn column = table.column(name);
+            for (int batch = from < to ? column.batchOf(from) : column.batchCount();
+                 batch < column.batchCount() && column.start(batch) < to; batch++) {
+                int start = column.start(batch);
+                for (int row = Math.max(from, start), end = Math.min(to, column.start(batch + 1)); row < end; row++) {
+                    addValue(column, batch, row - start, row);
+                }
+            }
+        }
+    }
+
+    synchronized void addRow(ChunkedTable table, int row) {
+        addRows(table, row, row + 1);
+    }
+
+    /** Removes the row from the postings of every trigram of its current values. */
+    synchronized void removeRow(ChunkedTable table, int row) {
+        for (String name : columns) {
+            ChunkedColumn column = table.column(name);
+            int batch = column.batchOf(row);
+            int length = lowerCased(column, batch, row - column.start(batch));
+            for (int i = 0; i + 3 <= length; i++) {
+                PostingBitmap posting = get(trigram(scratch, i));
+                if (posting != null) {
+                    posting.remove(row);
+                }
+            }
+        }
+    }
+
+    /** Renumbers the rows after a delete that kept {@code keepIndices} (ascending) of {@code oldRowCount}. */
+    synchronized void retain(int[] keepIndices, int oldRowCount) {
+        int[] newIndex = new int[oldRowCount];
+        Arrays.fill(newIndex, -1);
+        for (int i = 0; i < keepIndices.length; i++) {
+            newIndex[keepIndices[i]] = i;
+        }
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (postings[slot] != null) {
+                postings[slot] = postings[slot].remap(newIndex);
+            }
+        }
+    }
+
+    /**
+     * Rows that may contain {@code searchTerm}, as a bitmap over {@code rowCount} rows, or
+     * null when the term is too short to be narrowed by trigrams.
+     */
+    synchronized RowBitmap candidates(String searchTerm, int rowCount) {
+        byte[] term = searchTerm.toLowerCase().getBytes(StandardCharsets.UTF_8);
+        if (term.length < 3) {
+            return null;
+        }
+
+        List<PostingBitmap> lists = new ArrayList<>();
+        for (int i = 0; i + 3 <= term.length; i++) {
+            PostingBitmap posting = get(trigram(term, i));
+            if (posting == null || posting.isEmpty()) {
+                lists.clear();
+                break;
+            }
+            if (!lists.contains(posting)) {
+                lists.add(posting);
+            }
+        }
+
+        RowBitmap result = new RowBitmap(rowCount);
+        result.reset(rowCount);
+        result.clearAll();
+        if (lists.isEmpty()) {
+            return result;
+        }
+
+        // Intersect the rarest lists first so intermediate results stay small
+        lists.sort((a, b) -> Integer.compare(a.cardinality(), b.cardinality()));
+        PostingBitmap intersection = lists.get(0);
+        for (int i = 1; i < lists.size() && !intersection.isEmpty(); i++) {
+            intersection = intersection.and(lists.get(i));
+        }
+        intersection.writeTo(result);
+        return result;
+    }
+
+    synchronized long bytes() {
+        long bytes = (long) keys.length * (Integer.BYTES + 8);
+        for (PostingBitmap posting : postings) {
+            if (posting != null) {
+                bytes += posting.bytes();
+            }
+        }
+        return bytes;
+    }
+
+    // Indexes the value at a batch-local index under its global row
+    private void addValue(ChunkedColumn column, int batch, int index, int row) {
+        int length = lowerCased(column, batch, index);
+        for (int i = 0; i + 3 <= length; i++) {
+            getOrCreate(trigram(scratch, i)).add(row);
+        }
+    }
+
+    /**
+     * Writes the lower-cased UTF-8 bytes of the value into {@link #scratch} and returns
+     * their length (0 for nulls). ASCII values are folded in place where the default locale
+     * allows it (see {@link Utf8Matcher}); others go through {@link String#toLowerCase()}
+     * like the search itself. The value of an encoded column is read from its dictionary.
+     */
+    private int lowerCased(ChunkedColumn column, int batch, int index) {
+        if (column.vector(batch).isNull(index)) {
+            return 0;
+        }
+        VarCharVector vector;
+        int row;
+        if (column.dictionary() != null) {
+            vector = column.dictionary().values();
+            row = ((IntVector) column.vector(batch)).get(index);
+        } else {
+            vector = (VarCharVector) column.vector(batch);
+            row = index;
+        }
+        ArrowBuf offsets = vector.getOffsetBuffer();
+        int start = offsets.getInt((long) row * BaseVariableWidthVector.OFFSET_WIDTH);
+        int length = offsets.getInt((long) (row + 1) * BaseVariableWidthVector.OFFSET_WIDTH) - start;
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        vector.getDataBuffer().getBytes(start, scratch, 0, length);
+
+        if (Utf8Matcher.ASCII_FOLDING) {
+            boolean ascii = true;
+            for (int i = 0; i < length; i++) {
+                byte b = scratch[i];
+                if (b < 0) {
+                    ascii = false;
+                    break;
+                }
+                if (b >= 'A' && b <= 'Z') {
+                    scratch[i] = (byte) (b + ('a' - 'A'));
+                }
+            }
+            if (ascii) {
+                return length;
+            }
+        }
+
+        byte[] lower = new String(scratch, 0, length, StandardCharsets.UTF_8).toLowerCase().getBytes(StandardCharsets.UTF_8);
+        if (scratch.length < lower.length) {
+            scratch = new byte[lower.length];
+        }
+        System.arraycopy(lower, 0, scratch, 0, lower.length);
+        return lower.length;
+    }
+
+    private static int trigram(byte[] bytes, int i) {
+        return ((bytes[i] & 0xFF) << 16) | ((bytes[i + 1] & 0xFF) << 8) | (bytes[i + 2] & 0xFF);
+    }
+
+    private PostingBitmap get(int trigram) {
+        int slot = slot(keys, trigram);
+        return postings[slot];
+    }
+
+    private PostingBitmap getOrCreate(int trigram) {
+        int slot = slot(keys, trigram);
+        if (postings[slot] == null) {
+            keys[slot] = trigram + 1;
+            postings[slot] = new PostingBitmap();
+            if (++size * 2 > keys.length) {
+                grow();
+                slot = slot(keys, trigram);
+            }
+        }
+        return postings[slot];
+    }
+
+    private static int slot(int[] keys, int trigram) {
+        int mask = keys.length - 1;
+        int hash = trigram * 0x9E3779B9;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while (keys[slot] != 0 && keys[slot] != trigram + 1) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        PostingBitmap[] oldPostings = postings;
+        keys = new int[oldKeys.length * 2];
+        postings = new PostingBitmap[oldKeys.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = slot(keys, oldKeys[i] - 1);
+                keys[slot] = oldKeys[i];
+                postings[slot] = oldPostings[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package amat.arrowstore.bigtable.service;
+
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.vector.BaseVariableWidthVector;
+import org.apache.arrow.vector.VarCharVector;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Case-insensitive substring, prefix and suffix matching of one needle against UTF-8 values
+ * in Arrow buffers, with the semantics of {@code value.toLowerCase().contains(needle.toLowerCase())}.
+ * ASCII values are folded byte by byte while matching and searched with a Horspool skip
+ * table; only values holding non-ASCII bytes are decoded and lower-cased as Strings.
+ * Instances hold no mutable state and can be shared between threads.
+ */
+final class Utf8Matcher {
+
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    // Byte folding matches toLowerCase() unless the locale maps ASCII letters elsewhere (Turkish dotless i)
+    static final boolean ASCII_FOLDING = !"tr".equals(Locale.getDefault().getLanguage())
+        && !"az".equals(Locale.getDefault().getLanguage())
+        && !"lt".equals(Locale.getDefault().getLanguage());
+
+    private final String needle;
+    private final byte[] pattern;
+    private final int[] skip = new int[256];
+
+    Utf8Matcher(String needle) {
+        this.needle = needle.toLowerCase();
+        this.pattern = this.needle.getBytes(StandardCharsets.UTF_8);
+        int last = pattern.length - 1;
+        for (int i = 0; i < skip.length; i++) {
+            skip[i] = pattern.length;
+        }
+        for (int i = 0; i < last; i++) {
+            skip[pattern[i] & 0xFF] = last - i;
+        }
+    }
+
+    /** Matches an already decoded value, for vectors that are not UTF-8. */
+    boolean contains(String value) {
+        return value.toLowerCase().contains(needle);
+    }
+
+    boolean contains(VarCharVector vector, int row) {
+        ArrowBuf offsets = vector.getOffsetBuffer();
+        int start = offsets.getInt((long) row * BaseVariableWidthVector.OFFSET_WIDTH);
+        int end = offsets.getInt((long) (row + 1) * BaseVariableWidthVector.OFFSET_WIDTH);
+        return contains(vector.getDataBuffer(), start, end - start);
+    }
+
+    boolean contains(ArrowBuf data, int start, int length) {
+        if (!isAscii(data, start, length)) {
+            return decode(data, start, length).contains(needle);
+        }
+        int m = pattern.length;
+        if (m == 0) {
+            return true;
+        }
+        int last = m - 1;
+        byte lastByte = pattern[last];
+        for (int pos = 0; pos <= length - m; ) {
+            int b = fold(data.getByte(start + pos + last));
+            if (b == lastByte && regionMatches(data, start + pos, last)) {
+                return true;
+            }
+            pos += skip[b & 0xFF];
+        }
+        return false;
+    }
+
+    boolean startsWith(ArrowBuf data, int start, int length) {
+        if (!isAscii(data, start, length)) {
+            return decode(data, start, length).startsWith(needle);
+        }
+        return length >= pattern.length && regionMatches(data, start, pattern.length);
+    }
+
+    boolean endsWith(ArrowBuf data, int start, int length) {
+        if (!isAscii(data, start, length)) {
+            return decode(data, start, length).endsWith(needle);
+        }
+        return length >= pattern.length && regionMatches(data, start + length - pattern.length, pattern.length);
+    }
+
+    // Compares the first count pattern bytes against the folded value bytes at offset
+    private boolean regionMatches(ArrowBuf data, int offset, int count) {
+        for (int i = 0; i < count; i++) {
+            if (fold(data.getByte(offset + i)) != pattern[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte fold(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+    }
+
+    private static boolean isAscii(ArrowBuf data, int start, int length) {
+        if (!ASCII_FOLDING) {
+            return false;
+        }
+        int i = 0;
+        for (; i + Long.BYTES <= length; i += Long.BYTES) {
+            if ((data.getLong(start + i) & HIGH_BITS) != 0) {
+                return false;
+            }
+        }
+        for (; i < length; i++) {
+            if (data.getByte(start + i) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String decode(ArrowBuf data, int start, int length) {
+        byte[] bytes = new byte[Math.max(length, 0)];
+        data.getBytes(start, bytes, 0, length);
+        return new String(bytes, StandardCharsets.UTF_8).toLowerCase();
+    }
+}
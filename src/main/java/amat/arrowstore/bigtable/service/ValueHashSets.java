@@ -0,0 +1,207 @@
+package amat.arrowstore.bigtable.service;
+
+import org.apache.arrow.memory.ArrowBuf;
+
+import java.util.Arrays;
+
+/**
+ * Primitive hash sets holding the value list of an IN or NOT_IN filter, built once per
+ * query and probed straight from the Arrow buffers. Open addressing with linear probing
+ * over power-of-two tables at most half full.
+ */
+final class ValueHashSets {
+
+    private ValueHashSets() {
+    }
+
+    private static int capacityFor(int expected) {
+        return Integer.highestOneBit(Math.max(8, expected * 2 - 1)) << 1;
+    }
+
+    private static int mix(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /** Set of int values. */
+    static final class IntSet {
+        private final int[] keys;
+        private final boolean[] used;
+        private int size;
+        private int min = Integer.MAX_VALUE;
+        private int max = Integer.MIN_VALUE;
+
+        IntSet(int expected) {
+            int capacity = capacityFor(expected);
+            keys = new int[capacity];
+            used = new boolean[capacity];
+        }
+
+        void add(int key) {
+            int mask = keys.length - 1;
+            int slot = mix(key) & mask;
+            while (used[slot]) {
+                if (keys[slot] == key) {
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            used[slot] = true;
+            size++;
+            min = Math.min(min, key);
+            max = Math.max(max, key);
+        }
+
+        boolean contains(int key) {
+            int mask = keys.length - 1;
+            for (int slot = mix(key) & mask; used[slot]; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int min() {
+            return min;
+        }
+
+        int max() {
+            return max;
+        }
+    }
+
+    /** Set of double values, compared by their {@link Double#doubleToLongBits} bits. */
+    static final class DoubleSet {
+        private final long[] keys;
+        private final boolean[] used;
+        private int size;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+
+        DoubleSet(int expected) {
+            int capacity = capacityFor(expected);
+            keys = new long[capacity];
+            used = new boolean[capacity];
+        }
+
+        void add(double value) {
+            long key = Double.doubleToLongBits(value);
+            int mask = keys.length - 1;
+            int slot = hash(key) & mask;
+            while (used[slot]) {
+                if (keys[slot] == key) {
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            used[slot] = true;
+            size++;
+            if (Double.compare(value, min) < 0) {
+                min = value;
+            }
+            if (Double.compare(value, max) > 0) {
+                max = value;
+            }
+        }
+
+        boolean contains(double value) {
+            long key = Double.doubleToLongBits(value);
+            int mask = keys.length - 1;
+            for (int slot = hash(key) & mask; used[slot]; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        int size() {
+            return size;
+        }
+
+        /** Smallest value in {@link Double#compare} order. */
+        double min() {
+            return min;
+        }
+
+        /** Largest value in {@link Double#compare} order. */
+        double max() {
+            return max;
+        }
+
+        private static int hash(long key) {
+            return mix((int) (key ^ (key >>> 32)));
+        }
+    }
+
+    /** Set of UTF-8 byte strings, probed with a range of an Arrow data buffer. */
+    static final class Utf8Set {
+        private final byte[][] keys;
+        private final int[] hashes;
+        private int size;
+
+        Utf8Set(int expected) {
+            int capacity = capacityFor(expected);
+            keys = new byte[capacity][];
+            hashes = new int[capacity];
+        }
+
+        void add(byte[] key) {
+            int hash = hash(key);
+            int mask = keys.length - 1;
+            int slot = hash & mask;
+            while (keys[slot] != null) {
+                if (hashes[slot] == hash && Arrays.equals(keys[slot], key)) {
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            hashes[slot] = hash;
+            size++;
+        }
+
+        /** Whether the bytes {@code [start, start + length)} of the buffer are in the set. */
+        boolean contains(ArrowBuf data, int start, int length) {
+            int h = 1;
+            for (int i = 0; i < length; i++) {
+                h = 31 * h + data.getByte(start + i);
+            }
+            int hash = mix(h);
+            int mask = keys.length - 1;
+            for (int slot = hash & mask; keys[slot] != null; slot = (slot + 1) & mask) {
+                if (hashes[slot] == hash && equals(keys[slot], data, start, length)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        int size() {
+            return size;
+        }
+
+        private static int hash(byte[] key) {
+            return mix(Arrays.hashCode(key));
+        }
+
+        private static boolean equals(byte[] key, ArrowBuf data, int start, int length) {
+            if (key.length != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (key[i] != data.getByte(start + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package amat.arrowstore.bigtable.service;
+
+import org.apache.arrow.vector.*;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Boxed value access shared by the row-oriented fallbacks of the query engine.
+ */
+final class VectorValues {
+
+    private VectorValues() {
+    }
+
+    static Object extract(FieldVector vector, int index) {
+        if (vector.isNull(index)) {
+            return null;
+        }
+
+        if (vector instanceof IntVector) {
+            return ((IntVector) vector).get(index);
+        } else if (vector instanceof Float8Vector) {
+            return ((Float8Vector) vector).get(index);
+        } else if (vector instanceof BitVector) {
+            return ((BitVector) vector).get(index) == 1;
+        } else if (vector instanceof VarCharVector) {
+            return new String(((VarCharVector) vector).get(index), StandardCharsets.UTF_8);
+        } else if (vector instanceof VarBinaryVector) {
+            return ((VarBinaryVector) vector).get(index);
+        }
+
+        return vector.getObject(index);
+    }
+
+    static int compare(Object value1, Object value2) {
+        if (value1 == null && value2 == null) return 0;
+        if (value1 == null) return -1;
+        if (value2 == null) return 1;
+
+        try {
+            // Try numeric comparison
+            double d1 = Double.parseDouble(value1.toString());
+            double d2 = Double.parseDouble(value2.toString());
+            return Double.compare(d1, d2);
+        } catch (NumberFormatException e) {
+            // Fall back to string comparison
+            return value1.toString().compareTo(value2.toString());
+        }
+    }
+
+    static Double parseDouble(Object value) {
+        try {
+            return Double.parseDouble(value.toString());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package amat.arrowstore.bigtable.service;
+
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.vector.BitVector;
+import org.apache.arrow.vector.BitVectorHelper;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+
+import java.util.Arrays;
+
+/**
+ * Per-batch minimum, maximum and null count of a numeric or boolean column, ordered like
+ * {@link Double#compare}. Booleans are tracked as 0 and 1. Filters use it to skip batches
+ * whose value range cannot satisfy a comparison.
+ */
+final class ZoneMap {
+
+    private double[] min = new double[0];
+    private double[] max = new double[0];
+    private int[] nonNullCount = new int[0];
+
+    private ZoneMap() {
+    }
+
+    /** Creates statistics over every batch of the column, or null for unsupported vector types. */
+    static ZoneMap create(ChunkedColumn column) {
+        FieldVector vector = column.vector(0);
+        // The codes of a dictionary-encoded string column do not follow the order of its values
+        if (column.dictionary() != null
+                || !(vector instanceof IntVector || vector instanceof Float8Vector || vector instanceof BitVector)) {
+            return null;
+        }
+        ZoneMap zoneMap = new ZoneMap();
+        zoneMap.append(column, 0, column.rowCount());
+        return zoneMap;
+    }
+
+    /** Widens the statistics of the batches touched by rows {@code [from, to)} with their values. */
+    synchronized void append(ChunkedColumn column, int from, int to) {
+        int batches = column.batchCount();
+        if (batches > min.length) {
+            int oldBatches = min.length;
+            min = Arrays.copyOf(min, batches);
+            max = Arrays.copyOf(max, batches);
+            nonNullCount = Arrays.copyOf(nonNullCount, batches);
+            for (int batch = oldBatches; batch < batches; batch++) {
+                clear(batch);
+            }
+        }
+        for (int batch = from < to ? column.batchOf(from) : batches; batch < batches && column.start(batch) < to; batch++) {
+            int start = column.start(batch);
+            FieldVector vector = column.vector(batch);
+            for (int row = Math.max(from, start), end = Math.min(to, column.start(batch + 1)); row < end; row++) {
+                include(vector, batch, row - start);
+            }
+        }
+    }
+
+    /** Recomputes a batch after one of its values changed in place. */
+    synchronized void update(ChunkedColumn column, int batch) {
+        clear(batch);
+        FieldVector vector = column.vector(batch);
+        for (int row = 0, end = column.start(batch + 1) - column.start(batch); row < end; row++) {
+            include(vector, batch, row);
+        }
+    }
+
+    /**
+     * Whether a row of the batch may compare to {@code key} with an outcome in
+     * {@code accept} (bit 0 = less, bit 1 = equal, bit 2 = greater).
+     */
+    synchronized boolean mayMatch(int batch, int accept, double key) {
+        if (batch >= min.length) {
+            return true;
+        }
+        if (nonNullCount[batch] == 0) {
+            return false;
+        }
+        int lowest = Double.compare(min[batch], key);
+        int highest = Double.compare(max[batch], key);
+        return ((accept & 1) != 0 && lowest < 0)
+            || ((accept & 2) != 0 && lowest <= 0 && highest >= 0)
+            || ((accept & 4) != 0 && highest > 0);
+    }
+
+    long bytes() {
+        return (long) min.length * (2 * Double.BYTES + Integer.BYTES);
+    }
+
+    private void clear(int batch) {
+        min[batch] = Double.POSITIVE_INFINITY;
+        max[batch] = Double.NEGATIVE_INFINITY;
+        nonNullCount[batch] = 0;
+    }
+
+    private void include(FieldVector vector, int batch, int row) {
+        if (vector.isNull(row)) {
+            return;
+        }
+        double value = value(vector, row);
+        if (nonNullCount[batch]++ == 0) {
+            min[batch] = value;
+            max[batch] = value;
+        } else {
+            if (Double.compare(value, min[batch]) < 0) {
+                min[batch] = value;
+            }
+            if (Double.compare(value, max[batch]) > 0) {
+                max[batch] = value;
+            }
+        }
+    }
+
+    private static double value(FieldVector vector, int row) {
+        ArrowBuf data = vector.getDataBuffer();
+        if (vector instanceof IntVector) {
+            return data.getInt((long) row * IntVector.TYPE_WIDTH);
+        } else if (vector instanceof Float8Vector) {
+            return data.getDouble((long) row * Float8Vector.TYPE_WIDTH);
+        }
+        return BitVectorHelper.get(data, row);
+    }
+}
@@ -1,6 +1,23 @@
 package amat.arrowstore.bigtable;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import amat.arrowstore.bigtable.model.ColumnDefinition;
+import amat.arrowstore.bigtable.model.DataType;
+import amat.arrowstore.bigtable.model.TableQueryRequest;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BitVector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowFileReader;
+import org.apache.arrow.vector.ipc.ArrowStreamReader;
+import org.apache.arrow.vector.ipc.ArrowStreamWriter;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.FieldType;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -8,23 +25,43 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
 
+import static org.hamcrest.Matchers.contains;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import static amat.arrowstore.bigtable.MemoryTestUtils.*;
 import amat.arrowstore.bigtable.MemoryTestUtils.PerformanceTimer;
 import amat.arrowstore.bigtable.service.ArrowTableService;
+import amat.arrowstore.bigtable.service.ColumnBatch;
+import amat.arrowstore.bigtable.service.DataGeneratorService;
 
 @SpringBootTest(classes = {BigTableApplication.class})
 @AutoConfigureMockMvc
 @TestPropertySource(properties = {
     "bigtable.implementation=arrow", 
     "server.servlet.context-path=",
-    "bigtable.data.rowCount=150000"
+    "bigtable.data.rowCount=150000",
+    "bigtable.query.parallelism=4",
+    "bigtable.query.sorted-indexes=true"
 })
 public class ArrowTableControllerIntegrationTest {
 
@@ -36,6 +73,9 @@ public class ArrowTableControllerIntegrationTest {
     
     @Autowired
     private ArrowTableService arrowTableService;
+    
+    @Autowired
+    private DataGeneratorService dataGeneratorService;
 
     @Test
     public void testUploadDataAndQuery_Arrow() throws Exception {
@@ -382,6 +422,1498 @@ public class ArrowTableControllerIntegrationTest {
         System.out.println("Delete by query test completed successfully!");
     }
     
+    @Test
+    public void testFilterOperations_Arrow() throws Exception {
+        System.out.println("\n=== FILTER OPERATIONS TEST ===");
+        
+        String sessionId = "filter-test-session";
+        
+        mockMvc.perform(post("/v1/sessions/{sessionId}/data", sessionId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(createLargerTestPayload())))
+                .andExpect(status().isOk());
+        
+        // Numeric comparisons, including filter values sent as strings by the grid
+        assertFilterCount(sessionId, List.of(Map.of("column", "score", "operation", "LESS_THAN", "values", List.of(85.0))), 3);
+        assertFilterCount(sessionId, List.of(Map.of("column", "score", "operation", "GREATER_THAN_OR_EQUAL", "values", List.of("90.1"))), 5);
+        assertFilterCount(sessionId, List.of(Map.of("column", "id", "operation", "NOT_EQUALS", "values", List.of(4))), 9);
+        assertFilterCount(sessionId, List.of(Map.of("column", "id", "operation", "LESS_THAN_OR_EQUAL", "values", List.of("3"))), 3);
+        
+        // Boolean and string columns
+        assertFilterCount(sessionId, List.of(Map.of("column", "active", "operation", "EQUALS", "values", List.of("false"))), 3);
+        assertFilterCount(sessionId, List.of(Map.of("column", "name", "operation", "EQUALS", "values", List.of("Grace"))), 1);
+        assertFilterCount(sessionId, List.of(Map.of("column", "name", "operation", "GREATER_THAN", "values", List.of("H"))), 3);
+        assertFilterCount(sessionId, List.of(Map.of("column", "name", "operation", "CONTAINS", "values", List.of("AR"))), 1);
+        assertFilterCount(sessionId, List.of(Map.of("column", "name", "operation", "STARTS_WITH", "values", List.of("d"))), 1);
+        assertFilterCount(sessionId, List.of(Map.of("column", "name", "operation", "ENDS_WITH", "values", List.of("e"))), 4);
+        
+        // Null checks and combined filters
+        assertFilterCount(sessionId, List.of(Map.of("column", "name", "operation", "IS_NOT_NULL", "values", List.of())), 10);
+        assertFilterCount(sessionId, List.of(Map.of("column", "name", "operation", "IS_NULL", "values", List.of())), 0);
+        assertFilterCount(sessionId, List.of(
+            Map.of("column", "active", "operation", "EQUALS", "values", List.of(true)),
+            Map.of("column", "score", "operation", "GREATER_THAN", "values", List.of(90))
+        ), 4);
+        
+        mockMvc.perform(delete("/v1/sessions/{sessionId}/data", sessionId))
+                .andExpect(status().isOk());
+        
+        System.out.println("Filter operations test completed successfully!");
+    }
+    
+    @Test
+    public void testSortOrder_Arrow() throws Exception {
+        System.out.println("\n=== SORT ORDER TEST ===");
+        
+        String sessionId = "sort-test-session";
+        
+        List<Map<String, Object>> schema = List.of(
+            Map.of("name", "id", "type", "INTEGER", "sortable", true, "filterable", true, "searchable", false),
+            Map.of("name", "name", "type", "STRING", "sortable", true, "filterable", true, "searchable", true),
+            Map.of("name", "score", "type", "DOUBLE", "sortable", true, "filterable", true, "searchable", false),
+            Map.of("name", "active", "type", "BOOLEAN", "sortable", true, "filterable", true, "searchable", false)
+        );
+        
+        // Shared string prefixes, duplicates, a null and mixed-case values
+        Map<String, Object> nullNameRow = new HashMap<>();
+        nullNameRow.put("id", 3);
+        nullNameRow.put("name", null);
+        nullNameRow.put("score", 5.0);
+        nullNameRow.put("active", true);
+        List<Map<String, Object>> data = List.of(
+            Map.of("id", 1, "name", "database query", "score", 5.0, "active", true),
+            Map.of("id", 2, "name", "database index", "score", 3.0, "active", false),
+            nullNameRow,
+            Map.of("id", 4, "name", "Zed", "score", -1.5, "active", true),
+            Map.of("id", 5, "name", "database index", "score", 3.0, "active", true)
+        );
+        
+        mockMvc.perform(post("/v1/sessions/{sessionId}/data", sessionId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Map.of("schema", schema, "data", data))))
+                .andExpect(status().isOk());
+        
+        assertSortOrder(sessionId, List.of(Map.of("column", "name", "direction", "ASC")), List.of(3, 4, 2, 5, 1));
+        assertSortOrder(sessionId, List.of(Map.of("column", "name", "direction", "DESC")), List.of(1, 2, 5, 4, 3));
+        assertSortOrder(sessionId, List.of(
+            Map.of("column", "active", "direction", "DESC", "priority", 0),
+            Map.of("column", "score", "direction", "ASC", "priority", 1)
+        ), List.of(4, 5, 1, 3, 2));
+        
+        // Repeating a sort serves it from the cached permutation, which must follow writes
+        assertSortOrder(sessionId, List.of(Map.of("column", "name", "direction", "ASC")), List.of(3, 4, 2, 5, 1));
+        mockMvc.perform(put("/v1/sessions/{sessionId}/record/{recordId}/field/{fieldName}", sessionId, "4", "name")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Map.of("value", "zed"))))
+                .andExpect(status().isOk());
+        assertSortOrder(sessionId, List.of(Map.of("column", "name", "direction", "ASC")), List.of(3, 2, 5, 1, 4));
+        assertSortOrder(sessionId, List.of(Map.of("column", "name", "direction", "ASC")), List.of(3, 2, 5, 1, 4));
+        
+        Map<String, Object> deleteRequest = Map.of(
+            "sessionId", sessionId,
+            "filters", List.of(Map.of("column", "id", "operation", "EQUALS", "values", List.of(2))),
+            "sorts", List.of(),
+            "searchTerm", "",
+            "page", 0,
+            "pageSize", 100
+        );
+        mockMvc.perform(post("/v1/sessions/{sessionId}/delete", sessionId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(deleteRequest)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deletedCount").value(1));
+        assertSortOrder(sessionId, List.of(Map.of("column", "name", "direction", "ASC")), List.of(3, 5, 1, 4));
+        
+        mockMvc.perform(delete("/v1/sessions/{sessionId}/data", sessionId))
+                .andExpect(status().isOk());
+        
+        System.out.println("Sort order test completed successfully!");
+    }
+    
+    @Test
+    public void testPartialSortMatchesFullSort_Arrow() throws Exception {
+        System.out.println("\n=== PARTIAL SORT TEST ===");
+        
+        String sessionId = "default-session";
+        List<Map<String, Object>> sorts = List.of(
+            Map.of("column", "int_1", "direction", "DESC", "priority", 0),
+            Map.of("column", "string_1", "direction", "ASC", "priority", 1)
+        );
+        
+        // Early pages go through the top-K path, a huge page forces the full sort
+        List<Integer> fullOrder = queryIds(sessionId, sorts, 0, 50000);
+        List<Integer> firstPage = queryIds(sessionId, sorts, 0, 100);
+        List<Integer> thirdPage = queryIds(sessionId, sorts, 2, 100);
+        
+        assertEquals(fullOrder.subList(0, 100), firstPage);
+        assertEquals(fullOrder.subList(200, 300), thirdPage);
+        
+        System.out.println("Partial sort test completed successfully!");
+    }
+    
+    @Test
+    public void testSearchIndex_Arrow() throws Exception {
+        System.out.println("\n=== SEARCH INDEX TEST ===");
+        
+        String sessionId = "search-test-session";
+        
+        List<Map<String, Object>> schema = List.of(
+            Map.of("name", "id", "type", "INTEGER", "sortable", true, "filterable", true, "searchable", false),
+            Map.of("name", "title", "type", "STRING", "sortable", true, "filterable", true, "searchable", true),
+            Map.of("name", "notes", "type", "STRING", "sortable", true, "filterable", true, "searchable", true)
+        );
+        
+        // Trigrams split across columns, mixed case and non-ASCII values
+        List<Map<String, Object>> data = List.of(
+            Map.of("id", 1, "title", "Database Query", "notes", "fast"),
+            Map.of("id", 2, "title", "data", "notes", "table"),
+            Map.of("id", 3, "title", "STRASSE", "notes", "Große Straße"),
+            Map.of("id", 4, "title", "query cache", "notes", "database")
+        );
+        
+        mockMvc.perform(post("/v1/sessions/{sessionId}/data", sessionId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Map.of("schema", schema, "data", data))))
+                .andExpect(status().isOk());
+        
+        assertSearchCount(sessionId, "DATABASE", 2);
+        assertSearchCount(sessionId, "base q", 1);
+        assertSearchCount(sessionId, "atab", 2);
+        assertSearchCount(sessionId, "straße", 1);
+        assertSearchCount(sessionId, "strasse", 1);
+        assertSearchCount(sessionId, "da", 3);
+        assertSearchCount(sessionId, "missing", 0);
+        assertSearchCount(sessionId, "SSE", 1);
+        
+        // Case-insensitive string filters on ASCII and non-ASCII values
+        assertFilterCount(sessionId, List.of(Map.of("column", "title", "operation", "STARTS_WITH", "values", List.of("DATA"))), 2);
+        assertFilterCount(sessionId, List.of(Map.of("column", "title", "operation", "CONTAINS", "values", List.of("ase Q"))), 1);
+        assertFilterCount(sessionId, List.of(Map.of("column", "title", "operation", "ENDS_WITH", "values", List.of("asse"))), 1);
+        assertFilterCount(sessionId, List.of(Map.of("column", "notes", "operation", "ENDS_WITH", "values", List.of("STRAßE"))), 1);
+        assertFilterCount(sessionId, List.of(Map.of("column", "notes", "operation", "CONTAINS", "values", List.of("GROß"))), 1);
+        
+        mockMvc.perform(put("/v1/sessions/{sessionId}/record/{recordId}/field/{fieldName}", sessionId, "2", "notes")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Map.of("value", "Query plan"))))
+                .andExpect(status().isOk());
+        assertSearchCount(sessionId, "table", 0);
+        assertSearchCount(sessionId, "query", 3);
+        // Rows after the updated one keep their values
+        assertSearchCount(sessionId, "straße", 1);
+        assertFilterCount(sessionId, List.of(Map.of("column", "notes", "operation", "EQUALS", "values", List.of("database"))), 1);
+        
+        Map<String, Object> deleteRequest = Map.of(
+            "sessionId", sessionId,
+            "filters", List.of(Map.of("column", "id", "operation", "EQUALS", "values", List.of(1))),
+            "sorts", List.of(),
+            "searchTerm", "",
+            "page", 0,
+            "pageSize", 100
+        );
+        mockMvc.perform(post("/v1/sessions/{sessionId}/delete", sessionId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(deleteRequest)))
+                .andExpect(status().isOk());
+        assertSearchCount(sessionId, "query", 2);
+        assertSearchCount(sessionId, "database", 1);
+        
+        mockMvc.perform(delete("/v1/sessions/{sessionId}/data", sessionId))
+                .andExpect(status().isOk());
+        
+        System.out.println("Search index test completed successfully!");
+    }
+    
+    @Test
+    public void testPagingFromResultCache_Arrow() throws Exception {
+        System.out.println("\n=== RESULT CACHE PAGING TEST ===");
+        
+        String sessionId = "default-session";
+        List<Map<String, Object>> filters = List.of(
+            Map.of("column", "int_2", "operation", "GREATER_THAN", "values", List.of("5000"))
+        );
+        List<Map<String, Object>> sorts = List.of(
+            Map.of("column", "double_1", "direction", "ASC", "priority", 0)
+        );
+        
+        // The first page caches a partially ordered result; deeper pages extend its order
+        List<Integer> firstPage = queryIds(sessionId, filters, sorts, 0, 100);
+        List<Integer> firstPageAgain = queryIds(sessionId, filters, sorts, 0, 100);
+        List<Integer> deepPage = queryIds(sessionId, filters, sorts, 30, 100);
+        List<Integer> fullOrder = queryIds(sessionId, filters, sorts, 0, 200000);
+        
+        assertEquals(firstPage, firstPageAgain);
+        assertEquals(fullOrder.subList(0, 100), firstPage);
+        assertEquals(fullOrder.subList(3000, 3100), deepPage);
+        
+        System.out.println("Result cache paging test completed successfully!");
+    }
+    
+    @Test
+    public void testZoneMapChunkSkipping_Arrow() throws Exception {
+        System.out.println("\n=== ZONE MAP TEST ===");
+        
+        String sessionId = "zone-map-test-session";
+        
+        List<Map<String, Object>> schema = List.of(
+            Map.of("name", "id", "type", "INTEGER", "sortable", true, "filterable", true, "searchable", false),
+            Map.of("name", "score", "type", "DOUBLE", "sortable", true, "filterable", true, "searchable", false),
+            Map.of("name", "active", "type", "BOOLEAN", "sortable", true, "filterable", true, "searchable", false)
+        );
+        
+        // Ascending ids and scores span several chunks, so range filters rule most chunks out
+        List<Map<String, Object>> data = new ArrayList<>();
+        for (int i = 1; i <= 25000; i++) {
+            data.add(Map.of("id", i, "score", i * 0.5, "active", i > 20000));
+        }
+        
+        mockMvc.perform(post("/v1/sessions/{sessionId}/data", sessionId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Map.of("schema", schema, "data", data))))
+                .andExpect(status().isOk());
+        
+        assertFilterCount(sessionId, List.of(Map.of("column", "id", "operation", "GREATER_THAN", "values", List.of(24000))), 1000);
+        assertFilterCount(sessionId, List.of(Map.of("column", "id", "operation", "LESS_THAN_OR_EQUAL", "values", List.of("100"))), 100);
+        assertFilterCount(sessionId, List.of(Map.of("column", "id", "operation", "EQUALS", "values", List.of(12345))), 1);
+        assertFilterCount(sessionId, List.of(Map.of("column", "id", "operation", "NOT_EQUALS", "values", List.of(5))), 24999);
+        assertFilterCount(sessionId, List.of(Map.of("column", "score", "operation", "LESS_THAN", "values", List.of(10))), 19);
+        assertFilterCount(sessionId, List.of(Map.of("column", "active", "operation", "EQUALS", "values", List.of(true))), 5000);
+        assertFilterCount(sessionId, List.of(Map.of("column", "active", "operation", "EQUALS", "values", List.of(false))), 20000);
+        
+        // An update moves a value outside its chunk's previous range
+        mockMvc.perform(put("/v1/sessions/{sessionId}/record/{recordId}/field/{fieldName}", sessionId, "5", "score")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Map.of("value", "100000"))))
+                .andExpect(status().isOk());
+        assertFilterCount(sessionId, List.of(Map.of("column", "score", "operation", "GREATER_THAN", "values", List.of(50000))), 1);
+        assertFilterCount(sessionId, List.of(Map.of("column", "score", "operation", "LESS_THAN", "values", List.of(10))), 18);
+        
+        Map<String, Object> deleteRequest = Map.of(
+            "sessionId", sessionId,
+            "filters", List.of(Map.of("column", "id", "operation", "LESS_THAN_OR_EQUAL", "values", List.of(10000))),
+            "sorts", List.of(),
+            "searchTerm", "",
+            "page", 0,
+            "pageSize", 100
+        );
+        mockMvc.perform(post("/v1/sessions/{sessionId}/delete", sessionId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(deleteRequest)))
+                .andExpect(status().isOk());
+        assertFilterCount(sessionId, List.of(Map.of("column", "id", "operation", "GREATER_THAN", "values", List.of(24000))), 1000);
+        assertFilterCount(sessionId, List.of(Map.of("column", "score", "operation", "GREATER_THAN", "values", List.of(50000))), 0);
+        assertFilterCount(sessionId, List.of(Map.of("column", "active", "operation", "EQUALS", "values", List.of(true))), 5000);
+        
+        mockMvc.perform(delete("/v1/sessions/{sessionId}/data", sessionId))
+                .andExpect(status().isOk());
+        
+        System.out.println("Zone map test completed successfully!");
+    }
+    
+    @Test
+    public void testParallelQueryMatchesSequentialOrder_Arrow() throws Exception {
+        System.out.println("\n=== PARALLEL QUERY TEST ===");
+        
+        String sessionId = "parallel-test-session";
+        int rowCount = 60000;
+        
+        List<Map<String, Object>> schema = List.of(
+            Map.of("name", "id", "type", "INTEGER", "sortable", true, "filterable", true, "searchable", false),
+            Map.of("name", "bucket", "type", "INTEGER", "sortable", true, "filterable", true, "searchable", false),
+            Map.of("name", "score", "type", "DOUBLE", "sortable", true, "filterable", true, "searchable", false),
+            Map.of("name", "flag", "type", "BOOLEAN", "sortable", true, "filterable", true, "searchable", false)
+        );
+        
+        // Enough rows to cross the parallel threshold, with many ties to expose unstable merges
+        List<Map<String, Object>> data = new ArrayList<>();
+        for (int i = 1; i <= rowCount; i++) {
+            data.add(Map.of("id", i, "bucket", i % 7, "score", (double) ((i * 37) % 1000), "flag", i % 3 == 0));
+        }
+        
+        mockMvc.perform(post("/v1/sessions/{sessionId}/data", sessionId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Map.of("schema", schema, "data", data))))
+                .andExpect(status().isOk());
+        
+        // Chunks filtered in parallel are concatenated in row order
+        List<Integer> expectedFiltered = new ArrayList<>();
+        for (int i = 1; i <= rowCount; i++) {
+            if (i % 7 == 3) {
+                expectedFiltered.add(i);
+            }
+        }
+        List<Map<String, Object>> filters = List.of(Map.of("column", "bucket", "operation", "EQUALS", "values", List.of(3)));
+        assertEquals(expectedFiltered, queryIds(sessionId, filters, List.of(), 0, rowCount));
+        
+        // Segments sorted in parallel merge into the stable sequential order
+        List<Integer> expectedSorted = new ArrayList<>();
+        for (int i = 1; i <= rowCount; i++) {
+            expectedSorted.add(i);
+        }
+        expectedSorted.sort(Comparator.<Integer>comparingInt(i -> -((i * 37) % 1000))
+            .thenComparing(i -> i % 3 == 0));
+        List<Map<String, Object>> sorts = List.of(
+            Map.of("column", "score", "direction", "DESC", "priority", 0),
+            Map.of("column", "flag", "direction", "ASC", "priority", 1)
+        );
+        assertEquals(expectedSorted, queryIds(sessionId, sorts, 0, rowCount));
+        assertEquals(expectedSorted.subList(10000, 15000), queryIds(sessionId, sorts, 2, 5000));
+        
+        mockMvc.perform(delete("/v1/sessions/{sessionId}/data", sessionId))
+                .andExpect(status().isOk());
+        
+        System.out.println("Parallel query test completed successfully!");
+    }
+    
+    @Test
+    public void testArrowStreamQuery_Arrow() throws Exception {
+        System.out.println("\n=== ARROW STREAM QUERY TEST ===");
+        
+        String sessionId = "default-session";
+        List<Map<String, Object>> filters = List.of(
+            Map.of("column", "int_1", "operation", "LESS_THAN", "values", List.of(5000))
+        );
+        List<Map<String, Object>> sorts = List.of(
+            Map.of("column", "string_1", "direction", "ASC", "priority", 0)
+        );
+        Map<String, Object> queryRequest = Map.of(
+            "sessionId", sessionId,
+            "filters", filters,
+            "sorts", sorts,
+            "searchTerm", "",
+            "page", 1,
+            "pageSize", 25000
+        );
+        
+        MvcResult jsonResult = mockMvc.perform(post("/v1/sessions/{sessionId}/query", sessionId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(queryRequest)))
+                .andExpect(status().isOk())
+                .andReturn();
+        JsonNode json = objectMapper.readTree(jsonResult.getResponse().getContentAsString());
+        
+        MvcResult arrowResult = mockMvc.perform(post("/v1/sessions/{sessionId}/query/arrow", sessionId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(queryRequest)))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/vnd.apache.arrow.stream"))
+                .andExpect(header().string("X-Total-Rows", json.get("totalElements").asText()))
+                .andReturn();
+        
+        // The page spans several record batches; rows and values match the JSON page
+        List<Integer> arrowIds = new ArrayList<>();
+        List<String> arrowStrings = new ArrayList<>();
+        int batches = 0;
+        try (RootAllocator allocator = new RootAllocator();
+             ArrowStreamReader reader = new ArrowStreamReader(
+                 new ByteArrayInputStream(arrowResult.getResponse().getContentAsByteArray()), allocator)) {
+            VectorSchemaRoot root = reader.getVectorSchemaRoot();
+            assertEquals(json.get("data").get(0).size(), root.getSchema().getFields().size());
+            while (reader.loadNextBatch()) {
+                batches++;
+                IntVector ids = (IntVector) root.getVector("id");
+                VarCharVector strings = (VarCharVector) root.getVector("string_1");
+                for (int i = 0; i < root.getRowCount(); i++) {
+                    arrowIds.add(ids.get(i));
+                    arrowStrings.add(new String(strings.get(i), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        
+        List<Integer> jsonIds = new ArrayList<>();
+        List<String> jsonStrings = new ArrayList<>();
+        json.get("data").forEach(row -> {
+            jsonIds.add(row.get("id").asInt());
+            jsonStrings.add(row.get("string_1").asText());
+        });
+        assertEquals(jsonIds, arrowIds);
+        assertEquals(jsonStrings, arrowStrings);
+        assertTrue(batches > 1);
+        
+        mockMvc.perform(post("/v1/sessions/{sessionId}/query/arrow", "missing-session")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Map.of("sessionId", "missing-session"))))
+                .andExpect(status().isNotFound());
+        
+        System.out.println("Arrow stream query test completed successfully!");
+    }
+    
+    @Test
+    public void testColumnProjection_Arrow() throws Exception {
+        System.out.println("\n=== COLUMN PROJECTION TEST ===");
+        
+        String sessionId = "default-session";
+        Map<String, Object> queryRequest = Map.of(
+            "sessionId", sessionId,
+            "filters", List.of(Map.of("column", "int_1", "operation", "GREATER_THAN", "values", List.of(100))),
+            "sorts", List.of(Map.of("column", "double_1", "direction", "DESC", "priority", 0)),
+            "searchTerm", "",
+            "page", 0,
+            "pageSize", 50,
+            "columns", List.of("id", "string_1", "double_1", "no_such_column")
+        );
+        
+        // Only the requested columns are returned, whichever columns filter and sort
+        mockMvc.perform(post("/v1/sessions/{sessionId}/query", sessionId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(queryRequest)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(50))
+                .andExpect(jsonPath("$.data[0].length()").value(3))
+                .andExpect(jsonPath("$.data[0].id").exists())
+                .andExpect(jsonPath("$.data[0].string_1").exists())
+                .andExpect(jsonPath("$.data[0].int_1").doesNotExist())
+                .andExpect(jsonPath("$.data[0].binary_data").doesNotExist());
+        
+        MvcResult arrowResult = mockMvc.perform(post("/v1/sessions/{sessionId}/query/arrow", sessionId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(queryRequest)))
+                .andExpect(status().isOk())
+                .andReturn();
+        try (RootAllocator allocator = new RootAllocator();
+             ArrowStreamReader reader = new ArrowStreamReader(
+                 new ByteArrayInputStream(arrowResult.getResponse().getContentAsByteArray()), allocator)) {
+            VectorSchemaRoot root = reader.getVectorSchemaRoot();
+            List<String> fieldNames = new ArrayList<>();
+            root.getSchema().getFields().forEach(field -> fieldNames.add(field.getName()));
+            assertEquals(List.of("id", "string_1", "double_1"), fieldNames);
+            assertTrue(reader.loadNextBatch());
+            assertEquals(50, root.getRowCount());
+        }
+        
+        // Without a projection every column is returned
+        assertEquals(50, queryIds(sessionId, List.of(), 0, 50).size());
+        
+        System.out.println("Column projection test completed successfully!");
+    }
+    
+    @Test
+    public void testStreamedJsonMatchesQueryResponse_Arrow() throws Exception {
+        System.out.println("\n=== STREAMED JSON TEST ===");
+        
+        String sessionId = "json-test-session";
+        
+        List<Map<String, Object>> schema = List.of(
+            Map.of("name", "id", "type", "INTEGER", "sortable", true, "filterable", true, "searchable", false),
+            Map.of("name", "label", "type", "STRING", "sortable", true, "filterable", true, "searchable", true),
+            Map.of("name", "score", "type", "DOUBLE", "sortable", true, "filterable", true, "searchable", false),
+            Map.of("name", "active", "type", "BOOLEAN", "sortable", true, "filterable", true, "searchable", false)
+        );
+        
+        // Strings needing escapes, non-ASCII text and null cells
+        Map<String, Object> withNulls = new HashMap<>();
+        withNulls.put("id", 4);
+        withNulls.put("label", null);
+        withNulls.put("score", null);
+        withNulls.put("active", null);
+        List<Map<String, Object>> data = List.of(
+            Map.of("id", 1, "label", "say \"hi\"\n\ttab \\ slash", "score", 1.5, "active", true),
+            Map.of("id", 2, "label", "Große Straße – 東京 🚀", "score", -0.125, "active", false),
+            Map.of("id", 3, "label", "", "score", 1e-7, "active", true),
+            withNulls
+        );
+        
+        mockMvc.perform(post("/v1/sessions/{sessionId}/data", sessionId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Map.of("schema", schema, "data", data))))
+                .andExpect(status().isOk());
+        
+        Map<String, Object> queryRequest = Map.of(
+            "sessionId", sessionId,
+            "filters", List.of(),
+            "sorts", List.of(Map.of("column", "id", "direction", "ASC", "priority", 0)),
+            "searchTerm", "",
+            "page", 0,
+            "pageSize", 10
+        );
+        MvcResult result = mockMvc.perform(post("/v1/sessions/{sessionId}/query", sessionId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(queryRequest)))
+                .andExpect(status().isOk())
+                .andReturn();
+        
+        // The streamed body equals the serialized TableQueryResponse, apart from the timing
+        ObjectNode streamed = (ObjectNode) objectMapper.readTree(result.getResponse().getContentAsByteArray());
+        ObjectNode expected = (ObjectNode) objectMapper.readTree(objectMapper.writeValueAsString(arrowTableService.query(
+            objectMapper.convertValue(queryRequest, TableQueryRequest.class))));
+        streamed.remove("queryTimeMs");
+        expected.remove("queryTimeMs");
+        assertEquals(expected, streamed);
+        assertEquals("Große Straße – 東京 🚀", streamed.get("data").get(1).get("label").asText());
+        assertTrue(streamed.get("data").get(3).get("score").isNull());
+        
+        mockMvc.perform(delete("/v1/sessions/{sessionId}/data", sessionId))
+                .andExpect(status().isOk());
+        
+        System.out.println("Streamed JSON test completed successfully!");
+    }
+    
+    @Test
+    public void testArrowStreamUpload_Arrow() throws Exception {
+        System.out.println("\n=== ARROW STREAM UPLOAD TEST ===");
+        
+        String sessionId = "arrow-upload-session";
+        
+        // Three record batches: the first is transferred, the others are appended
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (RootAllocator allocator = new RootAllocator();
+             IntVector ids = new IntVector("id", allocator);
+             VarCharVector names = new VarCharVector(new Field("name", FieldType.nullable(new ArrowType.Utf8()), null), allocator);
+             Float8Vector scores = new Float8Vector("score", allocator);
+             BitVector active = new BitVector("active", allocator)) {
+            VectorSchemaRoot root = VectorSchemaRoot.of(ids, names, scores, active);
+            try (ArrowStreamWriter writer = new ArrowStreamWriter(root, null, body)) {
+                writer.start();
+                for (int batch = 0; batch < 3; batch++) {
+                    root.allocateNew();
+                    for (int i = 0; i < 1000; i++) {
+                        int id = batch * 1000 + i + 1;
+                        ids.setSafe(i, id);
+                        if (id % 100 == 0) {
+                            names.setNull(i);
+                        } else {
+                            names.setSafe(i, ("name " + id % 7).getBytes(StandardCharsets.UTF_8));
+                        }
+                        scores.setSafe(i, id * 0.5);
+                        active.setSafe(i, id % 2);
+                    }
+                    root.setRowCount(1000);
+                    writer.writeBatch();
+                }
+                writer.end();
+            }
+        }
+        
+        mockMvc.perform(post("/v1/sessions/{sessionId}/data/arrow", sessionId)
+                .contentType("application/vnd.apache.arrow.stream")
+                .content(body.toByteArray()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.rowCount").value("3000"));
+        
+        mockMvc.perform(get("/v1/sessions/{sessionId}/schema", sessionId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].name", contains("id", "name", "score", "active")))
+                .andExpect(jsonPath("$[*].type", contains("INTEGER", "STRING", "DOUBLE", "BOOLEAN")));
+        
+        assertFilterCount(sessionId, List.of(), 3000);
+        assertFilterCount(sessionId, List.of(Map.of("column", "score", "operation", "GREATER_THAN", "values", List.of(1000))), 1000);
+        assertFilterCount(sessionId, List.of(Map.of("column", "active", "operation", "EQUALS", "values", List.of(true))), 1500);
+        assertFilterCount(sessionId, List.of(Map.of("column", "name", "operation", "IS_NULL", "values", List.of())), 30);
+        assertSearchCount(sessionId, "name 3", 425);
+        assertEquals(List.of(3000, 2999, 2998), queryIds(sessionId,
+            List.of(Map.of("column", "score", "direction", "DESC", "priority", 0)), 0, 3));
+        
+        // Uploaded vectors accept in-place updates and later JSON appends
+        mockMvc.perform(put("/v1/sessions/{sessionId}/record/{recordId}/field/{fieldName}", sessionId, "5", "name")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Map.of("value", "renamed row"))))
+                .andExpect(status().isOk());
+        assertSearchCount(sessionId, "renamed", 1);
+        assertSearchCount(sessionId, "name 5", 423);
+        
+        mockMvc.perform(post("/v1/sessions/{sessionId}/data/arrow", sessionId)
+                .contentType("application/vnd.apache.arrow.stream")
+                .content(new byte[] {1, 2, 3}))
+                .andExpect(status().isBadRequest());
+        
+        // A stream cut off inside its last batch leaves the session as it was
+        mockMvc.perform(post("/v1/sessions/{sessionId}/data/arrow", sessionId)
+                .contentType("application/vnd.apache.arrow.stream")
+                .content(Arrays.copyOf(body.toByteArray(), body.size() - 100)))
+                .andExpect(status().isBadRequest());
+        assertFilterCount(sessionId, List.of(), 3000);
+        assertSearchCount(sessionId, "renamed", 1);
+        
+        mockMvc.perform(delete("/v1/sessions/{sessionId}/data", sessionId))
+                .andExpect(status().isOk());
+        
+        System.out.println("Arrow stream upload test completed successfully!");
+    }
+    
+    @Test
+    public void testColumnarAppend_Arrow() throws Exception {
+        System.out.println("\n=== COLUMNAR APPEND TEST ===");
+        
+        String sessionId = "columnar-session";
+        arrowTableService.createSchema(sessionId, List.of(
+            new ColumnDefinition("id", DataType.INTEGER, true, true, false, null),
+            new ColumnDefinition("name", DataType.STRING, true, true, true, null),
+            new ColumnDefinition("score", DataType.DOUBLE, true, true, false, null),
+            new ColumnDefinition("active", DataType.BOOLEAN, true, true, false, null),
+            new ColumnDefinition("blob", DataType.BINARY, false, false, false, null)
+        ));
+        
+        // Strings as offsets into one array, with null bitsets
+        BitSet nullName = new BitSet();
+        nullName.set(1);
+        BitSet nullActive = new BitSet();
+        nullActive.set(2);
+        BitSet active = new BitSet();
+        active.set(0);
+        arrowTableService.appendColumns(sessionId, new ColumnBatch(3)
+            .putInts("id", new int[] {1, 2, 3}, null)
+            .putBytes("name", new int[] {0, 5, 5, 10}, "alphagamma".getBytes(StandardCharsets.UTF_8), nullName)
+            .putDoubles("score", new double[] {1.5, 0, 2.5}, nullName)
+            .putBooleans("active", active, nullActive)
+            .putBytes("blob", new byte[][] {{1, 2}, {}, null}));
+        
+        // Strings as one array per row; the missing score column is appended as nulls
+        arrowTableService.appendColumns(sessionId, new ColumnBatch(2)
+            .putInts("id", new int[] {4, 5}, null)
+            .putBytes("name", new byte[][] {"delta".getBytes(StandardCharsets.UTF_8), null})
+            .putBooleans("active", new BitSet(), null));
+        
+        // Row maps go through the same path
+        arrowTableService.populateData(sessionId, List.of(
+            Map.of("id", 6, "name", "epsilon", "score", "6.25", "active", "true", "blob", new byte[] {7})));
+        
+        TableQueryRequest request = objectMapper.convertValue(Map.of(
+            "sessionId", sessionId,
+            "filters", List.of(),
+            "sorts", List.of(Map.of("column", "id", "direction", "ASC", "priority", 0)),
+            "searchTerm", "",
+            "page", 0,
+            "pageSize", 10
+        ), TableQueryRequest.class);
+        JsonNode data = objectMapper.readTree(objectMapper.writeValueAsString(arrowTableService.query(request))).get("data");
+        assertEquals(6, data.size());
+        assertEquals("alpha", data.get(0).get("name").asText());
+        assertTrue(data.get(1).get("name").isNull());
+        assertTrue(data.get(1).get("score").isNull());
+        assertEquals("gamma", data.get(2).get("name").asText());
+        assertEquals(2.5, data.get(2).get("score").asDouble());
+        assertTrue(data.get(2).get("active").isNull());
+        assertEquals("delta", data.get(3).get("name").asText());
+        assertTrue(data.get(3).get("score").isNull());
+        assertTrue(data.get(4).get("name").isNull());
+        assertEquals(6.25, data.get(5).get("score").asDouble());
+        assertTrue(data.get(5).get("active").asBoolean());
+        assertEquals(0, data.get(1).get("blob").binaryValue().length);
+        assertTrue(data.get(2).get("blob").isNull());
+        
+        assertSearchCount(sessionId, "ta", 1);
+        assertSearchCount(sessionId, "silon", 1);
+        assertFilterCount(sessionId, List.of(Map.of("column", "name", "operation", "IS_NULL", "values", List.of())), 2);
+        assertFilterCount(sessionId, List.of(Map.of("column", "active", "operation", "EQUALS", "values", List.of(false))), 3);
+        
+        assertThrows(IllegalArgumentException.class, () -> arrowTableService.appendColumns(sessionId,
+            new ColumnBatch(1).putDoubles("id", new double[] {7}, null)));
+        assertThrows(IllegalArgumentException.class, () -> new ColumnBatch(2).putInts("id", new int[] {1}, null));
+        
+        arrowTableService.clearSession(sessionId);
+        System.out.println("Columnar append test completed successfully!");
+    }
+    
+    @Test
+    public void testIngestCopyVolume_Arrow() throws Exception {
+        System.out.println("\n=== INGEST COPY VOLUME BENCHMARK ===");
+        
+        String sessionId = "ingest-copy-session";
+        int rowCount = 100000;
+        List<ColumnDefinition> schema = dataGeneratorService.generateSchema();
+        arrowTableService.createSchema(sessionId, schema);
+        
+        long appendNanos = 0;
+        for (int start = 0; start < rowCount; start += 10000) {
+            ColumnBatch chunk = dataGeneratorService.generateColumns(start, 10000, schema);
+            long chunkStart = System.nanoTime();
+            arrowTableService.appendColumns(sessionId, chunk);
+            appendNanos += System.nanoTime() - chunkStart;
+        }
+        
+        Map<String, Object> metrics = arrowTableService.getPerformanceMetrics(sessionId);
+        double copiedMB = ((Number) metrics.get("ingestCopiedMB")).doubleValue();
+        double binaryMB = rowCount * 1024 / (1024.0 * 1024.0);
+        System.out.println("Timer: Columnar ingest " + rowCount + " rows: " + appendNanos / 1000000 + " ms");
+        System.out.println("Ingest copy volume: " + copiedMB + " MB in " + metrics.get("ingestReallocations")
+            + " reallocations, for " + binaryMB + " MB of binary values alone");
+        
+        // Geometric growth copies less than twice the bytes the table ends up holding
+        assertEquals(rowCount, metrics.get("rowCount"));
+        assertTrue(copiedMB < 2 * binaryMB, "copied " + copiedMB + " MB");
+        assertSearchCount(sessionId, "", rowCount);
+        
+        arrowTableService.clearSession(sessionId);
+        System.out.println("Ingest copy volume benchmark completed successfully!");
+    }
+    
+    @Test
+    public void testChunkedBatches_Arrow() throws Exception {
+        System.out.println("\n=== CHUNKED BATCHES TEST ===");
+        
+        String sessionId = "chunked-session";
+        arrowTableService.createSchema(sessionId, List.of(
+            new ColumnDefinition("id", DataType.INTEGER, true, true, false, null),
+            new ColumnDefinition("name", DataType.STRING, true, true, true, null),
+            new ColumnDefinition("score", DataType.DOUBLE, true, true, false, null)
+        ));
+        
+        // 25,000 rows fill two batches and start a third; 7,000 more fill it and start a fourth
+        arrowTableService.appendColumns(sessionId, chunkedRows(1, 25000));
+        arrowTableService.appendColumns(sessionId, chunkedRows(25001, 7000));
+        assertEquals(4, arrowTableService.getPerformanceMetrics(sessionId).get("batchCount"));
+        assertFilterCount(sessionId, List.of(), 32000);
+        assertFilterCount(sessionId, List.of(Map.of("column", "score", "operation", "GREATER_THAN", "values", List.of(9999.5))), 22001);
+        assertSearchCount(sessionId, "row 1999", 11);
+        assertEquals(List.of(32000, 31999), queryIds(sessionId,
+            List.of(Map.of("column", "score", "direction", "DESC", "priority", 0)), 0, 2));
+        
+        // Updates land in place in the batch holding the record
+        mockMvc.perform(put("/v1/sessions/{sessionId}/record/{recordId}/field/{fieldName}", sessionId, "15000", "name")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Map.of("value", "renamed row"))))
+                .andExpect(status().isOk());
+        mockMvc.perform(put("/v1/sessions/{sessionId}/record/{recordId}/field/{fieldName}", sessionId, "31000", "score")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Map.of("value", -1))))
+                .andExpect(status().isOk());
+        assertSearchCount(sessionId, "renamed", 1);
+        assertFilterCount(sessionId, List.of(Map.of("column", "score", "operation", "LESS_THAN", "values", List.of(0))), 1);
+        
+        // A delete spanning the first two batches only marks the rows deleted
+        mockMvc.perform(post("/v1/sessions/{sessionId}/delete", sessionId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Map.of(
+                    "sessionId", sessionId,
+                    "filters", List.of(
+                        Map.of("column", "id", "operation", "GREATER_THAN", "values", List.of(9000)),
+                        Map.of("column", "id", "operation", "LESS_THAN_OR_EQUAL", "values", List.of(11000))),
+                    "sorts", List.of(),
+                    "searchTerm", "",
+                    "page", 0,
+                    "pageSize", 100))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deletedCount").value(2000));
+        assertEquals(4, arrowTableService.getPerformanceMetrics(sessionId).get("batchCount"));
+        assertEquals(List.of(8999, 9000, 11001, 11002), queryIds(sessionId,
+            List.of(Map.of("column", "id", "operation", "GREATER_THAN", "values", List.of(8998))),
+            List.of(Map.of("column", "id", "direction", "ASC", "priority", 0)), 0, 4));
+        assertSearchCount(sessionId, "renamed", 1);
+        
+        // Compaction rewrites the first two batches and drops the emptied last one; the next append
+        // seals the full third batch
+        mockMvc.perform(post("/v1/sessions/{sessionId}/delete", sessionId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Map.of(
+                    "sessionId", sessionId,
+                    "filters", List.of(Map.of("column", "id", "operation", "GREATER_THAN", "values", List.of(30000))),
+                    "sorts", List.of(),
+                    "searchTerm", "",
+                    "page", 0,
+                    "pageSize", 100))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deletedCount").value(2000));
+        assertEquals(4000, arrowTableService.getPerformanceMetrics(sessionId).get("deletedRows"));
+        assertEquals(4000, arrowTableService.compact(sessionId));
+        assertEquals(0, arrowTableService.getPerformanceMetrics(sessionId).get("deletedRows"));
+        assertEquals(3, arrowTableService.getPerformanceMetrics(sessionId).get("batchCount"));
+        arrowTableService.appendColumns(sessionId, chunkedRows(40001, 500));
+        assertEquals(4, arrowTableService.getPerformanceMetrics(sessionId).get("batchCount"));
+        assertFilterCount(sessionId, List.of(Map.of("column", "score", "operation", "GREATER_THAN", "values", List.of(20000))), 10500);
+        
+        // The export writes one record batch per table batch
+        java.io.File file = java.io.File.createTempFile("chunked-export", ".arrow");
+        try {
+            arrowTableService.exportTableToFile(sessionId, file.getPath());
+            List<Integer> batchSizes = new ArrayList<>();
+            List<Integer> firstIds = new ArrayList<>();
+            try (RootAllocator allocator = new RootAllocator();
+                 java.io.FileInputStream in = new java.io.FileInputStream(file);
+                 ArrowFileReader reader = new ArrowFileReader(in.getChannel(), allocator)) {
+                while (reader.loadNextBatch()) {
+                    VectorSchemaRoot root = reader.getVectorSchemaRoot();
+                    batchSizes.add(root.getRowCount());
+                    firstIds.add(((IntVector) root.getVector("id")).get(0));
+                    if (firstIds.size() == 2) {
+                        assertEquals("renamed row", root.getVector("name").getObject(15000 - 11001).toString());
+                    }
+                }
+            }
+            assertEquals(List.of(9000, 9000, 10000, 500), batchSizes);
+            assertEquals(List.of(1, 11001, 20001, 40001), firstIds);
+        } finally {
+            file.delete();
+        }
+        
+        arrowTableService.clearSession(sessionId);
+        System.out.println("Chunked batches test completed successfully!");
+    }
+    
+    @Test
+    public void testDictionaryEncodedColumns_Arrow() throws Exception {
+        System.out.println("\n=== DICTIONARY ENCODED COLUMNS TEST ===");
+        
+        String sessionId = "dictionary-session";
+        arrowTableService.createSchema(sessionId, List.of(
+            new ColumnDefinition("id", DataType.INTEGER, true, true, false, null),
+            new ColumnDefinition("category", DataType.STRING, true, true, true, null)
+        ));
+        
+        // Ten categories are encoded on the first load; appends across batches write codes
+        arrowTableService.appendColumns(sessionId, dictionaryRows(1, 15000, 10));
+        arrowTableService.appendColumns(sessionId, dictionaryRows(15001, 15000, 10));
+        assertEquals(1, arrowTableService.getPerformanceMetrics(sessionId).get("dictionaryColumns"));
+        assertFilterCount(sessionId, List.of(Map.of("column", "category", "operation", "EQUALS", "values", List.of("cat 3"))), 3000);
+        assertFilterCount(sessionId, List.of(Map.of("column", "category", "operation", "IN", "values", List.of("cat 1", "cat 2"))), 6000);
+        assertSearchCount(sessionId, "cat 7", 3000);
+        assertEquals(List.of(9, 19), queryIds(sessionId,
+            List.of(Map.of("column", "category", "direction", "DESC", "priority", 0),
+                    Map.of("column", "id", "direction", "ASC", "priority", 1)), 0, 2));
+        
+        // An update to a new value adds it to the dictionary
+        mockMvc.perform(put("/v1/sessions/{sessionId}/record/{recordId}/field/{fieldName}", sessionId, "1005", "category")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Map.of("value", "brand new"))))
+                .andExpect(status().isOk());
+        assertEquals(List.of(1005), queryIds(sessionId,
+            List.of(Map.of("column", "category", "operation", "EQUALS", "values", List.of("brand new"))), List.of(), 0, 10));
+        assertSearchCount(sessionId, "brand", 1);
+        assertFilterCount(sessionId, List.of(Map.of("column", "category", "operation", "EQUALS", "values", List.of("cat 5"))), 2999);
+        
+        // Compaction copies the codes of the surviving rows
+        mockMvc.perform(post("/v1/sessions/{sessionId}/delete", sessionId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Map.of(
+                    "sessionId", sessionId,
+                    "filters", List.of(Map.of("column", "id", "operation", "LESS_THAN_OR_EQUAL", "values", List.of(1000))),
+                    "sorts", List.of(),
+                    "searchTerm", "",
+                    "page", 0,
+                    "pageSize", 100))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deletedCount").value(1000));
+        assertEquals(1000, arrowTableService.compact(sessionId));
+        assertFilterCount(sessionId, List.of(Map.of("column", "category", "operation", "EQUALS", "values", List.of("cat 3"))), 2900);
+        assertSearchCount(sessionId, "brand", 1);
+        
+        // The export decodes the codes back to strings
+        java.io.File file = java.io.File.createTempFile("dictionary-export", ".arrow");
+        try {
+            arrowTableService.exportTableToFile(sessionId, file.getPath());
+            try (RootAllocator allocator = new RootAllocator();
+                 java.io.FileInputStream in = new java.io.FileInputStream(file);
+                 ArrowFileReader reader = new ArrowFileReader(in.getChannel(), allocator)) {
+                assertTrue(reader.loadNextBatch());
+                VectorSchemaRoot root = reader.getVectorSchemaRoot();
+                assertTrue(root.getVector("category") instanceof VarCharVector);
+                assertEquals("cat 1", root.getVector("category").getObject(0).toString());
+                assertEquals("brand new", root.getVector("category").getObject(4).toString());
+            }
+        } finally {
+            file.delete();
+        }
+        
+        // Appending more distinct values than the limit decodes the column
+        arrowTableService.appendColumns(sessionId, dictionaryRows(30001, 2000, 2000));
+        assertEquals(0, arrowTableService.getPerformanceMetrics(sessionId).get("dictionaryColumns"));
+        assertFilterCount(sessionId, List.of(Map.of("column", "category", "operation", "EQUALS", "values", List.of("cat 3"))), 2901);
+        assertSearchCount(sessionId, "brand", 1);
+        arrowTableService.clearSession(sessionId);
+        
+        // So does an update to a value the full dictionary cannot take
+        arrowTableService.createSchema(sessionId, List.of(
+            new ColumnDefinition("id", DataType.INTEGER, true, true, false, null),
+            new ColumnDefinition("category", DataType.STRING, true, true, true, null)
+        ));
+        arrowTableService.appendColumns(sessionId, dictionaryRows(1, 2048, 1024));
+        assertEquals(1, arrowTableService.getPerformanceMetrics(sessionId).get("dictionaryColumns"));
+        mockMvc.perform(put("/v1/sessions/{sessionId}/record/{recordId}/field/{fieldName}", sessionId, "7", "category")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Map.of("value", "overflow"))))
+                .andExpect(status().isOk());
+        assertEquals(0, arrowTableService.getPerformanceMetrics(sessionId).get("dictionaryColumns"));
+        assertEquals(List.of(7), queryIds(sessionId,
+            List.of(Map.of("column", "category", "operation", "EQUALS", "values", List.of("overflow"))), List.of(), 0, 10));
+        assertFilterCount(sessionId, List.of(Map.of("column", "category", "operation", "EQUALS", "values", List.of("cat 7"))), 1);
+        
+        arrowTableService.clearSession(sessionId);
+        System.out.println("Dictionary encoded columns test completed successfully!");
+    }
+    
+    @Test
+    public void testTombstoneDeletes_Arrow() throws Exception {
+        System.out.println("\n=== TOMBSTONE DELETES TEST ===");
+        
+        String sessionId = "tombstone-session";
+        arrowTableService.createSchema(sessionId, List.of(
+            new ColumnDefinition("id", DataType.INTEGER, true, true, false, null),
+            new ColumnDefinition("name", DataType.STRING, true, true, true, null),
+            new ColumnDefinition("score", DataType.DOUBLE, true, true, false, null)
+        ));
+        arrowTableService.appendColumns(sessionId, chunkedRows(1, 25000));
+        
+        // A small delete only marks its rows; every scan leaves them out right away
+        assertDeletedCount(sessionId, List.of(Map.of("column", "id", "operation", "LESS_THAN_OR_EQUAL", "values", List.of(100))), 100);
+        Map<String, Object> metrics = arrowTableService.getPerformanceMetrics(sessionId);
+        assertEquals(100, metrics.get("deletedRows"));
+        assertEquals(0, metrics.get("compactions"));
+        assertEquals(3, metrics.get("batchCount"));
+        assertFilterCount(sessionId, List.of(), 24900);
+        assertFilterCount(sessionId, List.of(Map.of("column", "score", "operation", "LESS_THAN", "values", List.of(200))), 99);
+        assertSearchCount(sessionId, "row 50", 110);
+        assertEquals(List.of(101, 102), queryIds(sessionId,
+            List.of(Map.of("column", "id", "direction", "ASC", "priority", 0)), 0, 2));
+        assertDeletedCount(sessionId, List.of(Map.of("column", "id", "operation", "LESS_THAN_OR_EQUAL", "values", List.of(100))), 0);
+        mockMvc.perform(put("/v1/sessions/{sessionId}/record/{recordId}/field/{fieldName}", sessionId, "50", "name")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Map.of("value", "deleted row"))))
+                .andExpect(status().isNotFound());
+        
+        // The export leaves deleted rows out of the file
+        java.io.File file = java.io.File.createTempFile("tombstone-export", ".arrow");
+        try {
+            arrowTableService.exportTableToFile(sessionId, file.getPath());
+            List<Integer> batchSizes = new ArrayList<>();
+            try (RootAllocator allocator = new RootAllocator();
+                 java.io.FileInputStream in = new java.io.FileInputStream(file);
+                 ArrowFileReader reader = new ArrowFileReader(in.getChannel(), allocator)) {
+                while (reader.loadNextBatch()) {
+                    VectorSchemaRoot root = reader.getVectorSchemaRoot();
+                    batchSizes.add(root.getRowCount());
+                    if (batchSizes.size() == 1) {
+                        assertEquals(101, ((IntVector) root.getVector("id")).get(0));
+                    }
+                }
+            }
+            assertEquals(List.of(9900, 10000, 5000), batchSizes);
+        } finally {
+            file.delete();
+        }
+        
+        // Passing the deleted-fraction threshold compacts the session in the background
+        assertDeletedCount(sessionId, List.of(Map.of("column", "id", "operation", "GREATER_THAN", "values", List.of(5000))), 20000);
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!Integer.valueOf(1).equals(arrowTableService.getPerformanceMetrics(sessionId).get("compactions"))
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        metrics = arrowTableService.getPerformanceMetrics(sessionId);
+        assertEquals(1, metrics.get("compactions"));
+        assertEquals(0, metrics.get("deletedRows"));
+        assertEquals(1, metrics.get("batchCount"));
+        assertFilterCount(sessionId, List.of(), 4900);
+        assertSearchCount(sessionId, "row 50", 11);
+        assertEquals(List.of(5000, 4999), queryIds(sessionId,
+            List.of(Map.of("column", "score", "direction", "DESC", "priority", 0)), 0, 2));
+        
+        arrowTableService.clearSession(sessionId);
+        System.out.println("Tombstone deletes test completed successfully!");
+    }
+    
+    @Test
+    public void testBatchFieldUpdates_Arrow() throws Exception {
+        System.out.println("\n=== BATCH FIELD UPDATES TEST ===");
+        
+        String sessionId = "batch-update-session";
+        arrowTableService.createSchema(sessionId, List.of(
+            new ColumnDefinition("id", DataType.INTEGER, true, true, false, null),
+            new ColumnDefinition("name", DataType.STRING, true, true, true, null),
+            new ColumnDefinition("score", DataType.DOUBLE, true, true, false, null)
+        ));
+        arrowTableService.appendColumns(sessionId, chunkedRows(1, 25000));
+        
+        // Edits are applied in order, so a record can be addressed by the id an earlier edit gave it
+        List<Map<String, Object>> updates = List.of(
+            Map.of("recordId", "12000", "field", "name", "value", "edited row"),
+            Map.of("recordId", 24999, "field", "score", "value", -5),
+            Map.of("recordId", "5", "field", "id", "value", 100005),
+            Map.of("recordId", "100005", "field", "name", "value", "moved row"),
+            Map.of("recordId", "5", "field", "name", "value", "gone"),
+            Map.of("recordId", "012", "field", "name", "value", "not canonical"),
+            Map.of("recordId", "abc", "field", "name", "value", "not a number"),
+            Map.of("recordId", "7", "field", "missing", "value", "no such field")
+        );
+        mockMvc.perform(post("/v1/sessions/{sessionId}/records/update", sessionId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(updates)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.updatedCount").value(4))
+                .andExpect(jsonPath("$.failedIndexes", contains(4, 5, 6, 7)));
+        assertSearchCount(sessionId, "edited row", 1);
+        assertSearchCount(sessionId, "moved row", 1);
+        assertFilterCount(sessionId, List.of(Map.of("column", "score", "operation", "LESS_THAN", "values", List.of(0))), 1);
+        assertEquals(List.of(100005), queryIds(sessionId,
+            List.of(Map.of("column", "id", "operation", "EQUALS", "values", List.of(100005))), List.of(), 0, 10));
+        assertEquals(List.of(), queryIds(sessionId,
+            List.of(Map.of("column", "id", "operation", "EQUALS", "values", List.of(5))), List.of(), 0, 10));
+        
+        // Deleted records can no longer be edited; compaction renumbers the rows behind the index
+        assertDeletedCount(sessionId, List.of(Map.of("column", "id", "operation", "LESS_THAN_OR_EQUAL", "values", List.of(12000))), 11999);
+        mockMvc.perform(put("/v1/sessions/{sessionId}/record/{recordId}/field/{fieldName}", sessionId, "12000", "name")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Map.of("value", "deleted"))))
+                .andExpect(status().isNotFound());
+        arrowTableService.compact(sessionId);
+        mockMvc.perform(put("/v1/sessions/{sessionId}/record/{recordId}/field/{fieldName}", sessionId, "20000", "name")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Map.of("value", "after compaction"))))
+                .andExpect(status().isOk());
+        assertSearchCount(sessionId, "after compaction", 1);
+        assertEquals(List.of(20000), queryIds(sessionId,
+            List.of(Map.of("column", "id", "operation", "EQUALS", "values", List.of(20000))), List.of(), 0, 10));
+        
+        // Repeated ids fall back to scanning, and the first row of an id is the one edited
+        arrowTableService.appendColumns(sessionId, chunkedRows(20001, 10));
+        assertEquals(List.of(20003, 20003), queryIds(sessionId,
+            List.of(Map.of("column", "id", "operation", "EQUALS", "values", List.of(20003))), List.of(), 0, 10));
+        mockMvc.perform(put("/v1/sessions/{sessionId}/record/{recordId}/field/{fieldName}", sessionId, "20003", "score")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Map.of("value", -1))))
+                .andExpect(status().isOk());
+        assertEquals(List.of(20003), queryIds(sessionId,
+            List.of(Map.of("column", "score", "operation", "EQUALS", "values", List.of(-1))), List.of(), 0, 10));
+        
+        arrowTableService.clearSession(sessionId);
+        System.out.println("Batch field updates test completed successfully!");
+    }
+    
+    @Test
+    public void testSortedIndexes_Arrow() throws Exception {
+        System.out.println("\n=== SORTED INDEXES TEST ===");
+        
+        String sessionId = "sorted-index-session";
+        arrowTableService.createSchema(sessionId, List.of(
+            new ColumnDefinition("id", DataType.INTEGER, true, true, false, null),
+            new ColumnDefinition("bucket", DataType.INTEGER, true, true, false, null),
+            new ColumnDefinition("score", DataType.DOUBLE, true, true, false, null)
+        ));
+        Map<Integer, Double> scoreById = new LinkedHashMap<>();
+        arrowTableService.appendColumns(sessionId, sortedIndexRows(1, 30000, scoreById));
+        
+        Map<String, Object> metrics = arrowTableService.getPerformanceMetrics(sessionId);
+        assertEquals(3, metrics.get("sortedIndexColumns"));
+        assertTrue(((Number) metrics.get("sortedIndexMB")).doubleValue() > 0);
+        System.out.println("Sorted indexes: " + metrics.get("sortedIndexMB") + " MB built in "
+            + metrics.get("sortedIndexBuildMs") + " ms");
+        assertSortedIndexQueries(sessionId, scoreById);
+        
+        // Edited values move within the index
+        mockMvc.perform(put("/v1/sessions/{sessionId}/record/{recordId}/field/{fieldName}", sessionId, "10", "score")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Map.of("value", 2000.5))))
+                .andExpect(status().isOk());
+        mockMvc.perform(put("/v1/sessions/{sessionId}/record/{recordId}/field/{fieldName}", sessionId, "50", "score")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Map.of("value", 0.05))))
+                .andExpect(status().isOk());
+        scoreById.put(10, 2000.5);
+        scoreById.put(50, 0.05);
+        assertEquals(List.of(10), queryIds(sessionId,
+            List.of(Map.of("column", "score", "operation", "GREATER_THAN", "values", List.of(1001))), List.of(), 0, 10));
+        assertSortedIndexQueries(sessionId, scoreById);
+        
+        // Deleted rows drop out of index matches, and compaction renumbers the index
+        assertDeletedCount(sessionId, List.of(Map.of("column", "bucket", "operation", "EQUALS", "values", List.of(3))), 310);
+        scoreById.keySet().removeIf(id -> id % 97 == 3);
+        assertSortedIndexQueries(sessionId, scoreById);
+        arrowTableService.compact(sessionId);
+        assertSortedIndexQueries(sessionId, scoreById);
+        
+        // Appended rows are merged into the existing order
+        arrowTableService.appendColumns(sessionId, sortedIndexRows(30001, 5000, scoreById));
+        assertSortedIndexQueries(sessionId, scoreById);
+        
+        arrowTableService.clearSession(sessionId);
+        System.out.println("Sorted indexes test completed successfully!");
+    }
+    
+    @Test
+    public void testBitmapIndexes_Arrow() throws Exception {
+        System.out.println("\n=== BITMAP INDEXES TEST ===");
+        
+        String sessionId = "bitmap-index-session";
+        arrowTableService.createSchema(sessionId, List.of(
+            new ColumnDefinition("id", DataType.INTEGER, true, true, false, null),
+            new ColumnDefinition("flag", DataType.BOOLEAN, true, true, false, null),
+            new ColumnDefinition("tier", DataType.INTEGER, true, true, false, null),
+            new ColumnDefinition("level", DataType.INTEGER, true, true, false, null)
+        ));
+        arrowTableService.appendColumns(sessionId, bitmapIndexRows(1, 20000, 5));
+        
+        // The id column has too many distinct values to be indexed; level has exactly the limit of 64
+        Map<String, Object> metrics = arrowTableService.getPerformanceMetrics(sessionId);
+        assertEquals(3, metrics.get("bitmapIndexColumns"));
+        System.out.println("Bitmap indexes: " + metrics.get("bitmapIndexMB") + " MB built in "
+            + metrics.get("bitmapIndexBuildMs") + " ms");
+        
+        // Filters matching most rows clear the rejected bitmaps, and the null rows, from a full bitmap
+        assertFilterCount(sessionId, List.of(Map.of("column", "tier", "operation", "NOT_EQUALS", "values", List.of(0))), 16000);
+        assertFilterCount(sessionId, List.of(Map.of("column", "tier", "operation", "NOT_IN", "values", List.of(0, "1"))), 12000);
+        assertFilterCount(sessionId, List.of(Map.of("column", "level", "operation", "NOT_EQUALS", "values", List.of(3))), 19687);
+        
+        // Every 10th flag is null and the other multiples of 3 are true; null rows match neither NOT_EQUALS
+        assertFilterCount(sessionId, List.of(Map.of("column", "flag", "operation", "NOT_EQUALS", "values", List.of(true))), 12000);
+        assertFilterCount(sessionId, List.of(Map.of("column", "flag", "operation", "NOT_EQUALS", "values", List.of("false"))), 6000);
+        assertFilterCount(sessionId, List.of(Map.of("column", "flag", "operation", "IS_NULL", "values", List.of())), 2000);
+        
+        // An update to a 65th level value drops that index; filters scan the column again
+        mockMvc.perform(put("/v1/sessions/{sessionId}/record/{recordId}/field/{fieldName}", sessionId, "1", "level")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Map.of("value", 100))))
+                .andExpect(status().isOk());
+        assertEquals(2, arrowTableService.getPerformanceMetrics(sessionId).get("bitmapIndexColumns"));
+        assertEquals(List.of(1), queryIds(sessionId,
+            List.of(Map.of("column", "level", "operation", "EQUALS", "values", List.of(100))), List.of(), 0, 10));
+        assertFilterCount(sessionId, List.of(Map.of("column", "level", "operation", "NOT_EQUALS", "values", List.of(3))), 19687);
+        
+        // So does an append bringing 70 tiers
+        arrowTableService.appendColumns(sessionId, bitmapIndexRows(20001, 5000, 70));
+        assertEquals(1, arrowTableService.getPerformanceMetrics(sessionId).get("bitmapIndexColumns"));
+        assertFilterCount(sessionId, List.of(Map.of("column", "tier", "operation", "NOT_EQUALS", "values", List.of(0))), 20928);
+        assertFilterCount(sessionId, List.of(Map.of("column", "flag", "operation", "NOT_EQUALS", "values", List.of(true))), 15000);
+        
+        // Deleted rows drop out of the full bitmap, before and after compaction renumbers the index
+        assertDeletedCount(sessionId, List.of(Map.of("column", "id", "operation", "LESS_THAN_OR_EQUAL", "values", List.of(1000))), 1000);
+        assertFilterCount(sessionId, List.of(Map.of("column", "flag", "operation", "NOT_EQUALS", "values", List.of(true))), 14400);
+        arrowTableService.compact(sessionId);
+        assertFilterCount(sessionId, List.of(Map.of("column", "flag", "operation", "NOT_EQUALS", "values", List.of(true))), 14400);
+        assertFilterCount(sessionId, List.of(Map.of("column", "flag", "operation", "NOT_EQUALS", "values", List.of(false))), 7200);
+        
+        arrowTableService.clearSession(sessionId);
+        System.out.println("Bitmap indexes test completed successfully!");
+    }
+    
+    @Test
+    public void testLogicalOperators_Arrow() throws Exception {
+        System.out.println("\n=== LOGICAL OPERATORS TEST ===");
+        
+        String sessionId = "logical-operator-session";
+        int rowCount = 30000;
+        arrowTableService.createSchema(sessionId, List.of(
+            new ColumnDefinition("id", DataType.INTEGER, true, true, false, null),
+            new ColumnDefinition("name", DataType.STRING, true, true, true, null),
+            new ColumnDefinition("score", DataType.DOUBLE, true, true, false, null),
+            new ColumnDefinition("bucket", DataType.INTEGER, true, true, false, null),
+            new ColumnDefinition("flag", DataType.BOOLEAN, true, true, false, null)
+        ));
+        int[] buckets = new int[rowCount];
+        BitSet flags = new BitSet(rowCount);
+        for (int i = 0; i < rowCount; i++) {
+            buckets[i] = (i + 1) % 10;
+            flags.set(i, (i + 1) % 3 == 0);
+        }
+        arrowTableService.appendColumns(sessionId, chunkedRows(1, rowCount)
+            .putInts("bucket", buckets, null)
+            .putBooleans("flag", flags, null));
+        List<Integer> rows = new ArrayList<>();
+        for (int id = 1; id <= rowCount; id++) {
+            rows.add(id);
+        }
+        
+        // AND binds tighter than OR, and a filter with nested filters is a parenthesized group
+        Map<List<Map<String, Object>>, Predicate<Integer>> filters = Map.of(
+            List.of(Map.of("column", "bucket", "operation", "EQUALS", "values", List.of(1)),
+                    Map.of("column", "bucket", "operation", "EQUALS", "values", List.of(2), "logicalOperator", "OR")),
+            id -> id % 10 == 1 || id % 10 == 2,
+            List.of(Map.of("column", "bucket", "operation", "EQUALS", "values", List.of(1)),
+                    Map.of("column", "bucket", "operation", "EQUALS", "values", List.of(2), "logicalOperator", "AND")),
+            id -> false,
+            List.of(Map.of("column", "score", "operation", "GREATER_THAN", "values", List.of(29000)),
+                    Map.of("column", "bucket", "operation", "EQUALS", "values", List.of(3)),
+                    Map.of("column", "name", "operation", "CONTAINS", "values", List.of("ROW 77"), "logicalOperator", "OR")),
+            id -> (id > 29000 && id % 10 == 3) || ("row " + id).contains("row 77"),
+            List.of(Map.of("column", "flag", "operation", "EQUALS", "values", List.of(true)),
+                    Map.of("column", "bucket", "operation", "EQUALS", "values", List.of(1), "logicalOperator", "AND"),
+                    Map.of("column", "bucket", "operation", "EQUALS", "values", List.of(4), "logicalOperator", "OR")),
+            id -> (id % 3 == 0 && id % 10 == 1) || id % 10 == 4,
+            List.of(Map.of("column", "flag", "operation", "EQUALS", "values", List.of(true)),
+                    Map.of("logicalOperator", "AND", "filters", List.of(
+                        Map.of("column", "bucket", "operation", "EQUALS", "values", List.of(1)),
+                        Map.of("column", "bucket", "operation", "EQUALS", "values", List.of(4), "logicalOperator", "OR")))),
+            id -> id % 3 == 0 && (id % 10 == 1 || id % 10 == 4),
+            List.of(Map.of("column", "id", "operation", "LESS_THAN", "values", List.of(100)),
+                    Map.of("column", "id", "operation", "GREATER_THAN", "values", List.of(29900), "logicalOperator", "OR"),
+                    Map.of("logicalOperator", "AND", "filters", List.of(
+                        Map.of("column", "name", "operation", "ENDS_WITH", "values", List.of("7")),
+                        Map.of("column", "flag", "operation", "EQUALS", "values", List.of(false), "logicalOperator", "OR")))),
+            id -> id < 100 || (id > 29900 && (id % 10 == 7 || id % 3 != 0))
+        );
+        for (Map.Entry<List<Map<String, Object>>, Predicate<Integer>> filter : filters.entrySet()) {
+            assertEquals(rows.stream().filter(filter.getValue()).toList(),
+                queryIds(sessionId, filter.getKey(), List.of(), 0, rowCount), filter.getKey().toString());
+        }
+        
+        // Deletes select rows the same way
+        assertDeletedCount(sessionId, List.of(
+            Map.of("column", "bucket", "operation", "EQUALS", "values", List.of(9)),
+            Map.of("column", "score", "operation", "LESS_THAN", "values", List.of(11), "logicalOperator", "OR")), 3009);
+        assertFilterCount(sessionId, List.of(
+            Map.of("column", "bucket", "operation", "EQUALS", "values", List.of(9)),
+            Map.of("column", "bucket", "operation", "EQUALS", "values", List.of(0), "logicalOperator", "OR")), 2999);
+        
+        arrowTableService.clearSession(sessionId);
+        System.out.println("Logical operators test completed successfully!");
+    }
+    
+    @Test
+    public void testHashedMembershipFilters_Arrow() throws Exception {
+        System.out.println("\n=== HASHED MEMBERSHIP FILTERS TEST ===");
+        
+        String sessionId = "membership-session";
+        arrowTableService.createSchema(sessionId, List.of(
+            new ColumnDefinition("id", DataType.INTEGER, true, true, false, null),
+            new ColumnDefinition("bucket", DataType.INTEGER, true, true, false, null),
+            new ColumnDefinition("score", DataType.DOUBLE, true, true, false, null)
+        ));
+        Map<Integer, Double> scoreById = new LinkedHashMap<>();
+        arrowTableService.appendColumns(sessionId, sortedIndexRows(1, 30000, scoreById));
+        List<Integer> rows = new ArrayList<>(scoreById.keySet());
+        
+        // Lists large enough that the sorted indexes leave them to the scan; values only match their exact string form
+        List<Object> ids = new ArrayList<>();
+        for (int id = 2; id <= 10000; id += 2) {
+            ids.add(id % 4 == 0 ? String.valueOf(id) : id);
+        }
+        ids.addAll(List.of("011", 13.0, "15.0", "abc"));
+        List<Object> buckets = new ArrayList<>();
+        for (int bucket = 0; bucket < 20; bucket++) {
+            buckets.add(bucket == 5 ? "5" : bucket);
+        }
+        List<Object> scores = new ArrayList<>();
+        Set<Double> listedScores = new HashSet<>();
+        for (int id = 1; id <= 4000; id++) {
+            if (scoreById.get(id) != null) {
+                scores.add(id % 2 == 0 ? Double.toString(scoreById.get(id)) : scoreById.get(id));
+                listedScores.add(scoreById.get(id));
+            }
+        }
+        scores.add(100);
+        Predicate<Integer> listedScore = id -> scoreById.get(id) != null && listedScores.contains(scoreById.get(id));
+        
+        Map<List<Map<String, Object>>, Predicate<Integer>> filters = Map.of(
+            List.of(Map.of("column", "id", "operation", "IN", "values", ids)),
+            id -> id % 2 == 0 && id <= 10000,
+            List.of(Map.of("column", "bucket", "operation", "IN", "values", buckets)),
+            id -> id % 97 < 20,
+            List.of(Map.of("column", "bucket", "operation", "NOT_IN", "values", buckets)),
+            id -> id % 97 >= 20,
+            List.of(Map.of("column", "score", "operation", "IN", "values", scores)),
+            listedScore,
+            List.of(Map.of("column", "score", "operation", "NOT_IN", "values", scores)),
+            id -> scoreById.get(id) != null && !listedScore.test(id),
+            List.of(Map.of("column", "score", "operation", "NOT_IN", "values", List.of("0.7", 1.4, 100))),
+            id -> scoreById.get(id) != null && scoreById.get(id) != 0.7 && scoreById.get(id) != 1.4
+        );
+        for (Map.Entry<List<Map<String, Object>>, Predicate<Integer>> filter : filters.entrySet()) {
+            assertEquals(rows.stream().filter(filter.getValue()).toList(),
+                queryIds(sessionId, filter.getKey(), List.of(), 0, rows.size()), filter.getKey().get(0).get("operation")
+                    + " on " + filter.getKey().get(0).get("column"));
+        }
+        arrowTableService.clearSession(sessionId);
+        
+        // Strings are compared as UTF-8 bytes, case-sensitively
+        String namesSessionId = "membership-names-session";
+        arrowTableService.createSchema(namesSessionId, List.of(
+            new ColumnDefinition("id", DataType.INTEGER, true, true, false, null),
+            new ColumnDefinition("name", DataType.STRING, true, true, true, null),
+            new ColumnDefinition("score", DataType.DOUBLE, true, true, false, null)
+        ));
+        arrowTableService.appendColumns(namesSessionId, chunkedRows(1, 20000));
+        List<Object> names = new ArrayList<>();
+        for (int id = 1; id <= 15000; id++) {
+            names.add("row " + id);
+        }
+        names.add("ROW 15001");
+        assertFilterCount(namesSessionId, List.of(Map.of("column", "name", "operation", "NOT_IN", "values", names)), 5000);
+        assertEquals(List.of(15000), queryIds(namesSessionId,
+            List.of(Map.of("column", "name", "operation", "IN", "values", names),
+                    Map.of("column", "id", "operation", "GREATER_THAN", "values", List.of(14999))), List.of(), 0, 10));
+        
+        arrowTableService.clearSession(namesSessionId);
+        System.out.println("Hashed membership filters test completed successfully!");
+    }
+    
+    // Rows id .. id + count - 1 flagged when id is divisible by 3 (null every 10th), in tier id % tiers and level id % 64
+    private ColumnBatch bitmapIndexRows(int firstId, int count, int tiers) {
+        int[] ids = new int[count];
+        int[] tierValues = new int[count];
+        int[] levels = new int[count];
+        BitSet flags = new BitSet(count);
+        BitSet flagNulls = new BitSet(count);
+        for (int i = 0; i < count; i++) {
+            ids[i] = firstId + i;
+            flags.set(i, ids[i] % 3 == 0);
+            flagNulls.set(i, ids[i] % 10 == 0);
+            tierValues[i] = ids[i] % tiers;
+            levels[i] = ids[i] % 64;
+        }
+        return new ColumnBatch(count)
+            .putInts("id", ids, null)
+            .putBooleans("flag", flags, flagNulls)
+            .putInts("tier", tierValues, null)
+            .putInts("level", levels, null);
+    }
+    
+    // Rows id .. id + count - 1 in bucket id % 97, scattered scores with many ties and every 50th score null
+    private ColumnBatch sortedIndexRows(int firstId, int count, Map<Integer, Double> scoreById) {
+        int[] ids = new int[count];
+        int[] buckets = new int[count];
+        double[] scores = new double[count];
+        BitSet nulls = new BitSet(count);
+        for (int i = 0; i < count; i++) {
+            ids[i] = firstId + i;
+            buckets[i] = ids[i] % 97;
+            scores[i] = (ids[i] * 7919L % 10007) / 10.0;
+            if (ids[i] % 50 == 0) {
+                nulls.set(i);
+            }
+            scoreById.put(ids[i], nulls.get(i) ? null : scores[i]);
+        }
+        return new ColumnBatch(count)
+            .putInts("id", ids, null)
+            .putInts("bucket", buckets, null)
+            .putDoubles("score", scores, nulls);
+    }
+    
+    private void assertSortedIndexQueries(String sessionId, Map<Integer, Double> scoreById) throws Exception {
+        int pageSize = scoreById.size();
+        List<Integer> rows = new ArrayList<>(scoreById.keySet());
+        
+        Map<List<Map<String, Object>>, Predicate<Integer>> filters = Map.of(
+            List.of(Map.of("column", "score", "operation", "GREATER_THAN", "values", List.of(990))),
+            id -> scoreById.get(id) != null && scoreById.get(id) > 990,
+            List.of(Map.of("column", "score", "operation", "LESS_THAN_OR_EQUAL", "values", List.of("3.5"))),
+            id -> scoreById.get(id) != null && scoreById.get(id) <= 3.5,
+            List.of(Map.of("column", "bucket", "operation", "EQUALS", "values", List.of(5))),
+            id -> id % 97 == 5,
+            List.of(Map.of("column", "bucket", "operation", "IN", "values", List.of(1, "2", 3.0))),
+            id -> id % 97 == 1 || id % 97 == 2,
+            List.of(Map.of("column", "score", "operation", "IN", "values", List.of(0.7, "1.4", 2))),
+            id -> scoreById.get(id) != null && (scoreById.get(id) == 0.7 || scoreById.get(id) == 1.4),
+            List.of(Map.of("column", "id", "operation", "GREATER_THAN_OR_EQUAL", "values", List.of(29900)),
+                    Map.of("column", "bucket", "operation", "LESS_THAN", "values", List.of(50))),
+            id -> id >= 29900 && id % 97 < 50
+        );
+        for (Map.Entry<List<Map<String, Object>>, Predicate<Integer>> filter : filters.entrySet()) {
+            assertEquals(rows.stream().filter(filter.getValue()).toList(),
+                queryIds(sessionId, filter.getKey(), List.of(), 0, pageSize), filter.getKey().toString());
+        }
+        
+        // Index order matches the sorter's: nulls first ascending and last descending, ties in row order
+        Comparator<Integer> ascending = Comparator.comparing(scoreById::get, Comparator.nullsFirst(Comparator.<Double>naturalOrder()));
+        Comparator<Integer> descending = Comparator.comparing(scoreById::get, Comparator.nullsLast(Comparator.<Double>reverseOrder()));
+        List<Integer> sortedAscending = rows.stream().sorted(ascending).toList();
+        List<Integer> sortedDescending = rows.stream().sorted(descending).toList();
+        assertEquals(sortedAscending.subList(0, 1000),
+            queryIds(sessionId, List.of(Map.of("column", "score", "direction", "ASC", "priority", 0)), 0, 1000));
+        assertEquals(sortedDescending.subList(2000, 3000),
+            queryIds(sessionId, List.of(Map.of("column", "score", "direction", "DESC", "priority", 0)), 2, 1000));
+        assertEquals(sortedDescending.stream().filter(id -> id % 97 == 5).toList(),
+            queryIds(sessionId, List.of(Map.of("column", "bucket", "operation", "EQUALS", "values", List.of(5))),
+                List.of(Map.of("column", "score", "direction", "DESC", "priority", 0)), 0, pageSize));
+    }
+    
+    private void assertDeletedCount(String sessionId, List<Map<String, Object>> filters, int expectedCount) throws Exception {
+        mockMvc.perform(post("/v1/sessions/{sessionId}/delete", sessionId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Map.of(
+                    "sessionId", sessionId,
+                    "filters", filters,
+                    "sorts", List.of(),
+                    "searchTerm", "",
+                    "page", 0,
+                    "pageSize", 100))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deletedCount").value(expectedCount));
+    }
+    
+    // Rows id .. id + count - 1 named "row <id>" with score id
+    private ColumnBatch chunkedRows(int firstId, int count) {
+        int[] ids = new int[count];
+        byte[][] names = new byte[count][];
+        double[] scores = new double[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = firstId + i;
+            names[i] = ("row " + ids[i]).getBytes(StandardCharsets.UTF_8);
+            scores[i] = ids[i];
+        }
+        return new ColumnBatch(count)
+            .putInts("id", ids, null)
+            .putBytes("name", names)
+            .putDoubles("score", scores, null);
+    }
+    
+    private ColumnBatch dictionaryRows(int firstId, int count, int distinct) {
+        int[] ids = new int[count];
+        byte[][] categories = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            ids[i] = firstId + i;
+            categories[i] = ("cat " + ids[i] % distinct).getBytes(StandardCharsets.UTF_8);
+        }
+        return new ColumnBatch(count)
+            .putInts("id", ids, null)
+            .putBytes("category", categories);
+    }
+    
+    private List<Integer> queryIds(String sessionId, List<Map<String, Object>> sorts, int page, int pageSize) throws Exception {
+        return queryIds(sessionId, List.of(), sorts, page, pageSize);
+    }
+    
+    private List<Integer> queryIds(String sessionId, List<Map<String, Object>> filters, List<Map<String, Object>> sorts,
+                                   int page, int pageSize) throws Exception {
+        Map<String, Object> queryRequest = Map.of(
+            "sessionId", sessionId,
+            "filters", filters,
+            "sorts", sorts,
+            "searchTerm", "",
+            "page", page,
+            "pageSize", pageSize
+        );
+        
+        MvcResult result = mockMvc.perform(post("/v1/sessions/{sessionId}/query", sessionId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(queryRequest)))
+                .andExpect(status().isOk())
+                .andReturn();
+        
+        List<Integer> ids = new ArrayList<>();
+        objectMapper.readTree(result.getResponse().getContentAsString()).get("data")
+            .forEach(row -> ids.add(row.get("id").asInt()));
+        return ids;
+    }
+    
+    private void assertSortOrder(String sessionId, List<Map<String, Object>> sorts, List<Integer> expectedIds) throws Exception {
+        Map<String, Object> queryRequest = Map.of(
+            "sessionId", sessionId,
+            "filters", List.of(),
+            "sorts", sorts,
+            "searchTerm", "",
+            "page", 0,
+            "pageSize", 100
+        );
+        
+        mockMvc.perform(post("/v1/sessions/{sessionId}/query", sessionId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(queryRequest)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[*].id", contains(expectedIds.toArray())));
+    }
+    
+    private void assertSearchCount(String sessionId, String searchTerm, int expectedCount) throws Exception {
+        assertQueryCount(sessionId, List.of(), searchTerm, expectedCount);
+    }
+    
+    private void assertFilterCount(String sessionId, List<Map<String, Object>> filters, int expectedCount) throws Exception {
+        assertQueryCount(sessionId, filters, "", expectedCount);
+    }
+    
+    private void assertQueryCount(String sessionId, List<Map<String, Object>> filters, String searchTerm,
+                                  int expectedCount) throws Exception {
+        Map<String, Object> queryRequest = Map.of(
+            "sessionId", sessionId,
+            "filters", filters,
+            "sorts", List.of(),
+            "searchTerm", searchTerm,
+            "page", 0,
+            "pageSize", 100
+        );
+        
+        mockMvc.perform(post("/v1/sessions/{sessionId}/query", sessionId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(queryRequest)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(expectedCount));
+    }
+    
     private Map<String, Object> createLargerTestPayload() {
         // Create schema
         List<Map<String, Object>> schema = List.of(